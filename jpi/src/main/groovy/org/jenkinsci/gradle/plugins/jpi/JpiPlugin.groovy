@@ -52,6 +52,7 @@ import org.gradle.language.base.plugins.LifecycleBasePlugin
 import org.gradle.util.GradleVersion
 import org.jenkinsci.gradle.plugins.jpi.internal.DependenciesPlugin
 import org.jenkinsci.gradle.plugins.jpi.internal.Jdk17Plugin
+import org.jenkinsci.gradle.plugins.jpi.internal.LicenseDataCache
 import org.jenkinsci.gradle.plugins.jpi.internal.PluginDependencyProvider
 import org.jenkinsci.gradle.plugins.jpi.legacy.LegacyWorkaroundsPlugin
 import org.jenkinsci.gradle.plugins.jpi.localization.LocalizationPlugin
@@ -329,11 +330,16 @@ class JpiPlugin implements Plugin<Project>, PluginDependencyProvider {
     }
 
     private configureLicenseInfo(Project project) {
+        def licenseDataCache = project.gradle.sharedServices.registerIfAbsent(LicenseDataCache.NAME, LicenseDataCache) {
+            it.parameters.cacheDirectory.set(project.rootProject.layout.buildDirectory.dir('jpi/license-data-cache'))
+        }
         def licenseTask = project.tasks.register(LICENSE_TASK_NAME, LicenseTask) {
             it.description = 'Generates license information.'
             it.group = BasePlugin.BUILD_GROUP
             it.outputDirectory = new File(project.buildDir, 'licenses')
             it.libraryConfiguration = dependencyAnalysis.allLibraryDependencies
+            it.licenseDataCache.set(licenseDataCache)
+            it.usesService(licenseDataCache)
         }
 
         project.tasks.named(JPI_TASK_NAME).configure {
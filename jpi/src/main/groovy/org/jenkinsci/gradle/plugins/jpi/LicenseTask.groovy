@@ -16,6 +16,8 @@ import org.gradle.api.tasks.OutputDirectory
 import org.gradle.api.tasks.TaskAction
 import org.jenkinsci.gradle.plugins.jpi.internal.DependencyLicenseValidator
 import org.jenkinsci.gradle.plugins.jpi.internal.JpiExtensionBridge
+import org.jenkinsci.gradle.plugins.jpi.internal.LicenseData
+import org.jenkinsci.gradle.plugins.jpi.internal.LicenseDataCache
 import org.jenkinsci.gradle.plugins.jpi.internal.LicenseDataExtractor
 import org.slf4j.Logger
 import org.slf4j.LoggerFactory
@@ -44,6 +46,12 @@ class LicenseTask extends DefaultTask {
     @Internal
     final Property<String> projectDescription = project.objects.property(String)
 
+    /**
+     * Shared cache of extracted POM license data. Not an input: entries are keyed by POM content.
+     */
+    @Internal
+    final Property<LicenseDataCache> licenseDataCache = project.objects.property(LicenseDataCache)
+
     @Internal
     final Provider<Object> configurations = project.provider { project.configurations }
 
@@ -89,20 +97,20 @@ class LicenseTask extends DefaultTask {
                 }
 
                 pomArtifacts.each { ResolvedArtifact pomArtifact ->
-                    pomArtifact.file.withReader { reader ->
-                        def data = extractor.extractFrom(reader)
-                        ModuleVersionIdentifier gav = pomArtifact.moduleVersion.id
-                        String name = data.name
-                        String description = data.description
-                        String url = data.url
-
-                        'l:dependency'(
-                                version: gav.version, artifactId: gav.name, groupId: gav.group, name: name, url: url,
-                        ) {
-                            'l:description'(description)
-                            data.licenses.each { license ->
-                                'l:license'(url: license.url, name: license.name)
-                            }
+                    LicenseData data = licenseDataCache.present ?
+                            licenseDataCache.get().extract(pomArtifact.file) :
+                            pomArtifact.file.withReader { reader -> extractor.extractFrom(reader) }
+                    ModuleVersionIdentifier gav = pomArtifact.moduleVersion.id
+                    String name = data.name
+                    String description = data.description
+                    String url = data.url
+
+                    'l:dependency'(
+                            version: gav.version, artifactId: gav.name, groupId: gav.group, name: name, url: url,
+                    ) {
+                        'l:description'(description)
+                        data.licenses.each { license ->
+                            'l:license'(url: license.url, name: license.name)
                         }
                     }
                 }
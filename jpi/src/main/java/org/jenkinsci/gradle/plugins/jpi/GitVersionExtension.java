@@ -3,11 +3,13 @@ package org.jenkinsci.gradle.plugins.jpi;
 import org.gradle.api.file.DirectoryProperty;
 import org.gradle.api.file.ProjectLayout;
 import org.gradle.api.file.RegularFileProperty;
+import org.gradle.api.provider.ListProperty;
 import org.gradle.api.provider.Property;
 import org.gradle.api.provider.ProviderFactory;
 import org.gradle.api.tasks.Optional;
 
 import javax.inject.Inject;
+import java.util.Collections;
 
 /**
  * Gradle extension for configuring Git version generation.
@@ -39,6 +41,7 @@ public abstract class GitVersionExtension {
                         .map(p-> layout.getProjectDirectory().file(p))
                         .orElse(layout.getBuildDirectory().file("generated/version/version.txt")));
         getVersionPrefix().convention("");
+        getDirtyCheckPaths().convention(Collections.emptyList());
     }
 
     /**
@@ -90,6 +93,17 @@ public abstract class GitVersionExtension {
     @Optional
     public abstract Property<Boolean> getAllowDirty();
 
+    /**
+     * Gets the paths checked for pending changes when dirty working directories are not allowed.
+     * <p>
+     * Paths are relative to the Git root. Limiting the check to the paths that feed the plugin
+     * keeps it fast in large workspaces. When empty (the default), the whole working tree is checked.
+     *
+     * @return A property containing the paths to check
+     */
+    @Optional
+    public abstract ListProperty<String> getDirtyCheckPaths();
+
     /**
      * Gets the root directory of the Git repository.
      *
@@ -0,0 +1,114 @@
+package org.jenkinsci.gradle.plugins.jpi.internal;
+
+import org.gradle.api.file.DirectoryProperty;
+import org.gradle.api.services.BuildService;
+import org.gradle.api.services.BuildServiceParameters;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Shared build service that caches {@link LicenseData} extracted from POM files.
+ * <p>
+ * Entries are keyed by the SHA-256 of the POM's content, kept in memory for the rest of the build
+ * and persisted under {@link Params#getCacheDirectory()}, so each distinct POM is parsed once per
+ * machine instead of once per module per build.
+ */
+public abstract class LicenseDataCache implements BuildService<LicenseDataCache.Params> {
+    /** Name under which the service is registered with the build's shared services. */
+    public static final String NAME = "jpiLicenseDataCache";
+
+    /** Bumped whenever {@link LicenseDataExtractor} starts producing different data for the same input. */
+    static final String FORMAT_VERSION = "v1";
+
+    private final Map<String, LicenseData> entries = new ConcurrentHashMap<>();
+    private final ThreadLocal<LicenseDataExtractor> extractor = ThreadLocal.withInitial(LicenseDataExtractor::new);
+
+    /**
+     * Parameters for {@link LicenseDataCache}.
+     */
+    public interface Params extends BuildServiceParameters {
+        /** @return directory where extracted entries are persisted between builds */
+        DirectoryProperty getCacheDirectory();
+    }
+
+    /**
+     * Returns the license data of the given POM, parsing it only when no entry exists for its content yet.
+     * Licenses are always returned sorted by name and URL, whether they were parsed or read from an entry.
+     *
+     * @param pomFile the POM to read
+     * @return the extracted license data
+     */
+    public LicenseData extract(File pomFile) {
+        String key = PropertiesFileCache.sha256(pomFile);
+        return entries.computeIfAbsent(key, k -> cache().getOrCompute(k,
+                LicenseDataCache::read,
+                () -> canonical(parse(pomFile)),
+                LicenseDataCache::write));
+    }
+
+    private PropertiesFileCache cache() {
+        return new PropertiesFileCache(getParameters().getCacheDirectory().get().getAsFile().toPath(), FORMAT_VERSION);
+    }
+
+    private LicenseData parse(File pomFile) {
+        // A stream rather than a reader, so the parser honours the POM's encoding declaration.
+        try (InputStream in = Files.newInputStream(pomFile.toPath())) {
+            return extractor.get().extractFrom(in);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Unable to read POM " + pomFile, e);
+        }
+    }
+
+    private static LicenseData canonical(LicenseData data) {
+        List<License> licenses = new ArrayList<>(data.getLicenses());
+        licenses.sort(Comparator.comparing(License::getName).thenComparing(License::getUrl));
+        return new LicenseData(data.getName(), data.getDescription(), data.getUrl(), new LinkedHashSet<>(licenses));
+    }
+
+    private static LicenseData read(Properties properties) {
+        Set<License> licenses = new LinkedHashSet<>();
+        int count = Integer.parseInt(properties.getProperty("licenses", "0"));
+        for (int i = 0; i < count; i++) {
+            licenses.add(new License(
+                    required(properties, "license." + i + ".name"),
+                    required(properties, "license." + i + ".url")));
+        }
+        return new LicenseData(
+                required(properties, "name"),
+                required(properties, "description"),
+                required(properties, "url"),
+                licenses);
+    }
+
+    private static String required(Properties properties, String key) {
+        String value = properties.getProperty(key);
+        if (value == null) {
+            throw new IllegalStateException("Missing key " + key);
+        }
+        return value;
+    }
+
+    private static void write(LicenseData data, Properties properties) {
+        properties.setProperty("name", data.getName());
+        properties.setProperty("description", data.getDescription());
+        properties.setProperty("url", data.getUrl());
+        List<License> licenses = new ArrayList<>(data.getLicenses());
+        properties.setProperty("licenses", Integer.toString(licenses.size()));
+        for (int i = 0; i < licenses.size(); i++) {
+            properties.setProperty("license." + i + ".name", licenses.get(i).getName());
+            properties.setProperty("license." + i + ".url", licenses.get(i).getUrl());
+        }
+    }
+}
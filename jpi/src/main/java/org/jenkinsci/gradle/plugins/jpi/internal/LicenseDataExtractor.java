@@ -8,6 +8,7 @@ import org.xml.sax.SAXException;
 
 import javax.xml.parsers.ParserConfigurationException;
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.Reader;
 import java.util.HashSet;
 import java.util.Set;
@@ -45,28 +46,44 @@ public class LicenseDataExtractor {
      */
     public LicenseData extractFrom(Reader reader) {
         try {
-            Node pom = parser.parse(reader);
+            return extract(parser.parse(reader));
+        } catch (IOException | SAXException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    /**
+     * Extracts license data from the given stream, decoding it as its XML declaration says.
+     *
+     * @param in the stream containing POM XML
+     * @return the extracted license data
+     */
+    public LicenseData extractFrom(InputStream in) {
+        try {
+            return extract(parser.parse(in));
+        } catch (IOException | SAXException e) {
+            throw new RuntimeException(e);
+        }
+    }
 
-            String name = pom.getAt(qName).text();
-            String description = pom.getAt(qDescription).text();
-            String url = pom.getAt(qUrl).text();
-            NodeList licensesContainer = pom.getAt(qLicenses);
+    private LicenseData extract(Node pom) {
+        String name = pom.getAt(qName).text();
+        String description = pom.getAt(qDescription).text();
+        String url = pom.getAt(qUrl).text();
+        NodeList licensesContainer = pom.getAt(qLicenses);
 
-            Set<License> mapped = new HashSet<>();
+        Set<License> mapped = new HashSet<>();
 
-            for (Object o : licensesContainer) {
-                NodeList licenses = ((Node) o).getAt(qLicense);
-                for (Object l : licenses) {
-                    Node n = (Node) l;
-                    String licenseUrl = n.getAt(qUrl).text();
-                    String licenseName = n.getAt(qName).text();
-                    mapped.add(new License(licenseName, licenseUrl));
-                }
+        for (Object o : licensesContainer) {
+            NodeList licenses = ((Node) o).getAt(qLicense);
+            for (Object l : licenses) {
+                Node n = (Node) l;
+                String licenseUrl = n.getAt(qUrl).text();
+                String licenseName = n.getAt(qName).text();
+                mapped.add(new License(licenseName, licenseUrl));
             }
-            return new LicenseData(name, description, url, mapped);
-        } catch (IOException | SAXException e) {
-            throw new RuntimeException(e);
         }
+        return new LicenseData(name, description, url, mapped);
     }
 
     private static XmlParser init() {
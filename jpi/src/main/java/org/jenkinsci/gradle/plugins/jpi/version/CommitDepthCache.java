@@ -0,0 +1,126 @@
+package org.jenkinsci.gradle.plugins.jpi.version;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Remembers the commit depths (number of commits reachable from a commit, itself included) computed for one
+ * repository by the Git version generator, so that later builds only count the commits between a remembered
+ * commit and the new {@code HEAD} instead of the whole history.
+ *
+ * <p>A commit's depth never changes, so entries stay valid for as long as the commit exists. Only the
+ * most recently used {@link #MAX_ENTRIES} commits are kept. The cache is an optimization: unreadable
+ * entries are ignored and failing to write them doesn't fail the build.
+ */
+final class CommitDepthCache {
+    /** Bumped whenever the file format changes, so files written by an older plugin version are ignored. */
+    static final String FORMAT_VERSION = "v1";
+    /** Number of commits remembered per repository. */
+    static final int MAX_ENTRIES = 16;
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(CommitDepthCache.class);
+
+    private final Path file;
+
+    private CommitDepthCache(Path file) {
+        this.file = file;
+    }
+
+    /**
+     * @param cacheDirectory directory shared by the caches of all repositories
+     * @param gitDir         the repository's {@code .git} directory
+     * @return the cache of that repository
+     */
+    static CommitDepthCache forRepository(Path cacheDirectory, Path gitDir) {
+        String key = sha256(gitDir.toAbsolutePath().normalize().toString()).substring(0, 16);
+        return new CommitDepthCache(cacheDirectory.resolve(FORMAT_VERSION).resolve(key + ".txt"));
+    }
+
+    /** @return the remembered depths by commit id, most recently recorded first */
+    Map<String, Long> entries() {
+        Map<String, Long> entries = new LinkedHashMap<>();
+        if (!Files.isRegularFile(file)) {
+            return entries;
+        }
+        try {
+            for (String line : Files.readAllLines(file, StandardCharsets.UTF_8)) {
+                String[] fields = line.split(" ");
+                if (fields.length == 2) {
+                    entries.putIfAbsent(fields[0], Long.parseLong(fields[1]));
+                }
+            }
+        } catch (IOException | NumberFormatException e) {
+            LOGGER.debug("Ignoring unreadable commit depth cache {}", file, e);
+            entries.clear();
+        }
+        return entries;
+    }
+
+    /**
+     * Records the depth of {@code commit} as the most recent entry, evicting the oldest ones. Nothing is
+     * written when it already is the most recent entry.
+     *
+     * @param commit the commit id
+     * @param depth  the number of commits reachable from that commit, itself included
+     */
+    void record(String commit, long depth) {
+        Map<String, Long> entries = entries();
+        if (Long.valueOf(depth).equals(entries.get(commit)) && entries.keySet().iterator().next().equals(commit)) {
+            return;
+        }
+        List<String> lines = new ArrayList<>();
+        lines.add(commit + " " + depth);
+        for (Map.Entry<String, Long> entry : entries.entrySet()) {
+            if (lines.size() == MAX_ENTRIES) {
+                break;
+            }
+            if (!entry.getKey().equals(commit)) {
+                lines.add(entry.getKey() + " " + entry.getValue());
+            }
+        }
+        try {
+            write(lines);
+        } catch (IOException e) {
+            LOGGER.debug("Unable to persist commit depth cache {}", file, e);
+        }
+    }
+
+    private void write(List<String> lines) throws IOException {
+        Files.createDirectories(file.getParent());
+        // Builds of the same repository may run concurrently; readers must never observe a partial file.
+        Path temporary = Files.createTempFile(file.getParent(), file.getFileName().toString(), ".tmp");
+        try {
+            Files.write(temporary, lines, StandardCharsets.UTF_8);
+            try {
+                Files.move(temporary, file, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING);
+            }
+        } finally {
+            Files.deleteIfExists(temporary);
+        }
+    }
+
+    private static String sha256(String value) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(digest.digest(value.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+}
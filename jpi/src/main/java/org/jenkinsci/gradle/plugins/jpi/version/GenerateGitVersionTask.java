@@ -5,8 +5,10 @@ import org.gradle.api.file.ConfigurableFileCollection;
 import org.gradle.api.file.DirectoryProperty;
 import org.gradle.api.file.ProjectLayout;
 import org.gradle.api.file.RegularFileProperty;
+import org.gradle.api.provider.ListProperty;
 import org.gradle.api.provider.Property;
 import org.gradle.api.tasks.Classpath;
+import org.gradle.api.tasks.Internal;
 import org.gradle.api.tasks.OutputFile;
 import org.gradle.api.tasks.TaskAction;
 import org.gradle.workers.WorkAction;
@@ -53,6 +55,15 @@ public abstract class GenerateGitVersionTask extends DefaultTask {
         return gitVersionExtension.getOutputFile();
     }
 
+    /**
+     * Gets the directory where commit depths are remembered between builds, so that only the commits
+     * added since a remembered one are walked. Defaults to {@code build/git-commit-depth}.
+     *
+     * @return A property containing the depth cache directory
+     */
+    @Internal
+    public abstract DirectoryProperty getDepthCacheDirectory();
+
     /**
      * Gets the worker executor used for running the version generation in isolation.
      *
@@ -77,6 +88,7 @@ public abstract class GenerateGitVersionTask extends DefaultTask {
     @Inject
     public GenerateGitVersionTask(GitVersionExtension gitVersionExtension) {
         this.gitVersionExtension = gitVersionExtension;
+        getDepthCacheDirectory().convention(getProjectLayout().getBuildDirectory().dir("git-commit-depth"));
         getOutputs().doNotCacheIf("Caching would require `.git` to be an input", t -> true);
         getOutputs().upToDateWhen(t -> false);
     }
@@ -99,7 +111,9 @@ public abstract class GenerateGitVersionTask extends DefaultTask {
             p.getVersionFormat().set(gitVersionExtension.getVersionFormat());
             p.getSanitize().set(gitVersionExtension.getSanitize());
             p.getAllowDirty().set(gitVersionExtension.getAllowDirty());
+            p.getDirtyCheckPaths().set(gitVersionExtension.getDirtyCheckPaths());
             p.getOutputFile().set(getOutputFile());
+            p.getDepthCacheDirectory().set(getDepthCacheDirectory());
         });
     }
 
@@ -145,6 +159,13 @@ public abstract class GenerateGitVersionTask extends DefaultTask {
          */
         Property<Boolean> getAllowDirty();
 
+        /**
+         * Gets the paths checked for pending changes.
+         *
+         * @return A property containing the paths to check, empty for the whole working tree
+         */
+        ListProperty<String> getDirtyCheckPaths();
+
         /**
          * Gets the abbreviation length for commit hashes.
          *
@@ -158,6 +179,13 @@ public abstract class GenerateGitVersionTask extends DefaultTask {
          * @return A property containing the output file location
          */
         RegularFileProperty getOutputFile();
+
+        /**
+         * Gets the directory where commit depths are remembered between builds.
+         *
+         * @return A property containing the depth cache directory
+         */
+        DirectoryProperty getDepthCacheDirectory();
     }
 
     /**
@@ -178,7 +206,9 @@ public abstract class GenerateGitVersionTask extends DefaultTask {
                         p.getVersionPrefix().get(),
                         p.getVersionFormat().get(),
                         p.getAllowDirty().get(),
-                        p.getSanitize().get()).generate();
+                        p.getSanitize().get(),
+                        p.getDirtyCheckPaths().get(),
+                        p.getDepthCacheDirectory().get().getAsFile().toPath()).generate();
                 Files.write(outputFile, version.toString().getBytes(StandardCharsets.UTF_8));
             } catch (IOException e) {
                 throw new RuntimeException("Fail to write version file at " + outputFile, e);
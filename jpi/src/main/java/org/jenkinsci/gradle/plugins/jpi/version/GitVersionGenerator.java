@@ -2,7 +2,10 @@ package org.jenkinsci.gradle.plugins.jpi.version;
 
 import org.eclipse.jgit.api.Git;
 import org.eclipse.jgit.api.Status;
+import org.eclipse.jgit.api.StatusCommand;
 import org.eclipse.jgit.api.errors.GitAPIException;
+import org.eclipse.jgit.errors.IncorrectObjectTypeException;
+import org.eclipse.jgit.errors.MissingObjectException;
 import org.eclipse.jgit.lib.ObjectId;
 import org.eclipse.jgit.lib.ObjectReader;
 import org.eclipse.jgit.lib.Repository;
@@ -10,6 +13,10 @@ import org.eclipse.jgit.revwalk.RevWalk;
 
 import java.io.IOException;
 import java.nio.file.Path;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
 import java.util.stream.StreamSupport;
 
 /**
@@ -26,6 +33,8 @@ public class GitVersionGenerator {
     private final boolean sanitize;
     private final boolean allowDirty;
     private final Path gitRoot;
+    private final List<String> dirtyCheckPaths;
+    private final Path depthCacheDirectory;
 
     /**
      * Constructs a new Git version generator with the specified parameters.
@@ -38,7 +47,26 @@ public class GitVersionGenerator {
      * @param sanitize Whether to sanitize the version string
      */
     public GitVersionGenerator(Path gitRoot, int abbrevLength, String versionPrefix, String versionFormat, boolean allowDirty, boolean sanitize) {
+        this(gitRoot, abbrevLength, versionPrefix, versionFormat, allowDirty, sanitize, Collections.emptyList(), null);
+    }
+
+    /**
+     * Constructs a new Git version generator that checks only some paths for pending changes and
+     * remembers commit depths between builds.
+     *
+     * @param gitRoot The root directory of the Git repository
+     * @param abbrevLength The length to abbreviate commit hashes to
+     * @param versionPrefix The prefix to use for the version string
+     * @param versionFormat The format string for the version
+     * @param allowDirty Whether to allow dirty working directory
+     * @param sanitize Whether to sanitize the version string
+     * @param dirtyCheckPaths The paths, relative to the Git root, checked for pending changes; empty to check the whole working tree
+     * @param depthCacheDirectory The directory where commit depths are remembered, or {@code null} to always walk the whole history
+     */
+    public GitVersionGenerator(Path gitRoot, int abbrevLength, String versionPrefix, String versionFormat, boolean allowDirty, boolean sanitize, List<String> dirtyCheckPaths, Path depthCacheDirectory) {
         this.gitRoot = gitRoot;
+        this.dirtyCheckPaths = dirtyCheckPaths;
+        this.depthCacheDirectory = depthCacheDirectory;
         // TODO abbrevLength should be 2 minimum
         this.abbrevLength = abbrevLength;
         this.versionPrefix = versionPrefix;
@@ -56,8 +84,9 @@ public class GitVersionGenerator {
     public GitVersion generate() {
         try (Git git = Git.open(gitRoot.toFile())) {
             Repository repo = git.getRepository();
-            Status status = git.status().call();
-            checkGitStatus(status);
+            if (!allowDirty) {
+                checkGitStatus(status(git));
+            }
             ObjectId head = repo.resolve("HEAD");
             if (head == null) {
                 throw new RuntimeException("Cannot resolve HEAD for repository '" + gitRoot + "'");
@@ -88,6 +117,23 @@ public class GitVersionGenerator {
         return hash.replaceAll("[ab]", "$0_");
     }
 
+    /**
+     * Computes the status of the paths checked for pending changes.
+     * <p>
+     * The walk is limited to {@code dirtyCheckPaths} when any are given.
+     *
+     * @param git The Git repository
+     * @return The status
+     * @throws GitAPIException if there is an error computing the status
+     */
+    private Status status(Git git) throws GitAPIException {
+        StatusCommand command = git.status();
+        for (String path : dirtyCheckPaths) {
+            command.addPath(path);
+        }
+        return command.call();
+    }
+
     /**
      * Checks if the Git repository has pending changes.
      * <p>
@@ -98,7 +144,7 @@ public class GitVersionGenerator {
      * @throws RuntimeException if the repository has pending changes and allowDirty is false
      */
     private void checkGitStatus(Status status) {
-        if (!status.isClean() && !allowDirty) {
+        if (!status.isClean()) {
             StringBuilder str = new StringBuilder("Repository '" + gitRoot + "' has some pending changes:");
             if (!status.getUntracked().isEmpty()) {
                 str.append("\n- untracked files: ").append(status.getUntracked());
@@ -114,18 +160,64 @@ public class GitVersionGenerator {
      * Calculates the depth of a commit in the Git history.
      * <p>
      * This method counts the number of commits from the beginning of the repository
-     * to the specified commit.
+     * to the specified commit. When the depth of another commit is remembered, only the
+     * commits reachable from exactly one of the two are walked, since
+     * {@code depth(commit) = depth(base) - onlyBase + onlyCommit} whether or not one is
+     * an ancestor of the other.
      *
      * @param repository The Git repository
      * @param objectId The commit ID to calculate the depth for
      * @return The depth of the commit in the history
      * @throws IOException if there is an error accessing the repository
-     * @throws GitAPIException if there is an error executing Git commands
      */
-    private long commitDepth(Repository repository, ObjectId objectId) throws IOException, GitAPIException {
+    private long commitDepth(Repository repository, ObjectId objectId) throws IOException {
+        CommitDepthCache cache = depthCacheDirectory == null
+                ? null
+                : CommitDepthCache.forRepository(depthCacheDirectory, repository.getDirectory().toPath());
+        Map<String, Long> known = cache == null ? Collections.emptyMap() : cache.entries();
+        Long depth = known.get(objectId.name());
+        Iterator<Map.Entry<String, Long>> bases = known.entrySet().iterator();
+        while (depth == null && bases.hasNext()) {
+            Map.Entry<String, Long> base = bases.next();
+            if (!ObjectId.isId(base.getKey())) {
+                continue;
+            }
+            ObjectId baseId = ObjectId.fromString(base.getKey());
+            // the remembered commit may have been garbage collected, e.g. after a rebase
+            if (!repository.getObjectDatabase().has(baseId)) {
+                continue;
+            }
+            try {
+                depth = base.getValue() - countCommits(repository, baseId, objectId) + countCommits(repository, objectId, baseId);
+            } catch (MissingObjectException | IncorrectObjectTypeException e) {
+                depth = null;
+            }
+        }
+        if (depth == null) {
+            depth = countCommits(repository, objectId, null);
+        }
+        if (cache != null) {
+            cache.record(objectId.name(), depth);
+        }
+        return depth;
+    }
+
+    /**
+     * Counts the commits reachable from {@code start} but not from {@code exclude}.
+     *
+     * @param repository The Git repository
+     * @param start The commit to walk from
+     * @param exclude The commit whose history is not counted, or {@code null} to count the whole history
+     * @return The number of commits
+     * @throws IOException if there is an error accessing the repository
+     */
+    private static long countCommits(Repository repository, ObjectId start, ObjectId exclude) throws IOException {
         try (RevWalk walk = new RevWalk(repository)) {
             walk.setRetainBody(false);
-            walk.markStart(walk.parseCommit(objectId));
+            walk.markStart(walk.parseCommit(start));
+            if (exclude != null) {
+                walk.markUninteresting(walk.parseCommit(exclude));
+            }
             return StreamSupport.stream(walk.spliterator(), false).count();
         }
     }
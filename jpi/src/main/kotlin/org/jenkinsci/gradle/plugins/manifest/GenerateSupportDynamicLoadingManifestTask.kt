@@ -2,44 +2,44 @@ package org.jenkinsci.gradle.plugins.manifest
 
 import hudson.Extension
 import jenkins.YesNoMaybe
-import net.java.sezpoz.Index
 import org.gradle.api.DefaultTask
 import org.gradle.api.file.ConfigurableFileCollection
+import org.gradle.api.file.FileCollection
 import org.gradle.api.file.RegularFileProperty
+import org.gradle.api.tasks.CacheableTask
 import org.gradle.api.tasks.InputFiles
+import org.gradle.api.tasks.Internal
 import org.gradle.api.tasks.OutputFile
+import org.gradle.api.tasks.PathSensitive
+import org.gradle.api.tasks.PathSensitivity
 import org.gradle.api.tasks.TaskAction
-import java.net.URL
-import java.net.URLClassLoader
 import java.util.jar.Attributes
 import java.util.jar.Manifest
 
+@CacheableTask
 open class GenerateSupportDynamicLoadingManifestTask : DefaultTask() {
     companion object {
         const val NAME: String = "generateJenkinsSupportDynamicLoadingManifest"
+        private val INDEX_PATH: String = "META-INF/annotations/" + Extension::class.java.name
     }
 
-    @InputFiles
+    @Internal
     val classesDirs: ConfigurableFileCollection = project.objects.fileCollection()
 
+    /**
+     * The serialized `@Extension` indices within [classesDirs]; other compiled classes don't affect the result.
+     */
+    @get:InputFiles
+    @get:PathSensitive(PathSensitivity.RELATIVE)
+    val extensionIndices: FileCollection
+        get() = classesDirs.asFileTree.matching { include(INDEX_PATH) }
+
     @OutputFile
     val outputFile: RegularFileProperty = project.objects.fileProperty()
 
     @TaskAction
     fun generate() {
-        val classes: Array<URL> = classesDirs.asSequence()
-                .map { it.toURI().toURL() }
-                .toList()
-                .toTypedArray()
-        val classLoader = URLClassLoader(classes, javaClass.classLoader)
-        val extensions = Index.load(Extension::class.java, Object::class.java, classLoader)
-                .map { it.annotation().dynamicLoadable }
-
-        val supported: Boolean? = when {
-            extensions.any { it == YesNoMaybe.NO } -> false
-            extensions.any { it == YesNoMaybe.MAYBE } -> null
-            else -> true
-        }
+        val supported: Boolean? = supportsDynamicLoading()
 
         val manifest = Manifest()
         manifest.mainAttributes[Attributes.Name.MANIFEST_VERSION] = "1.0"
@@ -50,4 +50,19 @@ open class GenerateSupportDynamicLoadingManifestTask : DefaultTask() {
             manifest.write(it)
         }
     }
+
+    private fun supportsDynamicLoading(): Boolean? {
+        var sawMaybe = false
+        for (index in extensionIndices.files) {
+            SezpozIndexReader(index.inputStream().buffered()).use { reader ->
+                for (entry in reader.entries()) {
+                    when (entry.enumValue("dynamicLoadable") ?: YesNoMaybe.MAYBE.name) {
+                        YesNoMaybe.NO.name -> return false
+                        YesNoMaybe.MAYBE.name -> sawMaybe = true
+                    }
+                }
+            }
+        }
+        return if (sawMaybe) null else true
+    }
 }
@@ -0,0 +1,64 @@
+package org.jenkinsci.gradle.plugins.manifest
+
+import net.java.sezpoz.impl.SerAnnotatedElement
+import net.java.sezpoz.impl.SerEnumConst
+import java.io.EOFException
+import java.io.InputStream
+import java.io.InvalidClassException
+import java.io.ObjectInputStream
+import java.io.ObjectStreamClass
+
+/**
+ * Streams the entries of a serialized SezPoz index (`META-INF/annotations/<annotation>`) without loading
+ * the annotated classes or the annotation type.
+ *
+ * SezPoz stores every entry as a [SerAnnotatedElement] whose annotation values refer to enums, classes and
+ * nested annotations by name only, so deserializing those holders is enough to read the index. Only the
+ * SezPoz holder types and the JDK value types they contain are accepted; anything else fails the read
+ * instead of being instantiated.
+ */
+internal class SezpozIndexReader(input: InputStream) : ObjectInputStream(input) {
+    companion object {
+        private const val SEZPOZ_HOLDER_PREFIX = "net.java.sezpoz.impl.Ser"
+        private val ALLOWED_JDK_CLASSES = setOf(
+                "java.util.TreeMap",
+                "java.util.ArrayList",
+                "java.lang.Number",
+                "java.lang.Boolean",
+                "java.lang.Byte",
+                "java.lang.Character",
+                "java.lang.Short",
+                "java.lang.Integer",
+                "java.lang.Long",
+                "java.lang.Float",
+                "java.lang.Double",
+                "[Ljava.lang.Object;",
+        )
+    }
+
+    /**
+     * Reads the index lazily, one entry at a time, so callers can stop as soon as they have an answer.
+     */
+    fun entries(): Sequence<SerAnnotatedElement> = generateSequence {
+        try {
+            readObject() as SerAnnotatedElement?
+        } catch (_: EOFException) {
+            null
+        }
+    }
+
+    override fun resolveClass(desc: ObjectStreamClass): Class<*> {
+        val name = desc.name
+        return when {
+            name.startsWith(SEZPOZ_HOLDER_PREFIX) -> Class.forName(name, false, SerAnnotatedElement::class.java.classLoader)
+            name in ALLOWED_JDK_CLASSES -> super.resolveClass(desc)
+            else -> throw InvalidClassException(name, "Unexpected type in SezPoz index")
+        }
+    }
+}
+
+/**
+ * @return the name of the enum constant stored for [member], or `null` when the entry leaves it at its default
+ */
+internal fun SerAnnotatedElement.enumValue(member: String): String? =
+        (values[member] as? SerEnumConst)?.constName
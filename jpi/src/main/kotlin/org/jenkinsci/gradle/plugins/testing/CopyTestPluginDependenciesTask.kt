@@ -4,7 +4,7 @@ import org.gradle.api.DefaultTask
 import org.gradle.api.file.ConfigurableFileCollection
 import org.gradle.api.file.DirectoryProperty
 import org.gradle.api.file.FileCollection
-import org.gradle.api.file.FileSystemOperations
+import org.gradle.api.file.FileType
 import org.gradle.api.file.RegularFile
 import org.gradle.api.file.RegularFileProperty
 import org.gradle.api.provider.MapProperty
@@ -15,13 +15,21 @@ import org.gradle.api.tasks.Internal
 import org.gradle.api.tasks.OutputDirectory
 import org.gradle.api.tasks.TaskAction
 import org.gradle.kotlin.dsl.mapProperty
-import javax.inject.Inject
+import org.gradle.work.ChangeType
+import org.gradle.work.Incremental
+import org.gradle.work.InputChanges
+import java.io.File
+import java.io.IOException
+import java.nio.file.Files
+import java.nio.file.Path
+import java.nio.file.StandardCopyOption
 
-open class CopyTestPluginDependenciesTask @Inject constructor(private val fileSystemOperations: FileSystemOperations) : DefaultTask() {
+open class CopyTestPluginDependenciesTask : DefaultTask() {
     @Internal
     val files: ConfigurableFileCollection = project.objects.fileCollection()
 
     @InputFiles
+    @Incremental
     val plugins: FileCollection = files.filter { it.path.endsWith(".hpi") || it.path.endsWith(".jpi") }
 
     @Internal
@@ -37,24 +45,52 @@ open class CopyTestPluginDependenciesTask @Inject constructor(private val fileSy
     @Internal
     val index: Provider<RegularFile> = outputDir.file("index")
 
+    /**
+     * Hard-links (or, where the file system doesn't allow it, copies) the plugins into [outputDir].
+     *
+     * An incremental run only stages added or modified plugins again. Files no plugin maps to any longer
+     * are deleted and [index] is only rewritten when its content changes.
+     */
     @TaskAction
-    fun go() {
+    fun go(inputChanges: InputChanges) {
         val lookup: Map<String, String> = versionlessLookupFile.asFile.get().readLines().associate {
             val (version, versionless) = it.split("\t".toRegex(), 2)
             version to versionless
         }
-        fileSystemOperations.copy {
-            from(plugins)
-            into(outputDir)
-            rename {
-                lookup[it] ?: it
+        val dir = outputDir.get().asFile.toPath()
+        Files.createDirectories(dir)
+        val indexFile = index.get().asFile.toPath()
+        val staged = mutableSetOf(indexFile.fileName.toString())
+        plugins.forEach {
+            val name = lookup[it.name] ?: it.name
+            if (staged.add(name) && !inputChanges.isIncremental) {
+                stage(it, dir.resolve(name))
             }
         }
-        index.get().asFile.bufferedWriter().use { w ->
-            plugins.mapNotNull { lookup[it.name]?.substringBeforeLast(".jpi") }.forEach {
-                w.write(it)
-                w.write("\n")
-            }
+        if (inputChanges.isIncremental) {
+            inputChanges.getFileChanges(plugins)
+                .filter { it.changeType != ChangeType.REMOVED && it.fileType == FileType.FILE }
+                .forEach { stage(it.file, dir.resolve(lookup[it.file.name] ?: it.file.name)) }
+        }
+        Files.list(dir).use { files ->
+            files.filter { !staged.contains(it.fileName.toString()) }.forEach { Files.delete(it) }
+        }
+        val content = plugins.mapNotNull { lookup[it.name]?.substringBeforeLast(".jpi") }
+            .joinToString("") { it + "\n" }
+            .toByteArray(Charsets.UTF_8)
+        if (!Files.isRegularFile(indexFile) || !Files.readAllBytes(indexFile).contentEquals(content)) {
+            Files.write(indexFile, content)
+        }
+    }
+
+    private fun stage(file: File, target: Path) {
+        Files.deleteIfExists(target)
+        try {
+            Files.createLink(target, file.toPath())
+        } catch (e: IOException) {
+            Files.copy(file.toPath(), target, StandardCopyOption.REPLACE_EXISTING)
+        } catch (e: UnsupportedOperationException) {
+            Files.copy(file.toPath(), target, StandardCopyOption.REPLACE_EXISTING)
         }
     }
 }
@@ -0,0 +1,55 @@
+package org.jenkinsci.gradle.plugins.testing
+
+import org.gradle.api.artifacts.transform.CacheableTransform
+import org.gradle.api.artifacts.transform.InputArtifact
+import org.gradle.api.artifacts.transform.TransformAction
+import org.gradle.api.artifacts.transform.TransformOutputs
+import org.gradle.api.artifacts.transform.TransformParameters
+import org.gradle.api.file.FileSystemLocation
+import org.gradle.api.provider.Provider
+import org.gradle.api.tasks.PathSensitive
+import org.gradle.api.tasks.PathSensitivity
+import java.io.IOException
+import java.nio.file.Files
+import java.util.zip.ZipFile
+
+/**
+ * Explodes the Jenkins war into a `jenkins-for-test` directory, the layout jenkins-test-harness's `WarExploder`
+ * reuses instead of exploding the war itself.
+ *
+ * Gradle keeps the result in its transform cache keyed by the war's content, so it is shared by every module
+ * and test task using the same Jenkins version, and by later builds. The cache must not be written to, so the
+ * harness is pointed at a copy staged by [ExplodedJenkinsWarService] rather than at the result itself.
+ */
+@CacheableTransform
+abstract class ExplodeJenkinsWarTransform : TransformAction<TransformParameters.None> {
+    companion object {
+        /** Artifact type of the exploded war. */
+        const val ARTIFACT_TYPE: String = "exploded-jenkins-war"
+        /** Name of the exploded war's directory, the name the harness looks for. */
+        const val EXPLODED_DIR: String = "jenkins-for-test"
+    }
+
+    @get:InputArtifact
+    @get:PathSensitive(PathSensitivity.NONE)
+    abstract val war: Provider<FileSystemLocation>
+
+    override fun transform(outputs: TransformOutputs) {
+        val input = war.get().asFile
+        val dir = outputs.dir(EXPLODED_DIR).toPath().toAbsolutePath().normalize()
+        ZipFile(input).use { zip ->
+            for (entry in zip.entries()) {
+                val target = dir.resolve(entry.name).normalize()
+                if (!target.startsWith(dir)) {
+                    throw IOException("Entry ${entry.name} of $input is outside of the war")
+                }
+                if (entry.isDirectory) {
+                    Files.createDirectories(target)
+                } else {
+                    Files.createDirectories(target.parent)
+                    zip.getInputStream(entry).use { Files.copy(it, target) }
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,89 @@
+package org.jenkinsci.gradle.plugins.testing
+
+import org.gradle.api.GradleException
+import org.gradle.api.file.DirectoryProperty
+import org.gradle.api.logging.Logging
+import org.gradle.api.services.BuildService
+import org.gradle.api.services.BuildServiceParameters
+import java.io.File
+import java.io.IOException
+import java.nio.file.Files
+import java.nio.file.Path
+import java.nio.file.StandardCopyOption
+import java.security.MessageDigest
+
+/**
+ * Stages the Jenkins war exploded by [ExplodeJenkinsWarTransform] for jenkins-test-harness, once per build for
+ * all modules and test tasks.
+ *
+ * The harness's `WarExploder` reuses `<buildDirectory>/jenkins-for-test` only when its `.timestamp` file has the
+ * modification time of the war on the classpath, and otherwise deletes and explodes it again. The transform's
+ * output lives in Gradle's immutable cache, which neither the harness nor the build may write to. So the tree is
+ * hard-linked (or copied, where the file system doesn't allow links) into a directory under the root project's
+ * build directory, where the `.timestamp` file is a file of its own that is set to match the war. The harness
+ * only reads the other files, or deletes them to explode the war again, so the links never write through.
+ */
+abstract class ExplodedJenkinsWarService : BuildService<ExplodedJenkinsWarService.Params> {
+    companion object {
+        /** Name under which the service is registered with the build's shared services. */
+        const val NAME: String = "jpiExplodedJenkinsWar"
+        private const val TIMESTAMP: String = ".timestamp"
+        private val logger = Logging.getLogger(ExplodedJenkinsWarService::class.java)
+    }
+
+    interface Params : BuildServiceParameters {
+        /** Directory the exploded wars are staged in, one subdirectory per distinct war. */
+        val directory: DirectoryProperty
+    }
+
+    /**
+     * Stages [exploded], the transformed [war], unless an earlier call already did.
+     *
+     * @return the directory to pass to the harness as `buildDirectory`
+     */
+    @Synchronized
+    fun stage(war: File, exploded: File): File {
+        require(exploded.name == ExplodeJenkinsWarTransform.EXPLODED_DIR) { "Not an exploded Jenkins war: $exploded" }
+        // The transform's output path is unique to the war's content.
+        val key = war.nameWithoutExtension + "-" + sha256(exploded.absolutePath).take(16)
+        val buildDirectory = parameters.directory.get().asFile.resolve(key)
+        val target = buildDirectory.resolve(ExplodeJenkinsWarTransform.EXPLODED_DIR)
+        val timestamp = File(target, TIMESTAMP)
+        // The timestamp is written last, so a tree without one was left behind by an interrupted build.
+        if (!timestamp.isFile) {
+            logger.info("Staging exploded Jenkins war {} in {}", war, target)
+            target.deleteRecursively()
+            link(exploded.toPath(), target.toPath())
+            if (!timestamp.createNewFile()) {
+                throw GradleException("Cannot create $timestamp: the exploded Jenkins war already has one")
+            }
+        }
+        // The war on the classpath may have been downloaded again since the tree was staged.
+        if (timestamp.lastModified() != war.lastModified() && !timestamp.setLastModified(war.lastModified())) {
+            throw GradleException("Cannot set the modification time of $timestamp; jenkins-test-harness would explode the war again")
+        }
+        return buildDirectory
+    }
+
+    private fun link(source: Path, target: Path) {
+        Files.walk(source).use { paths ->
+            paths.forEach {
+                val destination = target.resolve(source.relativize(it).toString())
+                if (Files.isDirectory(it)) {
+                    Files.createDirectories(destination)
+                } else {
+                    try {
+                        Files.createLink(destination, it)
+                    } catch (e: IOException) {
+                        Files.copy(it, destination, StandardCopyOption.REPLACE_EXISTING)
+                    } catch (e: UnsupportedOperationException) {
+                        Files.copy(it, destination, StandardCopyOption.REPLACE_EXISTING)
+                    }
+                }
+            }
+        }
+    }
+
+    private fun sha256(value: String): String =
+        MessageDigest.getInstance("SHA-256").digest(value.toByteArray(Charsets.UTF_8)).joinToString("") { "%02x".format(it) }
+}
@@ -2,8 +2,13 @@ package org.jenkinsci.gradle.plugins.testing
 
 import org.gradle.api.Plugin
 import org.gradle.api.Project
+import org.gradle.api.artifacts.Configuration
+import org.gradle.api.artifacts.component.ModuleComponentIdentifier
+import org.gradle.api.artifacts.type.ArtifactTypeDefinition
+import org.gradle.api.artifacts.type.ArtifactTypeDefinition.ARTIFACT_TYPE_ATTRIBUTE
 import org.gradle.api.attributes.Usage
 import org.gradle.api.file.Directory
+import org.gradle.api.file.FileCollection
 import org.gradle.api.provider.Provider
 import org.gradle.api.tasks.SourceSetContainer
 import org.gradle.api.tasks.testing.Test
@@ -11,6 +16,7 @@ import org.gradle.kotlin.dsl.get
 import org.gradle.kotlin.dsl.getByType
 import org.gradle.kotlin.dsl.named
 import org.gradle.kotlin.dsl.register
+import org.jenkinsci.gradle.plugins.jpi.JenkinsWarRule
 import org.jenkinsci.gradle.plugins.jpi.internal.JpiExtensionBridge
 import org.jenkinsci.gradle.plugins.jpi.deployment.CreateVersionlessLookupTask
 import java.io.File
@@ -25,6 +31,43 @@ open class JpiTestingPlugin : Plugin<Project> {
                 systemProperty("buildDirectory", dir.get().asFile.absolutePath)
             }
         }
+
+        /**
+         * Like [useJenkinsRule], but points jenkins-test-harness at the copy of [jenkinsWar] exploded by
+         * [ExplodeJenkinsWarTransform] and staged by [explodedJenkinsWars], so that it doesn't explode the war
+         * again. Falls back to [dir] when there is no Jenkins war on the classpath.
+         */
+        fun Test.useJenkinsRule(
+            dir: Provider<Directory>,
+            jenkinsWar: FileCollection,
+            explodedJenkinsWar: FileCollection,
+            explodedJenkinsWars: Provider<ExplodedJenkinsWarService>,
+        ) {
+            usesService(explodedJenkinsWars)
+            doFirst {
+                systemProperty("java.awt.headless", "true")
+                val war = jenkinsWar.files.singleOrNull()
+                val exploded = explodedJenkinsWar.files.singleOrNull()
+                val buildDirectory = if (war == null || exploded == null) {
+                    dir.get().asFile
+                } else {
+                    explodedJenkinsWars.get().stage(war, exploded)
+                }
+                // set build directory for Jenkins test harness, JENKINS-26331
+                systemProperty("buildDirectory", buildDirectory.absolutePath)
+            }
+        }
+
+        private fun Configuration.jenkinsWar(artifactType: String? = null): FileCollection = incoming.artifactView {
+            componentFilter {
+                it is ModuleComponentIdentifier && "${it.group}:${it.module}" == JenkinsWarRule.JENKINS_WAR_COORDINATES
+            }
+            if (artifactType != null) {
+                attributes {
+                    attribute(ARTIFACT_TYPE_ATTRIBUTE, artifactType)
+                }
+            }
+        }.files
     }
     override fun apply(target: Project) {
         val declaredJenkinsWar = target.configurations.create("declaredJenkinsWar") {
@@ -32,6 +75,16 @@ open class JpiTestingPlugin : Plugin<Project> {
             isCanBeConsumed = false
             isCanBeResolved = true
         }
+        val explodedJenkinsWars = target.gradle.sharedServices.registerIfAbsent(ExplodedJenkinsWarService.NAME, ExplodedJenkinsWarService::class.java) {
+            parameters.directory.set(target.rootProject.layout.buildDirectory.dir("jpi-plugin/jenkins-war"))
+        }
+        // war-for-test.jar for Jenkins versions before 2.64
+        for (warType in listOf("war", ArtifactTypeDefinition.JAR_TYPE)) {
+            target.dependencies.registerTransform(ExplodeJenkinsWarTransform::class.java) {
+                from.attribute(ARTIFACT_TYPE_ATTRIBUTE, warType)
+                to.attribute(ARTIFACT_TYPE_ATTRIBUTE, ExplodeJenkinsWarTransform.ARTIFACT_TYPE)
+            }
+        }
         val javapoet = target.dependencies.create("com.squareup:javapoet:1.13.0")
         val jenkinsTestHarness = target.dependencies.create("org.jenkins-ci.main:jenkins-test-harness:2112.ve584e0edc63b_")
         val jaxBPlugin = target.dependencies.create("io.jenkins.plugins:jaxb:2.3.9-1")
@@ -100,7 +153,8 @@ open class JpiTestingPlugin : Plugin<Project> {
             dependsOn(generateJenkinsTests)
         }
         val generatedJenkinsTest = target.tasks.register<Test>("generatedJenkinsTest") {
-            useJenkinsRule(generatedTestTaskDir)
+            val runtimeClasspath = project.configurations.getByName(generatedSourceSet.runtimeClasspathConfigurationName)
+            useJenkinsRule(generatedTestTaskDir, runtimeClasspath.jenkinsWar(), runtimeClasspath.jenkinsWar(ExplodeJenkinsWarTransform.ARTIFACT_TYPE), explodedJenkinsWars)
             inputs.files(copyPluginsForGeneratedJenkinsTest)
             group = "Verification"
             description = "Runs tests from org.jvnet.hudson.test.PluginAutomaticTestBuilder"
@@ -125,7 +179,8 @@ open class JpiTestingPlugin : Plugin<Project> {
             outputDir.set(testPluginsDir)
         }
         target.tasks.named<Test>("test").configure {
-            useJenkinsRule(testTaskDir)
+            val runtimeClasspath = project.configurations.getByName("testRuntimeClasspath")
+            useJenkinsRule(testTaskDir, runtimeClasspath.jenkinsWar(), runtimeClasspath.jenkinsWar(ExplodeJenkinsWarTransform.ARTIFACT_TYPE), explodedJenkinsWars)
             inputs.files(copyPluginsForTest)
             classpath += project.files(testPluginsDir.get().asFile.parentFile)
         }
@@ -298,7 +298,7 @@ class JpiIntegrationSpec extends IntegrationSpec {
     }
 
     @Unroll
-    def 'set buildDirectory system property in #task'(String task, String srcDir, String expectedDir) {
+    def 'set buildDirectory system property in #task to shared exploded war'(String task, String srcDir) {
         given:
         build << """\
             repositories { mavenCentral() }
@@ -321,13 +321,67 @@ class JpiIntegrationSpec extends IntegrationSpec {
         then:
         def actual = new Properties()
         actual.load(new FileReader(actualFile))
-        def expected = inProjectDir(expectedDir).toPath().toRealPath().toString()
-        actual.get('buildDirectory') == expected
+        def buildDirectory = new File(actual.get('buildDirectory') as String)
+        buildDirectory.toPath().startsWith(inProjectDir('build/jpi-plugin/jenkins-war').toPath().toRealPath())
+        new File(buildDirectory, 'jenkins-for-test/.timestamp').isFile()
+        new File(buildDirectory, 'jenkins-for-test/WEB-INF/web.xml').isFile()
 
         where:
-        task                   | srcDir               | expectedDir
-        'test'                 | 'src/test/java'      | 'build/jpi-plugin/test'
-        'generatedJenkinsTest' | 'build/inject-tests' | 'build/jpi-plugin/generatedJenkinsTest'
+        task                   | srcDir
+        'test'                 | 'src/test/java'
+        'generatedJenkinsTest' | 'build/inject-tests'
+    }
+
+    def 'stage the exploded war once for all modules and builds'() {
+        given:
+        def modules = ['one', 'two']
+        def propertyFiles = modules.collect { module ->
+            settings << "\ninclude '$module'"
+            def dir = inProjectDir(module)
+            dir.mkdirs()
+            new File(dir, 'build.gradle') << """\
+                plugins {
+                    id 'org.jenkins-ci.jpi'
+                }
+                repositories { mavenCentral() }
+                dependencies {
+                    testImplementation 'junit:junit:4.12'
+                }
+                jenkinsPlugin {
+                    jenkinsVersion = '${TestSupport.RECENT_JENKINS_VERSION}'
+                }
+                """.stripIndent()
+            def propertyFile = touchInProjectDir("${module}.properties")
+            TestSupport.TEST_THAT_WRITES_SYSTEM_PROPERTIES_TO.apply(propertyFile)
+                    .writeTo(new File(dir, 'src/test/java'))
+            propertyFile
+        }
+
+        when:
+        def first = gradleRunner()
+                .withArguments(':one:test', ':two:test', '--info')
+                .build()
+
+        then:
+        def buildDirectories = propertyFiles.collect {
+            def actual = new Properties()
+            it.withReader { actual.load(it) }
+            new File(actual.get('buildDirectory') as String)
+        }
+        buildDirectories.unique(false).size() == 1
+        def timestamp = new File(buildDirectories[0], 'jenkins-for-test/.timestamp')
+        timestamp.isFile()
+        first.output.count('Staging exploded Jenkins war') == 1
+
+        when:
+        def stagedAt = timestamp.lastModified()
+        def second = gradleRunner()
+                .withArguments(':one:test', ':two:test', '--info', '--rerun-tasks')
+                .build()
+
+        then:
+        !second.output.contains('Staging exploded Jenkins war')
+        timestamp.lastModified() == stagedAt
     }
 
     @Unroll
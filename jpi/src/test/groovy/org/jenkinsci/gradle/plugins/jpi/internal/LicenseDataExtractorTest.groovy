@@ -84,4 +84,22 @@ class LicenseDataExtractorTest extends Specification {
         then:
         actual == expected
     }
+
+    def 'should honour encoding declaration when extracting from stream'() {
+        given:
+        def pom = """\
+            <?xml version="1.0" encoding="ISO-8859-1"?>
+            <project>
+              <name>Caf\u00e9</name>
+              <url>http://example.org</url>
+              <description>Fa\u00e7ade</description>
+            </project>
+            """.stripIndent()
+
+        when:
+        def actual = extractor.extractFrom(new ByteArrayInputStream(pom.getBytes('ISO-8859-1')))
+
+        then:
+        actual == new LicenseData('Caf\u00e9', 'Fa\u00e7ade', 'http://example.org', [] as Set)
+    }
 }
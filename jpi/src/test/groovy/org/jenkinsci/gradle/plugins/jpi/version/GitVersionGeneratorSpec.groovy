@@ -1,6 +1,7 @@
 package org.jenkinsci.gradle.plugins.jpi.version
 
 import org.eclipse.jgit.api.Git
+import org.eclipse.jgit.api.ResetCommand
 import org.eclipse.jgit.lib.PersonIdent
 import spock.lang.Ignore
 import spock.lang.Specification
@@ -104,6 +105,27 @@ class GitVersionGeneratorSpec extends Specification {
         isGitHash(version.fullHash)
     }
 
+    def 'ignores pending changes outside the checked paths'() {
+        given:
+        def gitRoot = generateGitRepo()
+        Files.createDirectories(gitRoot.resolve('docs'))
+        Files.createFile(gitRoot.resolve('docs/untracked')).text = 'bar'
+
+        when:
+        def version = new GitVersionGenerator(gitRoot, 12, '', '%d.%s', false, false, ['somefile'], null).generate()
+
+        then:
+        version.abbreviatedHash ==~ /3\.\w{12}/
+
+        when:
+        gitRoot.resolve('somefile').text = 'foo!'
+        new GitVersionGenerator(gitRoot, 12, '', '%d.%s', false, false, ['somefile'], null).generate()
+
+        then:
+        def exception = thrown(RuntimeException)
+        exception.message == "Repository '${gitRoot}' has some pending changes:\n- uncommitted changes: [somefile]"
+    }
+
     def 'can sanitize version from git'() {
         given:
         def gitRoot = generateGitRepo()
@@ -115,6 +137,31 @@ class GitVersionGeneratorSpec extends Specification {
         !(version ==~ /ab-([ab][^_])/)
     }
 
+    def 'counts only new commits from a remembered depth'() {
+        given:
+        def gitRoot = generateGitRepo()
+        def cacheDir = Files.createTempDirectory('git-depth-cache')
+        def git = Git.open(gitRoot.toFile())
+        def ident = new PersonIdent('Anne', 'Onyme')
+
+        when:
+        def first = new GitVersionGenerator(gitRoot, 12, '', '%d.%s', false, false, [], cacheDir).generate()
+        commit(git, ident, 'Fourth commit')
+        def second = new GitVersionGenerator(gitRoot, 12, '', '%d.%s', false, false, [], cacheDir).generate()
+        git.reset().setMode(ResetCommand.ResetType.HARD).setRef('HEAD~2').call()
+        def third = new GitVersionGenerator(gitRoot, 12, '', '%d.%s', false, false, [], cacheDir).generate()
+
+        then:
+        first.abbreviatedHash ==~ /3\.\w{12}/
+        second.abbreviatedHash ==~ /4\.\w{12}/
+        third.abbreviatedHash ==~ /2\.\w{12}/
+        Files.readAllLines(Files.list(cacheDir.resolve(CommitDepthCache.FORMAT_VERSION)).findFirst().get()) == [
+                "${third.fullHash} 2",
+                "${second.fullHash} 4",
+                "${first.fullHash} 3",
+        ]*.toString()
+    }
+
     def 'sanitize'() {
         when:
         def sanitized = GitVersionGenerator.sanitize('9a80981b849e')
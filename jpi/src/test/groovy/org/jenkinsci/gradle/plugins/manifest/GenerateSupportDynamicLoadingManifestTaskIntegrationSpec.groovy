@@ -166,6 +166,34 @@ class GenerateSupportDynamicLoadingManifestTaskIntegrationSpec extends Integrati
         actualManifest() == expected
     }
 
+    def 'should stay up-to-date when classes without extensions change'() {
+        given:
+        def plugin = TypeSpec.classBuilder('TestPlugin')
+                .addModifiers(Modifier.PUBLIC)
+                .addAnnotation(AnnotationSpec.builder(Extension)
+                        .addMember('dynamicLoadable', '$T.$L', YesNoMaybe, YesNoMaybe.NO.name())
+                        .build())
+                .build()
+        JavaFile.builder('my.example', plugin).build().writeTo(srcMainJava)
+        gradleRunner()
+                .withArguments(GenerateSupportDynamicLoadingManifestTask.NAME)
+                .build()
+
+        when:
+        def helper = TypeSpec.classBuilder('Helper')
+                .addModifiers(Modifier.PUBLIC)
+                .build()
+        JavaFile.builder('my.example', helper).build().writeTo(srcMainJava)
+        def result = gradleRunner()
+                .withArguments(GenerateSupportDynamicLoadingManifestTask.NAME)
+                .build()
+
+        then:
+        result.task(':compileJava').outcome == TaskOutcome.SUCCESS
+        result.task(taskPath).outcome == TaskOutcome.UP_TO_DATE
+        actualManifest().mainAttributes.getValue('Support-Dynamic-Loading') == 'false'
+    }
+
     def 'should support configuration cache'() {
         given:
         def plugin = TypeSpec.classBuilder('TestPlugin')
@@ -141,6 +141,34 @@ class CopyTestPluginDependenciesTaskIntegrationSpec extends IntegrationSpec {
         'testRuntimeOnly'    | [ANT_1_10]         | []                 | 'removed plugin'  | SUCCESS      | ['ui-samples-plugin']
     }
 
+    def 'should delete plugins that are no longer dependencies'() {
+        given:
+        def made = template.make([
+                'jenkinsVersion': TestSupport.RECENT_JENKINS_VERSION,
+                'dependencies'  : [['configuration': 'implementation', 'coordinate': q(ANT_1_10)]],
+        ])
+        build.withWriter { made.writeTo(it) }
+        gradleRunner()
+                .withArguments(taskPath)
+                .build()
+
+        when:
+        def remade = template.make([
+                'jenkinsVersion': TestSupport.RECENT_JENKINS_VERSION,
+                'dependencies'  : [],
+        ])
+        build.withWriter { remade.writeTo(it) }
+        def result = gradleRunner()
+                .withArguments(taskPath)
+                .build()
+
+        then:
+        result.task(taskPath).outcome == SUCCESS
+        def dir = 'build/jpi-plugin/test/test-dependencies'
+        inProjectDir("$dir/index").readLines() == ['ui-samples-plugin']
+        inProjectDir(dir).list().toList().toSorted() == ['index', 'ui-samples-plugin.jpi']
+    }
+
     def 'should work with configuration cache'() {
         given:
         def made = template.make([
@@ -13,4 +13,6 @@ public interface ArtifactType extends Named {
     String PLUGIN_JAR = "pluginJar";
     /** Default artifact type. */
     String DEFAULT = "default";
+    /** Artifact type for the {@code .hpl} of a Jenkins plugin project dependency. */
+    String HPL = "hpl";
 }
@@ -11,7 +11,8 @@ import javax.inject.Inject;
  * dependencies without requesting {@link ArtifactType#ARTIFACT_TYPE_ATTRIBUTE}, which otherwise
  * leaves {@link HpiMetadataRule}'s "runtime" and "defaultRuntime" variants ambiguous. When no
  * value is requested, prefer the plain jar variant, matching what jenkinsPlugin-owned
- * configurations already request explicitly.
+ * configurations already request explicitly, and otherwise the plugin archive over the
+ * {@code .hpl} a Jenkins plugin project also offers.
  */
 abstract class ArtifactTypeDisambiguationRule implements AttributeDisambiguationRule<ArtifactType> {
 
@@ -27,6 +28,9 @@ abstract class ArtifactTypeDisambiguationRule implements AttributeDisambiguation
         details.getCandidateValues().stream()
                 .filter(candidate -> ArtifactType.PLUGIN_JAR.equals(candidate.getName()))
                 .findFirst()
+                .or(() -> details.getCandidateValues().stream()
+                        .filter(candidate -> ArtifactType.DEFAULT.equals(candidate.getName()))
+                        .findFirst())
                 .ifPresent(details::closestMatch);
     }
 }
@@ -2,17 +2,15 @@ package org.jenkinsci.gradle.plugins.jpi2;
 
 import org.gradle.api.DefaultTask;
 import org.gradle.api.GradleException;
-import org.gradle.api.file.ConfigurableFileCollection;
 import org.gradle.api.file.RegularFileProperty;
 import org.gradle.api.tasks.CacheableTask;
-import org.gradle.api.tasks.InputFiles;
+import org.gradle.api.tasks.InputFile;
 import org.gradle.api.tasks.OutputFile;
 import org.gradle.api.tasks.PathSensitive;
 import org.gradle.api.tasks.PathSensitivity;
 import org.gradle.api.tasks.TaskAction;
 
 import java.io.BufferedWriter;
-import java.io.File;
 import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
@@ -23,7 +21,6 @@ import java.util.Set;
 import static java.nio.charset.StandardCharsets.UTF_8;
 import static java.nio.file.StandardOpenOption.CREATE;
 import static java.nio.file.StandardOpenOption.TRUNCATE_EXISTING;
-import static java.util.stream.Collectors.joining;
 
 /**
  * Verifies that multiple compile outputs don't produce conflicting Sezpoz annotation index files
@@ -35,13 +32,13 @@ public abstract class CheckOverlappingSourcesTask extends DefaultTask {
     /** Standard name under which this task is registered. */
     public static final String NAME = "checkOverlappingSources";
 
-    /** @return all compiled-class directories to inspect for annotation index and plugin service files */
-    @InputFiles
-    @PathSensitive(PathSensitivity.RELATIVE)
-    public abstract ConfigurableFileCollection getClassesDirs();
+    /** @return index of the compiled outputs, written by {@link IndexCompiledMetadataTask} */
+    @InputFile
+    @PathSensitive(PathSensitivity.NONE)
+    public abstract RegularFileProperty getMetadataIndex();
 
     /**
-     * Stamp file listing discovered metadata paths; used by Gradle for up-to-date checks
+     * Stamp file listing discovered metadata paths, relative to the project directory; used by Gradle for up-to-date checks
      * rather than consumed downstream.
      *
      * @return the output stamp file
@@ -50,46 +47,38 @@ public abstract class CheckOverlappingSourcesTask extends DefaultTask {
     public abstract RegularFileProperty getOutputFile();
 
     /**
-     * Scans each classes directory and fails if duplicate Sezpoz annotation indices
-     * or multiple {@code hudson.Plugin} service files are found.
+     * Fails if the metadata index lists the same Sezpoz annotation index file in more than one classes
+     * directory, or {@code hudson.Plugin} service files in more than one. Resource directories are not checked.
      */
     @TaskAction
     public void validate() {
-        var discovered = new ArrayList<File>();
+        CompiledMetadataIndex index;
+        try {
+            index = CompiledMetadataIndex.read(getMetadataIndex().get().getAsFile().toPath());
+        } catch (IOException e) {
+            throw new GradleException("Failed to read " + getMetadataIndex().get().getAsFile(), e);
+        }
+
+        var discovered = new ArrayList<String>();
         Set<String> existingSezpozFiles = new HashSet<>();
-        for (File classDir : getClassesDirs().getFiles()) {
-            File annotationsDir = new File(classDir, "META-INF/annotations");
-            String[] files = annotationsDir.list();
-            if (files == null) {
+        for (var annotationIndex : index.annotationIndices()) {
+            if (!index.isClassesOwner(annotationIndex.owner())) {
                 continue;
             }
-            for (String fileName : files) {
-                File path = new File(annotationsDir, fileName);
-                discovered.add(path);
-                if (!path.isFile()) {
-                    continue;
-                }
-                if (!existingSezpozFiles.add(fileName)) {
-                    throw new GradleException("Found overlapping Sezpoz file: " + fileName + ". Use joint compilation!");
-                }
-            }
-        }
-
-        var pluginImpls = new ArrayList<File>();
-        for (File classDir : getClassesDirs().getFiles()) {
-            File plugin = new File(classDir, "META-INF/services/hudson.Plugin");
-            if (plugin.exists()) {
-                pluginImpls.add(plugin);
+            discovered.add(annotationIndex.path());
+            if (!existingSezpozFiles.add(annotationIndex.fileName())) {
+                throw new GradleException("Found overlapping Sezpoz file: " + annotationIndex.fileName() + ". Use joint compilation!");
             }
         }
 
+        var pluginImpls = index.plugins().stream()
+                .filter(plugin -> index.isClassesOwner(plugin.owner()))
+                .map(CompiledMetadataIndex.PluginImplementation::path)
+                .toList();
         if (pluginImpls.size() > 1) {
-            String implementations = pluginImpls.stream()
-                    .map(File::getPath)
-                    .collect(joining(", "));
             throw new GradleException(
                     "Found multiple directories containing Jenkins plugin implementations ('"
-                            + implementations
+                            + String.join(", ", pluginImpls)
                             + "'). Use joint compilation to work around this problem."
             );
         }
@@ -99,8 +88,8 @@ public abstract class CheckOverlappingSourcesTask extends DefaultTask {
         try {
             Files.createDirectories(destination.getParent());
             try (BufferedWriter writer = Files.newBufferedWriter(destination, UTF_8, CREATE, TRUNCATE_EXISTING)) {
-                for (File file : discovered) {
-                    writer.append(file.getAbsolutePath()).append('\n');
+                for (String path : discovered) {
+                    writer.append(path).append('\n');
                 }
             }
         } catch (IOException e) {
@@ -0,0 +1,196 @@
+package org.jenkinsci.gradle.plugins.jpi2;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+/**
+ * Jenkins metadata found in compiled outputs: the Sezpoz annotation index files together with the output
+ * directory that owns each of them, the {@code @Extension} entries with their {@code dynamicLoadable}
+ * value, the declared {@code hudson.Plugin} implementations, and which of the output directories hold
+ * compiled classes rather than resources.
+ *
+ * <p>Written by {@link IndexCompiledMetadataTask} as a tab-separated text file so the tasks that need the
+ * metadata share a single walk of the output directories. Owners are recorded relative to the project
+ * directory, which keeps the file identical wherever the project is checked out.
+ */
+record CompiledMetadataIndex(List<AnnotationIndex> annotationIndices, List<ExtensionEntry> extensions,
+                             List<PluginImplementation> plugins, List<String> classesOwners) {
+    static final String ANNOTATIONS_DIR = "META-INF/annotations";
+    static final String EXTENSION_INDEX = ANNOTATIONS_DIR + "/hudson.Extension.txt";
+    static final String PLUGIN_SERVICE = "META-INF/services/hudson.Plugin";
+
+    private static final String HEADER = "# jpi2 compiled metadata index v2";
+    private static final String ANNOTATION = "annotation";
+    private static final String EXTENSION = "extension";
+    private static final String PLUGIN = "plugin";
+    private static final String CLASSES = "classes";
+
+    /**
+     * A Sezpoz index file.
+     *
+     * @param owner output directory containing the file
+     * @param fileName name of the file within {@value #ANNOTATIONS_DIR}
+     */
+    record AnnotationIndex(String owner, String fileName) {
+        /** @return the file's path, starting with its owner */
+        String path() {
+            return owner + "/" + ANNOTATIONS_DIR + "/" + fileName;
+        }
+    }
+
+    /**
+     * An {@code @Extension} entry.
+     *
+     * @param dynamicLoadable {@code YES}, {@code NO} or {@code MAYBE}; {@code MAYBE} when the entry doesn't say
+     */
+    record ExtensionEntry(String className, String dynamicLoadable) {
+        static ExtensionEntry parse(String line) {
+            int brace = line.indexOf('{');
+            var className = (brace < 0 ? line : line.substring(0, brace)).trim();
+            int marker = line.indexOf("dynamicLoadable=");
+            if (marker < 0) {
+                return new ExtensionEntry(className, "MAYBE");
+            }
+            // SezPoz currently emits entries like `com.example.Extension{dynamicLoadable=YES}`.
+            int start = marker + "dynamicLoadable=".length();
+            int end = line.indexOf('}', start);
+            return new ExtensionEntry(className, line.substring(start, end < 0 ? line.length() : end).trim());
+        }
+    }
+
+    /**
+     * A {@code hudson.Plugin} service declaration.
+     *
+     * @param owner output directory containing the service file
+     * @param implementation declared implementation class; empty when the file names none
+     */
+    record PluginImplementation(String owner, String implementation) {
+        /** @return the service file's path, starting with its owner */
+        String path() {
+            return owner + "/" + PLUGIN_SERVICE;
+        }
+    }
+
+    /**
+     * Scans each of {@code roots} once for Jenkins metadata. Roots are visited in the given order and files
+     * within a root in name order, so the same outputs always produce the same index.
+     *
+     * @param classesDirectories those of {@code roots} that hold compiled classes
+     * @param projectDirectory directory owners are recorded relative to
+     */
+    static CompiledMetadataIndex scan(Iterable<File> roots, Set<File> classesDirectories, File projectDirectory) throws IOException {
+        var annotationIndices = new ArrayList<AnnotationIndex>();
+        var extensions = new ArrayList<ExtensionEntry>();
+        var plugins = new ArrayList<PluginImplementation>();
+        var classesOwners = new ArrayList<String>();
+        for (var root : roots) {
+            var owner = owner(root, projectDirectory);
+            if (classesDirectories.contains(root)) {
+                classesOwners.add(owner);
+            }
+            var names = new File(root, ANNOTATIONS_DIR).list();
+            if (names != null) {
+                Arrays.sort(names);
+                for (var name : names) {
+                    var file = new File(root, ANNOTATIONS_DIR + "/" + name);
+                    if (file.isFile()) {
+                        annotationIndices.add(new AnnotationIndex(owner, name));
+                    }
+                }
+            }
+            var extensionIndex = new File(root, EXTENSION_INDEX);
+            if (extensionIndex.isFile()) {
+                for (var line : metadataLines(extensionIndex.toPath())) {
+                    extensions.add(ExtensionEntry.parse(line));
+                }
+            }
+            var pluginService = new File(root, PLUGIN_SERVICE);
+            if (pluginService.exists()) {
+                var implementation = pluginService.isFile()
+                        ? metadataLines(pluginService.toPath()).stream().findFirst().orElse("")
+                        : "";
+                plugins.add(new PluginImplementation(owner, implementation));
+            }
+        }
+        return new CompiledMetadataIndex(annotationIndices, extensions, plugins, classesOwners);
+    }
+
+    /** @return whether {@code owner} is an output directory holding compiled classes */
+    boolean isClassesOwner(String owner) {
+        return classesOwners.contains(owner);
+    }
+
+    /** Writes this index to {@code destination}, replacing any existing content. */
+    void write(Path destination) throws IOException {
+        Files.createDirectories(destination.getParent());
+        try (BufferedWriter writer = Files.newBufferedWriter(destination, UTF_8)) {
+            writer.append(HEADER).append('\n');
+            for (var index : annotationIndices) {
+                writer.append(ANNOTATION).append('\t').append(index.owner()).append('\t').append(index.fileName()).append('\n');
+            }
+            for (var extension : extensions) {
+                writer.append(EXTENSION).append('\t').append(extension.className()).append('\t').append(extension.dynamicLoadable()).append('\n');
+            }
+            for (var plugin : plugins) {
+                writer.append(PLUGIN).append('\t').append(plugin.owner()).append('\t').append(plugin.implementation()).append('\n');
+            }
+            for (var owner : classesOwners) {
+                writer.append(CLASSES).append('\t').append(owner).append('\t').append('\n');
+            }
+        }
+    }
+
+    /**
+     * Reads an index written by {@link #write(Path)}.
+     *
+     * @throws IllegalStateException when the file is not such an index
+     */
+    static CompiledMetadataIndex read(Path source) throws IOException {
+        var lines = Files.readAllLines(source, UTF_8);
+        if (lines.isEmpty() || !HEADER.equals(lines.get(0))) {
+            throw new IllegalStateException("Not a compiled metadata index: " + source);
+        }
+        var annotationIndices = new ArrayList<AnnotationIndex>();
+        var extensions = new ArrayList<ExtensionEntry>();
+        var plugins = new ArrayList<PluginImplementation>();
+        var classesOwners = new ArrayList<String>();
+        for (var line : lines.subList(1, lines.size())) {
+            var fields = line.split("\t", -1);
+            if (fields.length != 3) {
+                throw new IllegalStateException("Malformed compiled metadata index entry in " + source + ": " + line);
+            }
+            switch (fields[0]) {
+                case ANNOTATION -> annotationIndices.add(new AnnotationIndex(fields[1], fields[2]));
+                case EXTENSION -> extensions.add(new ExtensionEntry(fields[1], fields[2]));
+                case PLUGIN -> plugins.add(new PluginImplementation(fields[1], fields[2]));
+                case CLASSES -> classesOwners.add(fields[1]);
+                default -> throw new IllegalStateException("Unknown compiled metadata index entry in " + source + ": " + line);
+            }
+        }
+        return new CompiledMetadataIndex(annotationIndices, extensions, plugins, classesOwners);
+    }
+
+    private static List<String> metadataLines(Path file) throws IOException {
+        return Files.readAllLines(file).stream()
+                .map(String::trim)
+                .filter(line -> !line.isEmpty())
+                .filter(line -> !line.startsWith("#"))
+                .toList();
+    }
+
+    private static String owner(File root, File projectDirectory) {
+        var rootPath = root.toPath().toAbsolutePath().normalize();
+        var projectPath = projectDirectory.toPath().toAbsolutePath().normalize();
+        var owner = rootPath.startsWith(projectPath) ? projectPath.relativize(rootPath) : rootPath;
+        return owner.toString().replace(File.separatorChar, '/');
+    }
+}
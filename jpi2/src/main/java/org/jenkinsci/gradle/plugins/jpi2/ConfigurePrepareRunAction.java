@@ -1,49 +1,54 @@
 package org.jenkinsci.gradle.plugins.jpi2;
 
 import org.gradle.api.Action;
-import org.gradle.api.artifacts.Configuration;
-import org.gradle.api.artifacts.ResolvedArtifact;
+import org.gradle.api.artifacts.ArtifactCollection;
+import org.gradle.api.file.CopySpec;
 import org.gradle.api.provider.Provider;
 import org.gradle.api.tasks.Sync;
 import org.gradle.api.tasks.TaskProvider;
 import org.jetbrains.annotations.NotNull;
 
-import java.util.Comparator;
-
 /**
  * Action to configure the prepareRun task.
  */
+@SuppressWarnings({
+        "Convert2Lambda", // Gradle doesn't like lambdas
+})
 class ConfigurePrepareRunAction implements Action<Sync> {
     private static final String JPI_EXTENSION = "jpi";
 
     private final TaskProvider<GenerateHplTask> hplTaskProvider;
     private final Provider<String> workDir;
-    private final Configuration defaultRuntime;
+    private final ArtifactCollection pluginArtifacts;
+    private final ArtifactCollection projectDependencyHpls;
 
+    /**
+     * @param pluginArtifacts       the defaultRuntime artifacts, read only when the task runs
+     * @param projectDependencyHpls the {@code .hpl} files offered by project dependencies, which replace their
+     *                              archives
+     */
     ConfigurePrepareRunAction(TaskProvider<GenerateHplTask> hplTaskProvider,
                               Provider<String> workDir,
-                              Configuration defaultRuntime) {
+                              ArtifactCollection pluginArtifacts,
+                              ArtifactCollection projectDependencyHpls) {
         this.hplTaskProvider = hplTaskProvider;
         this.workDir = workDir;
-        this.defaultRuntime = defaultRuntime;
+        this.pluginArtifacts = pluginArtifacts;
+        this.projectDependencyHpls = projectDependencyHpls;
     }
 
     @Override
     public void execute(@NotNull Sync sync) {
         sync.into(workDir.map(it -> it + "/plugins"));
         sync.from(hplTaskProvider);
+        sync.from(PluginArtifactFiles.hpls(projectDependencyHpls));
 
-        defaultRuntime.getResolvedConfiguration().getResolvedArtifacts()
-                .stream()
-                .filter(artifact -> HpiMetadataRule.PLUGIN_PACKAGINGS.contains(artifact.getExtension()))
-                .sorted(Comparator.comparing(ResolvedArtifact::getName))
-                .forEach(artifact ->
-                        sync.from(artifact.getFile())
-                                .rename(new DropVersionTransformer(
-                                        artifact.getModuleVersion().getId().getName(),
-                                        artifact.getModuleVersion().getId().getVersion(),
-                                        JPI_EXTENSION
-                                ))
-                );
+        var stagedNames = PluginArtifactFiles.stagedNames(pluginArtifacts, JPI_EXTENSION);
+        sync.from(PluginArtifactFiles.archivesWithoutHpl(pluginArtifacts, projectDependencyHpls), new Action<>() {
+            @Override
+            public void execute(@NotNull CopySpec spec) {
+                spec.rename(stagedNames);
+            }
+        });
     }
 }
@@ -1,60 +1,60 @@
 package org.jenkinsci.gradle.plugins.jpi2;
 
 import org.gradle.api.Action;
-import org.gradle.api.artifacts.Configuration;
+import org.gradle.api.artifacts.ArtifactCollection;
+import org.gradle.api.file.CopySpec;
 import org.gradle.api.provider.Provider;
-import org.gradle.api.artifacts.ResolvedArtifact;
 import org.gradle.api.tasks.Sync;
 import org.gradle.api.tasks.TaskProvider;
+import org.gradle.api.tasks.bundling.AbstractArchiveTask;
 import org.jetbrains.annotations.NotNull;
 
-import java.util.Comparator;
-
 /**
  * Action to configure the prepareServer task.
  */
+@SuppressWarnings({
+        "Convert2Lambda", // Gradle doesn't like lambdas
+})
 class ConfigurePrepareServerAction implements Action<Sync> {
-    private final TaskProvider<?> jpiTaskProvider;
+    private final TaskProvider<? extends AbstractArchiveTask> jpiTaskProvider;
     private final Provider<String> workDir;
-    private final Configuration defaultRuntime;
+    private final ArtifactCollection pluginArtifacts;
     private final Provider<String> projectName;
-    private final Provider<String> projectVersion;
     private final Provider<String> targetExtension;
 
-    public ConfigurePrepareServerAction(TaskProvider<?> jpiTaskProvider, Provider<String> workDir, Configuration defaultRuntime,
-                                       Provider<String> projectName, Provider<String> projectVersion,
-                                       Provider<String> targetExtension) {
+    /**
+     * @param pluginArtifacts the defaultRuntime artifacts, read only when the task runs
+     */
+    public ConfigurePrepareServerAction(TaskProvider<? extends AbstractArchiveTask> jpiTaskProvider, Provider<String> workDir,
+                                        ArtifactCollection pluginArtifacts, Provider<String> projectName,
+                                        Provider<String> targetExtension) {
         this.jpiTaskProvider = jpiTaskProvider;
         this.workDir = workDir;
-        this.defaultRuntime = defaultRuntime;
+        this.pluginArtifacts = pluginArtifacts;
         this.projectName = projectName;
-        this.projectVersion = projectVersion;
         this.targetExtension = targetExtension;
     }
 
     @Override
     public void execute(@NotNull Sync sync) {
-        var jpi = jpiTaskProvider.get();
         sync.into(workDir.map(it -> it + "/plugins"));
 
-        sync.from(jpi)
-                .rename(new DropVersionTransformer(
-                        projectName.get(),
-                        projectVersion.get(),
-                        targetExtension.get()
-                ));
+        // Only the archive: the jpi task's other output is the exploded plugin directory.
+        var projectName = this.projectName;
+        var targetExtension = this.targetExtension;
+        sync.from(jpiTaskProvider.flatMap(AbstractArchiveTask::getArchiveFile), new Action<>() {
+            @Override
+            public void execute(@NotNull CopySpec spec) {
+                spec.rename(fileName -> projectName.get() + "." + targetExtension.get());
+            }
+        });
 
-        defaultRuntime.getResolvedConfiguration().getResolvedArtifacts()
-                .stream()
-                .filter(artifact -> HpiMetadataRule.PLUGIN_PACKAGINGS.contains(artifact.getExtension()))
-                .sorted(Comparator.comparing(ResolvedArtifact::getName))
-                .forEach(artifact ->
-                        sync.from(artifact.getFile())
-                                .rename(new DropVersionTransformer(
-                                        artifact.getModuleVersion().getId().getName(),
-                                        artifact.getModuleVersion().getId().getVersion(),
-                                        targetExtension.get()
-                                ))
-                );
+        var stagedNames = PluginArtifactFiles.stagedNames(pluginArtifacts, targetExtension);
+        sync.from(PluginArtifactFiles.archives(pluginArtifacts), new Action<>() {
+            @Override
+            public void execute(@NotNull CopySpec spec) {
+                spec.rename(stagedNames);
+            }
+        });
     }
 }
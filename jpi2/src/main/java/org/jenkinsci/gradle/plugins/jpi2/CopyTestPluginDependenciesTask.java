@@ -1,28 +1,37 @@
 package org.jenkinsci.gradle.plugins.jpi2;
 
 import org.gradle.api.DefaultTask;
+import org.gradle.api.artifacts.result.ResolvedArtifactResult;
 import org.gradle.api.file.ConfigurableFileCollection;
 import org.gradle.api.file.DirectoryProperty;
-import org.gradle.api.file.FileSystemOperations;
-import org.gradle.api.provider.MapProperty;
+import org.gradle.api.file.FileType;
+import org.gradle.api.provider.SetProperty;
 import org.gradle.api.tasks.CacheableTask;
-import org.gradle.api.tasks.Input;
 import org.gradle.api.tasks.InputFiles;
+import org.gradle.api.tasks.Internal;
 import org.gradle.api.tasks.OutputDirectory;
 import org.gradle.api.tasks.PathSensitive;
 import org.gradle.api.tasks.PathSensitivity;
 import org.gradle.api.tasks.TaskAction;
+import org.gradle.work.ChangeType;
+import org.gradle.work.Incremental;
+import org.gradle.work.InputChanges;
 
-import javax.inject.Inject;
-import java.io.BufferedWriter;
+import java.io.File;
 import java.io.IOException;
 import java.io.UncheckedIOException;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.LinkedHashSet;
 
 /**
- * Copies the Jenkins plugin ({@code .hpi}/{@code .jpi}) dependencies resolved on the test
+ * Stages the Jenkins plugin ({@code .hpi}/{@code .jpi}) dependencies resolved on the test
  * classpath into the {@code test-dependencies} layout that jenkins-test-harness's
  * {@code UnitTestSupportingPluginManager} reads at runtime: a {@code test-dependencies/index}
  * file listing one plugin short name per line, alongside a {@code <shortName>.jpi} file for
@@ -33,51 +42,102 @@ public abstract class CopyTestPluginDependenciesTask extends DefaultTask {
     /** Standard name under which this task is registered. */
     public static final String NAME = "copyTestPluginDependencies";
 
-    @Inject
-    protected abstract FileSystemOperations getFileSystemOperations();
+    private static final String INDEX_FILE_NAME = "index";
 
     /** @return the resolved {@code .hpi}/{@code .jpi} artifact files to install */
     @InputFiles
     @PathSensitive(PathSensitivity.NONE)
+    @Incremental
     public abstract ConfigurableFileCollection getPluginFiles();
 
-    /** @return mapping of each plugin file's name (e.g. {@code git-5.7.0.hpi}) to its short name (e.g. {@code git}) */
-    @Input
-    public abstract MapProperty<String, String> getFileNameToPluginId();
+    /**
+     * @return the resolved artifacts that {@link #getPluginFiles()} was taken from, whose component ids give each
+     * plugin file its short name (e.g. {@code git} for {@code git-5.7.0.hpi}). Only read when the task runs; the
+     * files are what is fingerprinted.
+     */
+    @Internal
+    public abstract SetProperty<ResolvedArtifactResult> getPluginArtifacts();
 
     /** @return the {@code test-dependencies} directory to populate */
     @OutputDirectory
     public abstract DirectoryProperty getOutputDir();
 
+    /**
+     * Stages the plugin files and rewrites {@code index}.
+     *
+     * <p>Files are hard-linked where the file system allows it and copied otherwise. On an incremental run only
+     * added or modified plugin files are staged again; files no plugin maps to any longer are deleted, and
+     * {@code index} is only written when its content changes, so test tasks fingerprinting the directory see
+     * as few changes as possible.
+     */
     @TaskAction
-    void copy() {
-        var lookup = getFileNameToPluginId().get();
-        var outputDir = getOutputDir().get().getAsFile();
+    void copy(InputChanges inputChanges) {
+        var lookup = new HashMap<String, String>();
+        for (var artifact : getPluginArtifacts().get()) {
+            var pluginId = PluginArtifactFiles.shortName(artifact.getId().getComponentIdentifier());
+            if (pluginId != null && PluginArtifactFiles.isArchive(artifact.getFile())) {
+                lookup.putIfAbsent(artifact.getFile().getName(), pluginId);
+            }
+        }
+        var outputDir = getOutputDir().get().getAsFile().toPath();
         var pluginIds = new LinkedHashSet<String>();
+        var stagedNames = new HashSet<String>();
+        stagedNames.add(INDEX_FILE_NAME);
 
-        getFileSystemOperations().copy(spec -> {
-            spec.from(getPluginFiles());
-            spec.into(outputDir);
-            spec.rename(fileName -> {
-                var pluginId = lookup.get(fileName);
-                return pluginId == null ? fileName : pluginId + ".jpi";
-            });
-        });
-
-        getPluginFiles().forEach(file -> {
-            var pluginId = lookup.get(file.getName());
-            if (pluginId != null) {
-                pluginIds.add(pluginId);
+        try {
+            Files.createDirectories(outputDir);
+            for (var file : getPluginFiles()) {
+                var pluginId = lookup.get(file.getName());
+                if (pluginId != null) {
+                    pluginIds.add(pluginId);
+                }
+                var stagedName = stagedName(file, pluginId);
+                if (stagedNames.add(stagedName) && !inputChanges.isIncremental()) {
+                    stage(file, outputDir.resolve(stagedName));
+                }
             }
-        });
-
-        try (BufferedWriter writer = Files.newBufferedWriter(outputDir.toPath().resolve("index"), StandardCharsets.UTF_8)) {
-            for (String pluginId : pluginIds) {
-                writer.write(pluginId);
-                writer.newLine();
+            if (inputChanges.isIncremental()) {
+                for (var change : inputChanges.getFileChanges(getPluginFiles())) {
+                    if (change.getChangeType() != ChangeType.REMOVED && change.getFileType() == FileType.FILE) {
+                        var file = change.getFile();
+                        stage(file, outputDir.resolve(stagedName(file, lookup.get(file.getName()))));
+                    }
+                }
             }
+            try (var staged = Files.list(outputDir)) {
+                for (var path : (Iterable<Path>) staged::iterator) {
+                    if (!stagedNames.contains(path.getFileName().toString())) {
+                        Files.delete(path);
+                    }
+                }
+            }
+            writeIfChanged(outputDir.resolve(INDEX_FILE_NAME), pluginIds);
         } catch (IOException e) {
             throw new UncheckedIOException(e);
         }
     }
+
+    private static String stagedName(File file, String pluginId) {
+        return pluginId == null ? file.getName() : pluginId + ".jpi";
+    }
+
+    private static void stage(File file, Path target) throws IOException {
+        Files.deleteIfExists(target);
+        try {
+            Files.createLink(target, file.toPath());
+        } catch (IOException | UnsupportedOperationException e) {
+            Files.copy(file.toPath(), target, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    private static void writeIfChanged(Path index, Collection<String> pluginIds) throws IOException {
+        var content = new StringBuilder();
+        for (var pluginId : pluginIds) {
+            content.append(pluginId).append(System.lineSeparator());
+        }
+        var bytes = content.toString().getBytes(StandardCharsets.UTF_8);
+        if (!Files.isRegularFile(index) || !Arrays.equals(Files.readAllBytes(index), bytes)) {
+            Files.write(index, bytes);
+        }
+    }
 }
@@ -0,0 +1,151 @@
+package org.jenkinsci.gradle.plugins.jpi2;
+
+import org.gradle.api.DefaultTask;
+import org.gradle.api.GradleException;
+import org.gradle.api.file.RegularFileProperty;
+import org.gradle.api.provider.Property;
+import org.gradle.api.provider.SetProperty;
+import org.gradle.api.tasks.CacheableTask;
+import org.gradle.api.tasks.Input;
+import org.gradle.api.tasks.Optional;
+import org.gradle.api.tasks.OutputFile;
+import org.gradle.api.tasks.TaskAction;
+
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.List;
+import java.util.jar.Attributes;
+import java.util.jar.Manifest;
+import java.util.stream.Collectors;
+
+/**
+ * Generates the manifest fragment carrying the attributes required in a Jenkins plugin, merged into both
+ * the {@code jar} and {@code jpi} manifests.
+ *
+ * <p>{@code Plugin-Dependencies} requires resolving a configuration and is generated separately by
+ * {@link GeneratePluginDependenciesManifestTask}.
+ */
+@CacheableTask
+public abstract class GenerateJenkinsManifestTask extends DefaultTask {
+    /** Standard name under which this task is registered. */
+    public static final String NAME = "generateJenkinsManifest";
+    /** Java release written to {@code Minimum-Java-Version} when no toolchain is configured. */
+    public static final int DEFAULT_MINIMUM_JAVA_VERSION = 17;
+
+    /** @return the effective plugin version */
+    @Input
+    public abstract Property<String> getPluginVersion();
+
+    /** @return the project group */
+    @Input
+    public abstract Property<String> getProjectGroup();
+
+    /** @return the project name */
+    @Input
+    public abstract Property<String> getProjectName();
+
+    /** @return the plugin short name */
+    @Input
+    public abstract Property<String> getPluginId();
+
+    /** @return the human-readable plugin name */
+    @Input
+    public abstract Property<String> getDisplayName();
+
+    /** @return the minimum Java release required by the plugin */
+    @Input
+    public abstract Property<String> getMinimumJavaVersion();
+
+    /** @return the Jenkins core version the plugin is built against */
+    @Input
+    public abstract Property<String> getJenkinsVersion();
+
+    /** @return the plugin home page URL */
+    @Input
+    @Optional
+    public abstract Property<String> getHomePage();
+
+    /** @return the earliest version the current one is compatible with */
+    @Input
+    @Optional
+    public abstract Property<String> getCompatibleSinceVersion();
+
+    /** @return whether the plugin uses a plugin-first class loader */
+    @Input
+    public abstract Property<Boolean> getPluginFirstClassLoader();
+
+    /** @return class prefixes to hide from Jenkins core */
+    @Input
+    public abstract SetProperty<String> getMaskClasses();
+
+    /** @return developers, each formatted as {@code name:id:email} */
+    @Input
+    public abstract Property<String> getPluginDevelopers();
+
+    /** @return the partial manifest file to write (merged into the final plugin JAR and JPI manifests) */
+    @OutputFile
+    public abstract RegularFileProperty getOutputFile();
+
+    /**
+     * Formats developers the way Jenkins expects in {@code Plugin-Developers}.
+     *
+     * @return comma-separated {@code name:id:email} entries, empty when there are none
+     */
+    static String formatDevelopers(List<PluginDeveloper> developers) {
+        return developers.stream()
+                .map(dev -> String.join(":",
+                        dev.getName().getOrElse(""),
+                        dev.getId().getOrElse(""),
+                        dev.getEmail().getOrElse("")))
+                .collect(Collectors.joining(","));
+    }
+
+    /** Writes the manifest fragment, leaving out attributes that are not configured. */
+    @TaskAction
+    public void generate() {
+        var manifest = new Manifest();
+        var attributes = manifest.getMainAttributes();
+        attributes.put(Attributes.Name.MANIFEST_VERSION, "1.0");
+
+        var version = getPluginVersion().get();
+        attributes.putValue("Implementation-Title", getProjectGroup().get() + "#" + getProjectName().get() + ";" + version);
+        attributes.putValue("Implementation-Version", version);
+        attributes.putValue("Plugin-Version", version);
+        attributes.putValue("Short-Name", getPluginId().get());
+        attributes.putValue("Extension-Name", getPluginId().get());
+        attributes.putValue("Group-Id", getProjectGroup().get());
+        attributes.putValue("Minimum-Java-Version", getMinimumJavaVersion().get());
+        attributes.putValue("Long-Name", getDisplayName().get());
+        attributes.putValue("Jenkins-Version", getJenkinsVersion().get());
+
+        var homePage = getHomePage().getOrNull();
+        if (homePage != null) {
+            attributes.putValue("Url", homePage);
+        }
+
+        var compatibleSinceVersion = getCompatibleSinceVersion().getOrNull();
+        if (compatibleSinceVersion != null) {
+            attributes.putValue("Compatible-Since-Version", compatibleSinceVersion);
+        }
+
+        if (getPluginFirstClassLoader().get()) {
+            attributes.putValue("PluginFirstClassLoader", "true");
+        }
+
+        var maskClasses = getMaskClasses().get();
+        if (!maskClasses.isEmpty()) {
+            attributes.putValue("Mask-Classes", String.join(" ", maskClasses));
+        }
+
+        var developers = getPluginDevelopers().get();
+        if (!developers.isEmpty()) {
+            attributes.putValue("Plugin-Developers", developers);
+        }
+
+        try (var outputStream = new FileOutputStream(getOutputFile().getAsFile().get())) {
+            manifest.write(outputStream);
+        } catch (IOException e) {
+            throw new GradleException("Unable to write Jenkins manifest", e);
+        }
+    }
+}
@@ -3,22 +3,24 @@ package org.jenkinsci.gradle.plugins.jpi2;
 import org.gradle.api.DefaultTask;
 import org.gradle.api.file.ConfigurableFileCollection;
 import org.gradle.api.file.DirectoryProperty;
+import org.gradle.api.file.FileType;
 import org.gradle.api.provider.Property;
 import org.gradle.api.tasks.CacheableTask;
 import org.gradle.api.tasks.Classpath;
 import org.gradle.api.tasks.Input;
 import org.gradle.api.tasks.InputFiles;
+import org.gradle.api.tasks.Internal;
 import org.gradle.api.tasks.Optional;
 import org.gradle.api.tasks.OutputDirectory;
 import org.gradle.api.tasks.TaskAction;
+import org.gradle.work.ChangeType;
+import org.gradle.work.FileChange;
+import org.gradle.work.Incremental;
+import org.gradle.work.InputChanges;
 import org.w3c.dom.Document;
 import org.w3c.dom.Element;
-import org.w3c.dom.Node;
-import org.w3c.dom.NodeList;
-import org.xml.sax.SAXException;
 
 import javax.xml.XMLConstants;
-import javax.xml.parsers.DocumentBuilder;
 import javax.xml.parsers.DocumentBuilderFactory;
 import javax.xml.parsers.ParserConfigurationException;
 import javax.xml.transform.OutputKeys;
@@ -29,11 +31,18 @@ import javax.xml.transform.dom.DOMSource;
 import javax.xml.transform.stream.StreamResult;
 import java.io.File;
 import java.io.IOException;
-import java.util.ArrayList;
+import java.io.StringWriter;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
 import java.util.Comparator;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Properties;
 import java.util.Set;
+import java.util.function.Function;
 
 /**
  * Generates {@code licenses.xml} for libraries bundled into the plugin package.
@@ -43,6 +52,11 @@ public abstract class GenerateLicenseInfoTask extends DefaultTask {
     /** Standard name under which this task is registered. */
     public static final String NAME = "generateLicenseInfo";
     private static final String LICENSE_NAMESPACE = "licenses";
+    /** Sidecar index of extracted POM data, kept next to {@code licenses.xml} but not packaged. */
+    static final String INDEX_FILE_NAME = "licenses-index.properties";
+    private static final String INDEX_FORMAT_VERSION = "2";
+    private static final String ROLE_POM = "pom";
+    private static final String ROLE_PARENT = "parent";
 
     /** @return directory where {@code licenses.xml} is written */
     @OutputDirectory
@@ -51,8 +65,18 @@ public abstract class GenerateLicenseInfoTask extends DefaultTask {
     /** @return POM files for all bundled runtime dependencies */
     @InputFiles
     @Classpath
+    @Incremental
     public abstract ConfigurableFileCollection getPomFiles();
 
+    /**
+     * @return parent POMs (transitively) of {@link #getPomFiles()}; libraries that declare no licenses
+     * of their own inherit them from the nearest parent that does, as Maven does
+     */
+    @InputFiles
+    @Classpath
+    @Incremental
+    public abstract ConfigurableFileCollection getParentPomFiles();
+
     /** @return version of the plugin project, written into the root dependency entry */
     @Input
     public abstract Property<String> getProjectVersion();
@@ -75,21 +99,70 @@ public abstract class GenerateLicenseInfoTask extends DefaultTask {
     @Optional
     public abstract Property<String> getProjectUrl();
 
-    /** Collects POM files and writes a {@code licenses.xml} describing their license metadata. */
+    /**
+     * @return shared cache of extracted POM metadata; when not set, every POM is parsed by this task.
+     * Not an input: cached entries are keyed by POM content, so they never change the produced file.
+     */
+    @Internal
+    public abstract Property<PomLicenseCache> getPomLicenseCache();
+
+    /**
+     * @return directories, such as the Gradle user home, that the index records POM locations relative to.
+     * An index restored from the build cache on another machine or in another checkout then still lines up
+     * with the local POMs, so the next run can stay incremental. Not an input: it only affects the index.
+     */
+    @Internal
+    public abstract ConfigurableFileCollection getIndexRoots();
+
+    /**
+     * Collects POM files and writes a {@code licenses.xml} describing their license metadata.
+     *
+     * <p>The data extracted from every POM is kept in an index next to {@code licenses.xml}. On an incremental
+     * run only added or modified POMs are parsed and removed ones are dropped from the index, which
+     * {@code licenses.xml} is then rebuilt from.
+     */
     @TaskAction
-    public void generateLicenseInfo() {
+    public void generateLicenseInfo(InputChanges inputChanges) {
         var outputDir = getOutputDirectory().get().getAsFile();
         var outputFile = new File(outputDir, "licenses.xml");
         if (!outputDir.exists() && !outputDir.mkdirs()) {
             throw new IllegalStateException("Could not create output directory: " + outputDir);
         }
 
-        var pomFiles = collectPomFiles();
-        writeLicensesFile(outputFile, pomFiles);
+        var indexFile = new File(outputDir, INDEX_FILE_NAME);
+        var roots = List.copyOf(getIndexRoots().getFiles());
+        var extractor = pomLicenseExtractor();
+        var pomFiles = collectPomFiles(getPomFiles());
+        var parentPomFiles = collectPomFiles(getParentPomFiles());
+
+        Map<File, PomLicenseData> poms = null;
+        Map<File, PomLicenseData> parents = null;
+        if (inputChanges.isIncremental()) {
+            var index = readIndex(indexFile, roots);
+            if (index != null) {
+                poms = index.get(ROLE_POM);
+                parents = index.get(ROLE_PARENT);
+                applyChanges(inputChanges.getFileChanges(getPomFiles()), poms, extractor);
+                applyChanges(inputChanges.getFileChanges(getParentPomFiles()), parents, extractor);
+                // An index restored from the build cache, or left behind by an interrupted run, may not line
+                // up with this checkout's files: start over in that case.
+                if (!poms.keySet().equals(pomFiles) || !parents.keySet().equals(parentPomFiles)) {
+                    getLogger().info("License index {} is out of date, regenerating it", indexFile);
+                    poms = null;
+                }
+            }
+        }
+        if (poms == null) {
+            poms = extractAll(pomFiles, extractor);
+            parents = extractAll(parentPomFiles, extractor);
+        }
+
+        writeIndex(indexFile, Map.of(ROLE_POM, poms, ROLE_PARENT, parents), roots);
+        writeLicensesFile(outputFile, poms, parents);
     }
 
-    private Set<File> collectPomFiles() {
-        var pomFiles = getPomFiles().getFiles();
+    private Set<File> collectPomFiles(ConfigurableFileCollection files) {
+        var pomFiles = files.getFiles();
         var resolved = new HashSet<File>();
         for (var pomFile : pomFiles) {
             if (pomFile.exists()) {
@@ -101,10 +174,125 @@ public abstract class GenerateLicenseInfoTask extends DefaultTask {
         return resolved;
     }
 
-    private void writeLicensesFile(File outputFile, Set<File> pomFiles) {
-        var extractor = new PomLicenseDataExtractor();
+    private static Map<File, PomLicenseData> extractAll(Set<File> pomFiles, Function<File, PomLicenseData> extractor) {
+        var extracted = new HashMap<File, PomLicenseData>();
+        for (var pomFile : pomFiles) {
+            extracted.put(pomFile, extractor.apply(pomFile));
+        }
+        return extracted;
+    }
+
+    private static void applyChanges(Iterable<FileChange> changes, Map<File, PomLicenseData> index, Function<File, PomLicenseData> extractor) {
+        for (var change : changes) {
+            if (change.getFileType() == FileType.DIRECTORY) {
+                continue;
+            }
+            var file = change.getFile();
+            if (change.getChangeType() == ChangeType.REMOVED || !file.isFile()) {
+                index.remove(file);
+            } else {
+                index.put(file, extractor.apply(file));
+            }
+        }
+    }
+
+    /** @return the indexed entries by role, or {@code null} when there is no usable index */
+    private Map<String, Map<File, PomLicenseData>> readIndex(File indexFile, List<File> roots) {
+        if (!indexFile.isFile()) {
+            return null;
+        }
+        var properties = new Properties();
+        try (var in = Files.newInputStream(indexFile.toPath())) {
+            properties.load(in);
+            if (!INDEX_FORMAT_VERSION.equals(properties.getProperty("format"))) {
+                return null;
+            }
+            var index = new HashMap<String, Map<File, PomLicenseData>>();
+            index.put(ROLE_POM, new HashMap<>());
+            index.put(ROLE_PARENT, new HashMap<>());
+            var count = Integer.parseInt(properties.getProperty("entries", "0"));
+            for (int i = 0; i < count; i++) {
+                var prefix = "entry." + i + ".";
+                var entries = index.get(properties.getProperty(prefix + "role"));
+                var path = properties.getProperty(prefix + "path");
+                if (entries == null || path == null) {
+                    return null;
+                }
+                entries.put(fromIndexPath(path, roots), PomLicenseData.load(properties, prefix));
+            }
+            return index;
+        } catch (IOException | RuntimeException e) {
+            getLogger().info("Ignoring unreadable license index {}", indexFile, e);
+            return null;
+        }
+    }
+
+    private static void writeIndex(File indexFile, Map<String, Map<File, PomLicenseData>> index, List<File> roots) {
+        var properties = new Properties();
+        properties.setProperty("format", INDEX_FORMAT_VERSION);
+        int i = 0;
+        for (var role : List.of(ROLE_POM, ROLE_PARENT)) {
+            var entries = index.get(role).entrySet().stream()
+                    .sorted(Map.Entry.comparingByKey())
+                    .toList();
+            for (var entry : entries) {
+                var prefix = "entry." + i++ + ".";
+                properties.setProperty(prefix + "role", role);
+                properties.setProperty(prefix + "path", toIndexPath(entry.getKey(), roots));
+                entry.getValue().store(properties, prefix);
+            }
+        }
+        properties.setProperty("entries", Integer.toString(i));
+        try {
+            // Properties#store always writes a timestamp and hash-ordered keys; drop the former and sort the
+            // latter so identical inputs produce an identical (and therefore cache-friendly) output directory.
+            var writer = new StringWriter();
+            properties.store(writer, null);
+            var lines = writer.toString().lines()
+                    .filter(line -> !line.startsWith("#"))
+                    .sorted()
+                    .toList();
+            Files.write(indexFile.toPath(), lines, StandardCharsets.ISO_8859_1);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Unable to write license index " + indexFile, e);
+        }
+    }
+
+    /**
+     * @return {@code file} as {@code <index of root>:<path relative to that root>} for the first of
+     * {@code roots} containing it, or its absolute path prefixed with {@code :} when none does
+     */
+    private static String toIndexPath(File file, List<File> roots) {
+        var path = file.toPath().toAbsolutePath();
+        for (int i = 0; i < roots.size(); i++) {
+            var root = roots.get(i).toPath().toAbsolutePath();
+            if (path.startsWith(root)) {
+                return i + ":" + root.relativize(path).toString().replace(File.separatorChar, '/');
+            }
+        }
+        return ":" + path;
+    }
+
+    private static File fromIndexPath(String indexPath, List<File> roots) {
+        var separator = indexPath.indexOf(':');
+        if (separator == 0) {
+            return new File(indexPath.substring(1));
+        }
+        var root = Integer.parseInt(indexPath.substring(0, separator));
+        if (root >= roots.size()) {
+            throw new IllegalStateException("Unknown index root " + root);
+        }
+        return new File(roots.get(root), indexPath.substring(separator + 1));
+    }
+
+    private void writeLicensesFile(File outputFile, Map<File, PomLicenseData> poms, Map<File, PomLicenseData> parentPoms) {
         var document = createDocument();
 
+        var parents = new HashMap<String, PomLicenseData>();
+        for (var parent : parentPoms.values()) {
+            parents.put(parent.coordinates(), parent);
+        }
+
         var version = getProjectVersion().get();
         var name = getProjectName().get();
         var group = getProjectGroup().get();
@@ -126,10 +314,10 @@ public abstract class GenerateLicenseInfoTask extends DefaultTask {
                 url);
         appendDescription(document, projectDependency, description != null ? description : "");
 
-        pomFiles.stream()
-                .sorted(Comparator.comparing(File::getName))
-                .forEach(pomFile -> {
-                    var data = extractor.extractFrom(pomFile);
+        poms.entrySet().stream()
+                .sorted(Map.Entry.comparingByKey(Comparator.comparing(File::getName).thenComparing(File::getPath)))
+                .forEach(entry -> {
+                    var data = entry.getValue();
                     var dependency = appendDependency(document, root,
                             data.version(),
                             data.artifactId(),
@@ -137,7 +325,7 @@ public abstract class GenerateLicenseInfoTask extends DefaultTask {
                             data.name(),
                             data.url());
                     appendDescription(document, dependency, data.description());
-                    for (var license : data.licenses()) {
+                    for (var license : effectiveLicenses(data, parents)) {
                         appendLicense(document, dependency, license);
                     }
                 });
@@ -145,6 +333,27 @@ public abstract class GenerateLicenseInfoTask extends DefaultTask {
         writeDocument(document, outputFile);
     }
 
+    private static List<PomLicenseData.LicenseInfo> effectiveLicenses(PomLicenseData data, Map<String, PomLicenseData> parents) {
+        var current = data;
+        var visited = new HashSet<String>();
+        while (current.licenses().isEmpty() && !current.parent().isEmpty() && visited.add(current.parent())) {
+            var parent = parents.get(current.parent());
+            if (parent == null) {
+                break;
+            }
+            current = parent;
+        }
+        return current.licenses();
+    }
+
+    private Function<File, PomLicenseData> pomLicenseExtractor() {
+        var cache = getPomLicenseCache().getOrNull();
+        if (cache != null) {
+            return cache::extract;
+        }
+        return new PomLicenseDataExtractor()::extractFrom;
+    }
+
     private static Element appendDependency(
             Document document,
             Element root,
@@ -173,7 +382,7 @@ public abstract class GenerateLicenseInfoTask extends DefaultTask {
         dependency.appendChild(descriptionElement);
     }
 
-    private static void appendLicense(Document document, Element dependency, LicenseInfo license) {
+    private static void appendLicense(Document document, Element dependency, PomLicenseData.LicenseInfo license) {
         var licenseElement = document.createElementNS(LICENSE_NAMESPACE, "l:license");
         if (!valueOrEmpty(license.url()).isBlank()) {
             licenseElement.setAttribute("url", license.url());
@@ -218,95 +427,4 @@ public abstract class GenerateLicenseInfoTask extends DefaultTask {
             throw new RuntimeException("Unable to write license XML to " + outputFile, e);
         }
     }
-
-    private record PomLicenseData(String groupId, String artifactId, String version, String name, String description, String url, List<LicenseInfo> licenses) {
-    }
-
-    private record LicenseInfo(String name, String url) {
-    }
-
-    private static final class PomLicenseDataExtractor {
-        private final DocumentBuilder builder;
-
-        private PomLicenseDataExtractor() {
-            this.builder = createDocumentBuilder();
-        }
-
-        private PomLicenseData extractFrom(File pomFile) {
-            try {
-                var document = builder.parse(pomFile);
-                var root = document.getDocumentElement();
-
-                var groupId = directChildText(root, "groupId");
-                var artifactId = directChildText(root, "artifactId");
-                var version = directChildText(root, "version");
-                var name = directChildText(root, "name");
-                var description = directChildText(root, "description");
-                var url = directChildText(root, "url");
-                var licenses = new ArrayList<LicenseInfo>();
-
-                // Fall back to parent GAV if not directly specified
-                Node parentNode = directChild(root, "parent");
-                if (parentNode instanceof Element parentElement) {
-                    if (groupId.isEmpty()) groupId = directChildText(parentElement, "groupId");
-                    if (version.isEmpty()) version = directChildText(parentElement, "version");
-                }
-
-                Node licensesContainer = directChild(root, "licenses");
-                if (licensesContainer instanceof Element element) {
-                    var childNodes = element.getChildNodes();
-                    for (int i = 0; i < childNodes.getLength(); i++) {
-                        var child = childNodes.item(i);
-                        if (child instanceof Element licenseElement && "license".equals(licenseElement.getTagName())) {
-                            licenses.add(new LicenseInfo(
-                                    directChildText(licenseElement, "name"),
-                                    directChildText(licenseElement, "url")));
-                        }
-                    }
-                }
-
-                return new PomLicenseData(groupId, artifactId, version, name, description, url, licenses);
-            } catch (SAXException | IOException e) {
-                throw new RuntimeException("Failed to parse POM: " + pomFile, e);
-            }
-        }
-
-        private static String directChildText(Element parent, String childName) {
-            Node child = directChild(parent, childName);
-            return child == null ? "" : child.getTextContent();
-        }
-
-        private static Node directChild(Element parent, String childName) {
-            NodeList childNodes = parent.getChildNodes();
-            for (int i = 0; i < childNodes.getLength(); i++) {
-                Node child = childNodes.item(i);
-                if (child instanceof Element element && childName.equals(element.getTagName())) {
-                    return child;
-                }
-            }
-            return null;
-        }
-
-        private static DocumentBuilder createDocumentBuilder() {
-            var factory = DocumentBuilderFactory.newInstance();
-            factory.setExpandEntityReferences(false);
-            trySetFeature(factory, XMLConstants.FEATURE_SECURE_PROCESSING, true);
-            trySetFeature(factory, "http://xml.org/sax/features/external-general-entities", false);
-            trySetFeature(factory, "http://xml.org/sax/features/external-parameter-entities", false);
-            trySetFeature(factory, "http://apache.org/xml/features/nonvalidating/load-external-dtd", false);
-            try {
-                return factory.newDocumentBuilder();
-            } catch (ParserConfigurationException e) {
-                throw new RuntimeException("Unable to create POM parser", e);
-            }
-        }
-
-        private static void trySetFeature(DocumentBuilderFactory factory, String feature, boolean value) {
-            try {
-                factory.setFeature(feature, value);
-            } catch (ParserConfigurationException ignored) {
-                // Keep defaults when parser implementation does not support this.
-            }
-        }
-    }
 }
@@ -0,0 +1,53 @@
+package org.jenkinsci.gradle.plugins.jpi2;
+
+import org.gradle.api.DefaultTask;
+import org.gradle.api.GradleException;
+import org.gradle.api.file.RegularFileProperty;
+import org.gradle.api.provider.Property;
+import org.gradle.api.tasks.CacheableTask;
+import org.gradle.api.tasks.Input;
+import org.gradle.api.tasks.Optional;
+import org.gradle.api.tasks.OutputFile;
+import org.gradle.api.tasks.TaskAction;
+
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.jar.Attributes;
+import java.util.jar.Manifest;
+
+/**
+ * Generates the manifest fragment declaring the plugin's {@code Plugin-Dependencies}, merged into both the
+ * {@code jar} and {@code jpi} manifests so the runtime classpath is walked once for the two of them.
+ */
+@CacheableTask
+public abstract class GeneratePluginDependenciesManifestTask extends DefaultTask {
+    /** Standard name under which this task is registered. */
+    public static final String NAME = "generatePluginDependenciesManifest";
+
+    /** @return comma-separated {@code name:version} list of plugin dependencies; absent when there are none */
+    @Input
+    @Optional
+    public abstract Property<String> getPluginDependencies();
+
+    /** @return the partial manifest file to write (merged into the final plugin JAR and JPI manifests) */
+    @OutputFile
+    public abstract RegularFileProperty getOutputFile();
+
+    /** Writes the manifest fragment, leaving out {@code Plugin-Dependencies} when there are none. */
+    @TaskAction
+    public void generate() {
+        var manifest = new Manifest();
+        manifest.getMainAttributes().put(Attributes.Name.MANIFEST_VERSION, "1.0");
+
+        var pluginDependencies = getPluginDependencies().getOrNull();
+        if (pluginDependencies != null) {
+            manifest.getMainAttributes().putValue("Plugin-Dependencies", pluginDependencies);
+        }
+
+        try (var outputStream = new FileOutputStream(getOutputFile().getAsFile().get())) {
+            manifest.write(outputStream);
+        } catch (IOException e) {
+            throw new GradleException("Unable to write plugin dependencies manifest", e);
+        }
+    }
+}
@@ -0,0 +1,242 @@
+package org.jenkinsci.gradle.plugins.jpi2;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.HashSet;
+import java.util.HexFormat;
+import java.util.Set;
+import java.util.regex.Pattern;
+
+/**
+ * Reads references and object names of a Git repository directly from its {@code .git} directory, so that
+ * resolving and abbreviating {@code HEAD} usually doesn't need a {@code git} process.
+ *
+ * <p>Repositories this doesn't understand, such as ones keeping their references in a reftable or borrowing
+ * objects from another repository, are handed to {@code git rev-parse}.
+ */
+final class GitRepository {
+    private static final String SYMBOLIC_REF_PREFIX = "ref: ";
+    private static final Pattern OBJECT_ID = Pattern.compile("[0-9a-f]{40}|[0-9a-f]{64}");
+    // Guards against symbolic references pointing at each other.
+    private static final int MAX_SYMBOLIC_REF_DEPTH = 5;
+    // git never abbreviates object names to fewer characters.
+    private static final int MIN_ABBREV_LENGTH = 4;
+    private static final int PACK_INDEX_MAGIC = 0xff744f63;
+    private static final int PACK_INDEX_HEADER_LENGTH = 8;
+    private static final int PACK_INDEX_FANOUT_LENGTH = 256 * 4;
+
+    private final Path workTree;
+    private final Path gitDir;
+
+    private GitRepository(Path workTree, Path gitDir) {
+        this.workTree = workTree;
+        this.gitDir = gitDir;
+    }
+
+    /**
+     * @param workTree root of the working tree
+     * @return the repository whose {@code .git} directory is in {@code workTree}
+     * @throws IllegalStateException if {@code workTree} has no {@code .git} directory
+     */
+    static GitRepository open(Path workTree) {
+        var gitDir = workTree.resolve(".git");
+        if (!Files.isDirectory(gitDir)) {
+            throw new IllegalStateException("Not a Git repository: " + workTree);
+        }
+        return new GitRepository(workTree, gitDir);
+    }
+
+    /** @return the {@code .git} directory */
+    Path gitDir() {
+        return gitDir;
+    }
+
+    /**
+     * Resolves {@code HEAD} through loose and packed references, the way {@code git rev-parse HEAD} does. When
+     * a reference is neither, it is left to {@code git rev-parse}: the repository may store its references
+     * another way, e.g. in a reftable, whose {@code HEAD} names a reference that doesn't exist.
+     *
+     * @return the full object id {@code HEAD} points to
+     * @throws IllegalStateException if {@code HEAD} doesn't point to a commit yet
+     */
+    String resolveHead() throws IOException, InterruptedException {
+        var ref = "HEAD";
+        for (int depth = 0; depth < MAX_SYMBOLIC_REF_DEPTH; depth++) {
+            var value = readRef(ref);
+            if (value == null) {
+                return revParseHead();
+            }
+            if (!value.startsWith(SYMBOLIC_REF_PREFIX)) {
+                if (!OBJECT_ID.matcher(value).matches()) {
+                    throw new IllegalStateException("Unexpected content of " + ref + " in " + gitDir + ": " + value);
+                }
+                return value;
+            }
+            ref = value.substring(SYMBOLIC_REF_PREFIX.length()).trim();
+        }
+        throw new IllegalStateException("Too many levels of symbolic references resolving HEAD in " + gitDir);
+    }
+
+    /**
+     * Abbreviates {@code objectId} the way {@code git rev-parse --short=<minLength>} does: to {@code minLength}
+     * characters, extended for as long as another object of the repository starts with the same characters.
+     *
+     * @param objectId  full id of an object of this repository
+     * @param minLength least number of characters to keep
+     * @return the shortest unambiguous prefix of {@code objectId} that is at least {@code minLength} long
+     */
+    String abbreviate(String objectId, int minLength) throws IOException, InterruptedException {
+        var length = Math.max(minLength, MIN_ABBREV_LENGTH);
+        if (length >= objectId.length()) {
+            return objectId;
+        }
+        var others = objectsStartingWith(objectId.substring(0, length), objectId.length() / 2);
+        if (others == null) {
+            var abbreviated = GitVersion.runGit(workTree, "rev-parse", "--short=" + length, objectId).get(0).trim();
+            if (!objectId.startsWith(abbreviated)) {
+                throw new IllegalStateException("Unexpected abbreviation of " + objectId + " in " + gitDir + ": " + abbreviated);
+            }
+            return abbreviated;
+        }
+        for (var other : others) {
+            if (!other.equals(objectId)) {
+                length = Math.max(length, commonPrefixLength(objectId, other) + 1);
+            }
+        }
+        return objectId.substring(0, Math.min(length, objectId.length()));
+    }
+
+    private String revParseHead() throws IOException, InterruptedException {
+        String value;
+        try {
+            value = GitVersion.runGit(workTree, "rev-parse", "--verify", "--quiet", "HEAD").get(0).trim();
+        } catch (RuntimeException e) {
+            throw new IllegalStateException("Cannot resolve HEAD in " + gitDir + "; the repository has no commits yet", e);
+        }
+        if (!OBJECT_ID.matcher(value).matches()) {
+            throw new IllegalStateException("Unexpected output of git rev-parse HEAD in " + gitDir + ": " + value);
+        }
+        return value;
+    }
+
+    /**
+     * @return the ids of the loose and packed objects starting with {@code prefix}, or {@code null} when the
+     * repository has objects this can't search: alternates, or pack indexes in a format other than version 2
+     */
+    private Set<String> objectsStartingWith(String prefix, int idLength) throws IOException {
+        var objects = gitDir.resolve("objects");
+        if (Files.exists(objects.resolve("info/alternates"))) {
+            return null;
+        }
+        var found = new HashSet<String>();
+        var fanout = prefix.substring(0, 2);
+        var looseDir = objects.resolve(fanout);
+        if (Files.isDirectory(looseDir)) {
+            try (var loose = Files.list(looseDir)) {
+                loose.map(file -> fanout + file.getFileName())
+                        .filter(name -> name.startsWith(prefix))
+                        .forEach(found::add);
+            }
+        }
+        var packDir = objects.resolve("pack");
+        if (Files.isDirectory(packDir)) {
+            try (var packs = Files.newDirectoryStream(packDir, "*.idx")) {
+                for (var index : packs) {
+                    if (!searchPackIndex(index, prefix, idLength, found)) {
+                        return null;
+                    }
+                }
+            }
+        }
+        return found;
+    }
+
+    /**
+     * Adds the ids of the objects in a version 2 pack index starting with {@code prefix} to {@code found}.
+     * The index's names are sorted, and its fan-out table gives the range of names sharing their first byte.
+     *
+     * @param idLength length in bytes of the repository's object ids
+     * @return {@code false} if {@code index} is not a version 2 pack index
+     */
+    private static boolean searchPackIndex(Path index, String prefix, int idLength, Set<String> found) throws IOException {
+        try (var channel = FileChannel.open(index, StandardOpenOption.READ)) {
+            var header = read(channel, 0, PACK_INDEX_HEADER_LENGTH);
+            if (header.getInt() != PACK_INDEX_MAGIC || header.getInt() != 2) {
+                return false;
+            }
+            var firstByte = Integer.parseInt(prefix.substring(0, 2), 16);
+            var fanout = read(channel, PACK_INDEX_HEADER_LENGTH, PACK_INDEX_FANOUT_LENGTH);
+            var count = Integer.toUnsignedLong(fanout.getInt(255 * 4));
+            var low = firstByte == 0 ? 0 : Integer.toUnsignedLong(fanout.getInt((firstByte - 1) * 4));
+            var high = Integer.toUnsignedLong(fanout.getInt(firstByte * 4));
+            var names = PACK_INDEX_HEADER_LENGTH + PACK_INDEX_FANOUT_LENGTH;
+            while (low < high) {
+                var middle = (low + high) >>> 1;
+                if (objectId(channel, names, middle, idLength).compareTo(prefix) < 0) {
+                    low = middle + 1;
+                } else {
+                    high = middle;
+                }
+            }
+            for (var i = low; i < count; i++) {
+                var id = objectId(channel, names, i, idLength);
+                if (!id.startsWith(prefix)) {
+                    break;
+                }
+                found.add(id);
+            }
+            return true;
+        }
+    }
+
+    private static String objectId(FileChannel channel, long names, long position, int idLength) throws IOException {
+        return HexFormat.of().formatHex(read(channel, names + position * idLength, idLength).array());
+    }
+
+    private static ByteBuffer read(FileChannel channel, long position, int length) throws IOException {
+        var buffer = ByteBuffer.allocate(length);
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, position + buffer.position()) < 0) {
+                throw new EOFException("Unexpected end of pack index");
+            }
+        }
+        return buffer.flip();
+    }
+
+    private static int commonPrefixLength(String a, String b) {
+        int length = 0;
+        while (length < a.length() && length < b.length() && a.charAt(length) == b.charAt(length)) {
+            length++;
+        }
+        return length;
+    }
+
+    /** @return the loose value of {@code ref}, else its packed value, else {@code null} */
+    private String readRef(String ref) throws IOException {
+        var loose = gitDir.resolve(ref);
+        if (Files.isRegularFile(loose)) {
+            return Files.readString(loose, StandardCharsets.UTF_8).trim();
+        }
+        var packedRefs = gitDir.resolve("packed-refs");
+        if (!Files.isRegularFile(packedRefs)) {
+            return null;
+        }
+        for (var line : Files.readAllLines(packedRefs, StandardCharsets.UTF_8)) {
+            // Skips the header and the peeled values ("^<id>") of annotated tags.
+            if (line.startsWith("#") || line.startsWith("^")) {
+                continue;
+            }
+            int separator = line.indexOf(' ');
+            if (separator > 0 && line.substring(separator + 1).equals(ref)) {
+                return line.substring(0, separator);
+            }
+        }
+        return null;
+    }
+}
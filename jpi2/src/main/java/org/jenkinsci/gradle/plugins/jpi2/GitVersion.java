@@ -1,19 +1,29 @@
 package org.jenkinsci.gradle.plugins.jpi2;
 
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
 import java.io.IOException;
 import java.nio.charset.StandardCharsets;
-import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
+import java.util.Map;
 import java.util.concurrent.TimeUnit;
 
 /**
  * Computes a version string from the Git repository (commit depth + abbreviated hash).
+ *
+ * <p>{@code HEAD} is resolved and abbreviated in-process by {@link GitRepository} where it can be; {@code git} is
+ * otherwise only started to count commits and, unless dirty trees are allowed, to check the (optionally
+ * path-limited) working tree. Given a {@link CommitDepthCache}, commits are counted from the closest remembered
+ * commit rather than from the root of the history.
  */
 public final class GitVersion {
 
+    private static final Logger LOGGER = LoggerFactory.getLogger(GitVersion.class);
+
     private GitVersion() {}
 
     /**
@@ -40,33 +50,105 @@ public final class GitVersion {
             int abbrevLength,
             boolean allowDirty)
             throws IOException, InterruptedException {
-        if (!Files.isDirectory(gitRoot.resolve(".git"))) {
-            throw new RuntimeException("Not a Git repository: " + gitRoot);
-        }
+        return compute(gitRoot, versionFormat, versionPrefix, abbrevLength, allowDirty, List.of(), null);
+    }
 
-        if (!allowDirty) {
-            List<String> status = runGit(gitRoot, "status", "--porcelain");
-            if (!status.isEmpty()) {
-                throw new RuntimeException(
-                        "Repository has uncommitted changes. Commit or stash them, or set allowDirty = true.");
-            }
+    /**
+     * Computes the version string and full hash, counting commits incrementally from the depths remembered
+     * in {@code depthCacheDirectory}.
+     *
+     * @param dirtyCheckPaths     pathspecs, relative to {@code gitRoot}, checked for changes when {@code allowDirty}
+     *                            is false; empty to check the whole working tree
+     * @param depthCacheDirectory directory of the {@link CommitDepthCache}, or {@code null} to count the whole history
+     * @see #compute(Path, String, String, int, boolean)
+     */
+    public static VersionResult compute(
+            Path gitRoot,
+            String versionFormat,
+            String versionPrefix,
+            int abbrevLength,
+            boolean allowDirty,
+            List<String> dirtyCheckPaths,
+            Path depthCacheDirectory)
+            throws IOException, InterruptedException {
+        var repository = GitRepository.open(gitRoot);
+
+        if (!allowDirty && isDirty(gitRoot, dirtyCheckPaths)) {
+            throw new RuntimeException(
+                    "Repository has uncommitted changes. Commit or stash them, or set allowDirty = true.");
         }
 
-        String depthStr =
-                runGit(gitRoot, "rev-list", "--count", "HEAD").stream().findFirst().orElse("0");
-        long depth = Long.parseLong(depthStr.trim());
-        String abbrev = runGit(gitRoot, "rev-parse", "--short=" + abbrevLength, "HEAD")
-                .stream()
-                .findFirst()
-                .orElse("");
-        String fullHash = runGit(gitRoot, "rev-parse", "HEAD").stream().findFirst().orElse("");
+        String fullHash = repository.resolveHead();
+        var depthCache = depthCacheDirectory == null ? null : CommitDepthCache.forRepository(depthCacheDirectory, repository.gitDir());
+        long depth = commitDepth(gitRoot, fullHash, depthCache);
+        String abbrev = repository.abbreviate(fullHash, abbrevLength);
 
         String versionString =
-                versionPrefix + String.format(versionFormat, depth, abbrev.trim());
-        return new VersionResult(versionString, fullHash.trim());
+                versionPrefix + String.format(versionFormat, depth, abbrev);
+        return new VersionResult(versionString, fullHash);
+    }
+
+    /**
+     * Counts the commits reachable from {@code commit}. With a remembered depth of some other commit, only the
+     * commits reachable from exactly one of the two are walked: {@code depth(commit) = depth(base) - onlyBase + onlyCommit}
+     * holds whether or not {@code base} is an ancestor, and git stops the walk at their merge bases (using
+     * commit-graph generation numbers when the repository has them).
+     */
+    private static long commitDepth(Path gitRoot, String commit, CommitDepthCache cache) throws IOException, InterruptedException {
+        var known = cache == null ? Map.<String, Long>of() : cache.entries();
+        Long depth = known.get(commit);
+        for (var base = known.entrySet().iterator(); depth == null && base.hasNext(); ) {
+            var entry = base.next();
+            try {
+                var counts = runGit(gitRoot, "rev-list", "--left-right", "--count", entry.getKey() + "..." + commit)
+                        .get(0).trim().split("\\s+");
+                depth = entry.getValue() - Long.parseLong(counts[0]) + Long.parseLong(counts[1]);
+            } catch (RuntimeException e) {
+                // The remembered commit may have been garbage collected (e.g. after a rebase); try an older one.
+                LOGGER.debug("Cannot count commits between {} and {}", entry.getKey(), commit, e);
+            }
+        }
+        if (depth == null) {
+            String depthStr = runGit(gitRoot, "rev-list", "--count", commit).stream().findFirst().orElse("0");
+            depth = Long.parseLong(depthStr.trim());
+        }
+        if (cache != null) {
+            cache.record(commit, depth);
+        }
+        return depth;
+    }
+
+    /**
+     * Checks for changes to tracked files first: {@code git diff --quiet} compares the index's stat data
+     * (re-reading only racily clean entries) and stops at the first difference. Untracked files are only
+     * looked for in a clean tree, without descending into untracked directories.
+     */
+    private static boolean isDirty(Path gitRoot, List<String> paths) throws IOException, InterruptedException {
+        var diff = new ArrayList<>(List.of("diff", "--quiet", "HEAD", "--"));
+        diff.addAll(paths);
+        var result = git(gitRoot, diff.toArray(new String[0]));
+        if (result.exitCode() == 1) {
+            return true;
+        }
+        if (result.exitCode() != 0) {
+            throw new RuntimeException("git " + String.join(" ", diff) + " failed: " + result.output());
+        }
+        var untracked = new ArrayList<>(List.of("ls-files", "--others", "--exclude-standard", "--directory", "--no-empty-directory", "--"));
+        untracked.addAll(paths);
+        return runGit(gitRoot, untracked.toArray(new String[0])).stream().anyMatch(line -> !line.isBlank());
     }
 
     static List<String> runGit(Path workDir, String... args) throws IOException, InterruptedException {
+        var result = git(workDir, args);
+        if (result.exitCode() != 0) {
+            throw new RuntimeException("git " + String.join(" ", args) + " failed: " + result.output());
+        }
+        return List.of(result.output().split("\n"));
+    }
+
+    private record GitResult(int exitCode, String output) {}
+
+    private static GitResult git(Path workDir, String... args) throws IOException, InterruptedException {
         ProcessBuilder pb = new ProcessBuilder();
         List<String> command = new ArrayList<>();
         command.add("git");
@@ -81,9 +163,6 @@ public final class GitVersion {
             process.destroyForcibly();
             throw new RuntimeException("git " + String.join(" ", args) + " timed out");
         }
-        if (process.exitValue() != 0) {
-            throw new RuntimeException("git " + String.join(" ", args) + " failed: " + output);
-        }
-        return List.of(output.split("\n"));
+        return new GitResult(process.exitValue(), output);
     }
 }
@@ -0,0 +1,74 @@
+package org.jenkinsci.gradle.plugins.jpi2;
+
+import org.gradle.api.file.DirectoryProperty;
+import org.gradle.api.provider.Provider;
+import org.gradle.api.provider.ProviderFactory;
+import org.gradle.api.services.BuildService;
+import org.gradle.api.services.BuildServiceParameters;
+
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * A shared Gradle build service that hands out one {@link GitVersionValueSource} per repository and format options.
+ *
+ * <p>The effective plugin version is read by every project of the build. Each value source is obtained on its own,
+ * and so is each check of it before a cached configuration is reused, so projects of the same repository share a
+ * single source: {@code HEAD} is resolved and the working tree checked for changes once per repository, not once
+ * per project.
+ */
+public abstract class GitVersionService implements BuildService<GitVersionService.Params> {
+    /** Name under which the service is registered with the build's shared services. */
+    public static final String NAME = "jpi2GitVersion";
+
+    private final Map<Request, Provider<String>> versions = new ConcurrentHashMap<>();
+
+    /**
+     * Parameters for {@link GitVersionService}.
+     */
+    public interface Params extends BuildServiceParameters {
+        /** @return directory where commit depths are remembered between builds, see {@link CommitDepthCache} */
+        DirectoryProperty getDepthCacheDirectory();
+    }
+
+    /**
+     * The repository and options a version is computed for, mirroring {@link GitVersionExtension}.
+     *
+     * @param gitRoot         root of the Git repository
+     * @param versionFormat   format receiving the commit depth and the abbreviated hash
+     * @param versionPrefix   prefix prepended to the formatted version
+     * @param abbrevLength    length of the abbreviated hash
+     * @param allowDirty      whether uncommitted changes are allowed
+     * @param dirtyCheckPaths pathspecs checked for uncommitted changes; empty for the whole working tree
+     */
+    public record Request(Path gitRoot, String versionFormat, String versionPrefix, int abbrevLength, boolean allowDirty,
+                          List<String> dirtyCheckPaths) {
+        /** Normalizes the repository root and copies the pathspecs, so equal requests are equal records. */
+        public Request {
+            gitRoot = gitRoot.toAbsolutePath().normalize();
+            dirtyCheckPaths = List.copyOf(dirtyCheckPaths);
+        }
+    }
+
+    /**
+     * Returns the version of {@code request}'s repository, creating its value source on the first request only.
+     *
+     * @param providers creates the value source
+     * @param request   the repository and options
+     * @return the version, shared by all equal requests of the build
+     */
+    public Provider<String> version(ProviderFactory providers, Request request) {
+        return versions.computeIfAbsent(request, key -> providers.of(GitVersionValueSource.class, spec -> {
+            var parameters = spec.getParameters();
+            parameters.getGitRoot().set(key.gitRoot().toFile());
+            parameters.getVersionFormat().set(key.versionFormat());
+            parameters.getVersionPrefix().set(key.versionPrefix());
+            parameters.getAbbrevLength().set(key.abbrevLength());
+            parameters.getAllowDirty().set(key.allowDirty());
+            parameters.getDirtyCheckPaths().set(key.dirtyCheckPaths());
+            parameters.getDepthCacheDirectory().set(getParameters().getDepthCacheDirectory());
+        }));
+    }
+}
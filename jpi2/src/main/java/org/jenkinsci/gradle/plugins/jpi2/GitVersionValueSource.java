@@ -0,0 +1,77 @@
+package org.jenkinsci.gradle.plugins.jpi2;
+
+import org.gradle.api.file.DirectoryProperty;
+import org.gradle.api.provider.ListProperty;
+import org.gradle.api.provider.Property;
+import org.gradle.api.provider.ValueSource;
+import org.gradle.api.provider.ValueSourceParameters;
+import org.jetbrains.annotations.NotNull;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+
+/**
+ * The Git-derived plugin version, as a value Gradle knows to come from outside the build.
+ *
+ * <p>When the version is only read by tasks, the configuration cache stores this source rather than its
+ * value, so a cached configuration stays valid across commits and the version is computed when the build
+ * runs. When it is read during configuration, Gradle obtains it again before reusing a cached configuration,
+ * and discards the configuration only if the version changed. Obtaining it again with an unchanged
+ * {@code HEAD} is cheap: {@code HEAD} is read in-process and its depth comes straight from the
+ * {@link CommitDepthCache}, so only the dirty check (when enabled) starts {@code git}. The
+ * {@link GitVersionService} hands out one source per repository, so that happens once, not once per project.
+ */
+public abstract class GitVersionValueSource implements ValueSource<String, GitVersionValueSource.Params> {
+    private static final Logger LOGGER = LoggerFactory.getLogger(GitVersionValueSource.class);
+
+    /**
+     * Parameters for {@link GitVersionValueSource}, mirroring {@link GitVersionExtension}.
+     */
+    public interface Params extends ValueSourceParameters {
+        /** @return root of the Git repository */
+        DirectoryProperty getGitRoot();
+
+        /** @return format receiving the commit depth and the abbreviated hash */
+        Property<String> getVersionFormat();
+
+        /** @return prefix prepended to the formatted version */
+        Property<String> getVersionPrefix();
+
+        /** @return length of the abbreviated hash */
+        Property<Integer> getAbbrevLength();
+
+        /** @return whether uncommitted changes are allowed */
+        Property<Boolean> getAllowDirty();
+
+        /** @return pathspecs checked for uncommitted changes; empty for the whole working tree */
+        ListProperty<String> getDirtyCheckPaths();
+
+        /** @return directory where commit depths are remembered between builds */
+        DirectoryProperty getDepthCacheDirectory();
+    }
+
+    @Override
+    public @NotNull String obtain() {
+        var parameters = getParameters();
+        Path gitRoot = parameters.getGitRoot().get().getAsFile().toPath();
+        LOGGER.info("Computing the Git version of {}", gitRoot);
+        try {
+            return GitVersion.compute(
+                    gitRoot,
+                    parameters.getVersionFormat().get(),
+                    parameters.getVersionPrefix().get(),
+                    parameters.getAbbrevLength().get(),
+                    parameters.getAllowDirty().get(),
+                    parameters.getDirtyCheckPaths().get(),
+                    parameters.getDepthCacheDirectory().get().getAsFile().toPath()).version();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to compute the Git version of " + gitRoot, e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while computing the Git version of " + gitRoot, e);
+        }
+    }
+}
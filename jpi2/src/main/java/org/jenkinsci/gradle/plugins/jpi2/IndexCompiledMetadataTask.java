@@ -0,0 +1,63 @@
+package org.jenkinsci.gradle.plugins.jpi2;
+
+import org.gradle.api.DefaultTask;
+import org.gradle.api.GradleException;
+import org.gradle.api.file.ConfigurableFileCollection;
+import org.gradle.api.file.DirectoryProperty;
+import org.gradle.api.file.RegularFileProperty;
+import org.gradle.api.tasks.CacheableTask;
+import org.gradle.api.tasks.InputFiles;
+import org.gradle.api.tasks.Internal;
+import org.gradle.api.tasks.OutputFile;
+import org.gradle.api.tasks.PathSensitive;
+import org.gradle.api.tasks.PathSensitivity;
+import org.gradle.api.tasks.TaskAction;
+
+import java.io.IOException;
+
+/**
+ * Scans the main outputs once for Jenkins metadata (Sezpoz annotation indices, {@code @Extension} entries
+ * and {@code hudson.Plugin} declarations) and writes a compact index consumed by
+ * {@link CheckOverlappingSourcesTask} and {@link GenerateOptionalJenkinsManifestTask}.
+ */
+@CacheableTask
+public abstract class IndexCompiledMetadataTask extends DefaultTask {
+    /** Standard name under which this task is registered. */
+    public static final String NAME = "indexCompiledMetadata";
+
+    /** @return compiled-class and resource directories to scan */
+    @InputFiles
+    @PathSensitive(PathSensitivity.RELATIVE)
+    public abstract ConfigurableFileCollection getOutputDirectories();
+
+    /** @return those of {@link #getOutputDirectories()} that hold compiled classes rather than resources */
+    @InputFiles
+    @PathSensitive(PathSensitivity.RELATIVE)
+    public abstract ConfigurableFileCollection getClassesDirectories();
+
+    /**
+     * Directory that the owners recorded in the index are relative to. Not an input: relative owners are what
+     * keep the index relocatable.
+     *
+     * @return the project directory
+     */
+    @Internal
+    public abstract DirectoryProperty getProjectDirectory();
+
+    /** @return the index file to write */
+    @OutputFile
+    public abstract RegularFileProperty getIndexFile();
+
+    /** Scans the output directories and writes the index. */
+    @TaskAction
+    public void index() {
+        var destination = getIndexFile().get().getAsFile().toPath();
+        try {
+            CompiledMetadataIndex.scan(getOutputDirectories().getFiles(), getClassesDirectories().getFiles(),
+                            getProjectDirectory().get().getAsFile())
+                    .write(destination);
+        } catch (IOException e) {
+            throw new GradleException("Failed to write compiled metadata index " + destination, e);
+        }
+    }
+}
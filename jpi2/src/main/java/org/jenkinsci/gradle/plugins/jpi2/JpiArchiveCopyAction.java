@@ -0,0 +1,267 @@
+package org.jenkinsci.gradle.plugins.jpi2;
+
+import org.gradle.api.GradleException;
+import org.gradle.api.file.FileCopyDetails;
+import org.gradle.api.internal.file.copy.CopyAction;
+import org.gradle.api.internal.file.copy.CopyActionProcessingStream;
+import org.gradle.api.tasks.WorkResult;
+import org.gradle.api.tasks.WorkResults;
+import org.gradle.api.tasks.bundling.ZipEntryCompression;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Calendar;
+import java.util.Comparator;
+import java.util.GregorianCalendar;
+import java.util.HashSet;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.zip.CRC32;
+import java.util.zip.ZipEntry;
+
+/**
+ * Writes the entries of a {@link JpiArchiveTask} into a zip file, choosing the compression method per entry.
+ *
+ * <p>An index of the written entries is kept in {@code indexFile}. On the next run, a deflated entry whose
+ * content is unchanged (same size and CRC) has its compressed bytes copied from the previous archive instead
+ * of being compressed again; after a small code change that is nearly every entry. The result is byte-identical
+ * to an archive written from scratch.
+ *
+ * <p>When an exploded directory is given, every entry is also written there as it streams into the archive, so
+ * the unpacked plugin doesn't have to be copied a second time. Files that already hold their entry's content (same
+ * size and CRC, checked against the file itself so an edit made in place is undone) are left alone and files no
+ * longer in the archive are deleted.
+ */
+class JpiArchiveCopyAction implements CopyAction {
+    /** Same constant Gradle uses for archives that don't preserve file timestamps, so the output stays reproducible. */
+    static final long CONSTANT_TIME_FOR_ZIP_ENTRIES = new GregorianCalendar(1980, Calendar.FEBRUARY, 1, 0, 0, 0).getTimeInMillis();
+
+    private final File archiveFile;
+    private final File indexFile;
+    private final File explodedDirectory;
+    private final Set<String> explodedPaths = new HashSet<>();
+    private final ZipEntryCompression compression;
+    private final Set<String> storedExtensions;
+    private final String metadataCharset;
+    private final boolean preserveFileTimestamps;
+
+    JpiArchiveCopyAction(File archiveFile, File indexFile, File explodedDirectory, ZipEntryCompression compression, Set<String> storedExtensions, String metadataCharset, boolean preserveFileTimestamps) {
+        this.archiveFile = archiveFile;
+        this.indexFile = indexFile;
+        this.explodedDirectory = explodedDirectory;
+        this.compression = compression;
+        this.storedExtensions = storedExtensions.stream()
+                .map(extension -> extension.toLowerCase(Locale.ROOT))
+                .collect(Collectors.toSet());
+        this.metadataCharset = metadataCharset;
+        this.preserveFileTimestamps = preserveFileTimestamps;
+    }
+
+    @Override
+    public WorkResult execute(CopyActionProcessingStream stream) {
+        var charset = metadataCharset == null ? Charset.defaultCharset() : Charset.forName(metadataCharset);
+        var archive = archiveFile.toPath();
+        var index = indexFile.toPath();
+        var temporary = archive.resolveSibling(archive.getFileName() + ".tmp");
+        var previous = JpiArchiveWriter.readIndex(index, archive);
+        try {
+            // The previous archive is read while the new one is written, so write next to it and swap at the end.
+            // Drop the index first: should anything below fail, a stale index must not outlive its archive.
+            Files.deleteIfExists(index);
+            JpiArchiveWriter writer;
+            try (var source = previous.isEmpty() ? null : FileChannel.open(archive, StandardOpenOption.READ);
+                 var output = new JpiArchiveWriter(temporary, charset)) {
+                writer = output;
+                stream.process(details -> {
+                    try {
+                        write(output, details, previous, source);
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                });
+            }
+            Files.move(temporary, archive, StandardCopyOption.REPLACE_EXISTING);
+            JpiArchiveWriter.writeIndex(index, archive, writer.entries());
+            if (explodedDirectory != null) {
+                deleteStaleExplodedFiles();
+            }
+        } catch (IOException | UncheckedIOException e) {
+            throw new GradleException("Could not create plugin archive " + archiveFile, e);
+        } finally {
+            try {
+                Files.deleteIfExists(temporary);
+            } catch (IOException ignored) {
+                // Left behind for the next run to overwrite.
+            }
+        }
+        return WorkResults.didWork(true);
+    }
+
+    private void write(JpiArchiveWriter writer, FileCopyDetails details, Map<String, JpiArchiveWriter.Entry> previous, FileChannel source) throws IOException {
+        var path = details.getRelativePath().getPathString();
+        var time = preserveFileTimestamps ? details.getLastModified() : CONSTANT_TIME_FOR_ZIP_ENTRIES;
+        var permissions = details.getPermissions().toUnixNumeric();
+        var exploded = explodedFile(path);
+        var old = previous.get(path);
+        if (details.isDirectory()) {
+            writer.directory(path, time, permissions);
+            if (exploded != null) {
+                Files.createDirectories(exploded.toPath());
+            }
+        } else if (isStored(path)) {
+            // STORED entries must declare their size and CRC up front.
+            var crc = crcOf(details);
+            var refresh = exploded != null && !isExplodedCurrent(crc, details.getSize(), exploded);
+            try (var content = details.open(); var copy = refresh ? openExploded(exploded) : null) {
+                writer.stored(path, time, permissions, crc, details.getSize(), tee(content, copy));
+            }
+        } else if (old != null && isUnchanged(old, details) && writer.matchesLocalHeader(old, source)) {
+            writer.copy(path, time, permissions, old, source);
+            if (exploded != null && !isExplodedCurrent(old.crc(), old.size(), exploded)) {
+                try (var copy = openExploded(exploded)) {
+                    details.copyTo(copy);
+                }
+            }
+        } else {
+            try (var content = details.open(); var copy = exploded == null ? null : openExploded(exploded)) {
+                writer.deflated(path, time, permissions, tee(content, copy));
+            }
+        }
+    }
+
+    /** @return where {@code path} goes in the exploded directory, or {@code null} when there is none */
+    private File explodedFile(String path) {
+        if (explodedDirectory == null) {
+            return null;
+        }
+        for (var end = path.indexOf('/'); end >= 0; end = path.indexOf('/', end + 1)) {
+            explodedPaths.add(path.substring(0, end));
+        }
+        explodedPaths.add(path);
+        return new File(explodedDirectory, path);
+    }
+
+    /**
+     * @return whether {@code exploded} already holds the entry's content. Reading the file back is much cheaper than
+     * writing it, and unlike its length or the previous archive's index it catches same-length edits made in place.
+     */
+    private static boolean isExplodedCurrent(long crc, long size, File exploded) throws IOException {
+        if (!exploded.isFile() || exploded.length() != size) {
+            return false;
+        }
+        var actual = new CRC32();
+        try (var in = Files.newInputStream(exploded.toPath())) {
+            var buffer = new byte[8192];
+            int read;
+            while ((read = in.read(buffer)) != -1) {
+                actual.update(buffer, 0, read);
+            }
+        }
+        return actual.getValue() == crc;
+    }
+
+    private static OutputStream openExploded(File exploded) throws IOException {
+        var target = exploded.toPath();
+        if (Files.isDirectory(target)) {
+            deleteRecursively(target);
+        }
+        Files.createDirectories(target.getParent());
+        return new BufferedOutputStream(Files.newOutputStream(target));
+    }
+
+    /** @return {@code content}, also copying everything read from it into {@code copy} when that is not {@code null} */
+    private static InputStream tee(InputStream content, OutputStream copy) {
+        if (copy == null) {
+            return content;
+        }
+        return new FilterInputStream(content) {
+            @Override
+            public int read() throws IOException {
+                var b = super.read();
+                if (b != -1) {
+                    copy.write(b);
+                }
+                return b;
+            }
+
+            @Override
+            public int read(byte[] b, int off, int len) throws IOException {
+                var read = super.read(b, off, len);
+                if (read > 0) {
+                    copy.write(b, off, read);
+                }
+                return read;
+            }
+        };
+    }
+
+    private void deleteStaleExplodedFiles() throws IOException {
+        var root = explodedDirectory.toPath();
+        if (!Files.isDirectory(root)) {
+            return;
+        }
+        try (var paths = Files.walk(root)) {
+            var stale = paths
+                    .filter(file -> !file.equals(root))
+                    .filter(file -> !explodedPaths.contains(root.relativize(file).toString().replace(File.separatorChar, '/')))
+                    .sorted(Comparator.reverseOrder())
+                    .toList();
+            for (var file : stale) {
+                Files.deleteIfExists(file);
+            }
+        }
+    }
+
+    private static void deleteRecursively(Path directory) throws IOException {
+        try (var paths = Files.walk(directory)) {
+            for (var file : paths.sorted(Comparator.reverseOrder()).toList()) {
+                Files.delete(file);
+            }
+        }
+    }
+
+    private static boolean isUnchanged(JpiArchiveWriter.Entry old, FileCopyDetails details) {
+        return old.method() == ZipEntry.DEFLATED
+                && !old.isDirectory()
+                && old.size() == details.getSize()
+                && old.crc() == crcOf(details);
+    }
+
+    private static long crcOf(FileCopyDetails details) {
+        var crc = new CRC32();
+        details.copyTo(new OutputStream() {
+            @Override
+            public void write(int b) {
+                crc.update(b);
+            }
+
+            @Override
+            public void write(byte[] b, int off, int len) {
+                crc.update(b, off, len);
+            }
+        });
+        return crc.getValue();
+    }
+
+    private boolean isStored(String path) {
+        if (compression == ZipEntryCompression.STORED) {
+            return true;
+        }
+        var name = path.substring(path.lastIndexOf('/') + 1);
+        var dot = name.lastIndexOf('.');
+        return dot >= 0 && storedExtensions.contains(name.substring(dot + 1).toLowerCase(Locale.ROOT));
+    }
+}
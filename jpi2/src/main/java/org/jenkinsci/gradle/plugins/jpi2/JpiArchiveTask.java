@@ -0,0 +1,48 @@
+package org.jenkinsci.gradle.plugins.jpi2;
+
+import org.gradle.api.file.DirectoryProperty;
+import org.gradle.api.internal.file.copy.CopyAction;
+import org.gradle.api.provider.SetProperty;
+import org.gradle.api.tasks.Input;
+import org.gradle.api.tasks.Optional;
+import org.gradle.api.tasks.OutputDirectory;
+import org.gradle.api.tasks.bundling.War;
+
+import java.io.File;
+
+/**
+ * Builds the plugin archive. Behaves like {@link War}, except that entries whose extension is listed in
+ * {@link #getStoredExtensions()} are written {@code STORED}: nested jars and images are already compressed,
+ * so deflating them again costs CPU without making the archive smaller.
+ *
+ * <p>Rebuilding the archive reuses the compressed bytes of unchanged entries from the previous archive; see
+ * {@link JpiArchiveCopyAction}.
+ */
+public abstract class JpiArchiveTask extends War {
+
+    /**
+     * @return file extensions (without the leading dot, case-insensitive) of entries written without compression
+     */
+    @Input
+    public abstract SetProperty<String> getStoredExtensions();
+
+    /**
+     * @return directory the archive's content is also unpacked into while the archive is written; only changed
+     * files are rewritten there. Nothing is unpacked when not set.
+     */
+    @OutputDirectory
+    @Optional
+    public abstract DirectoryProperty getExplodedDirectory();
+
+    @Override
+    protected CopyAction createCopyAction() {
+        return new JpiArchiveCopyAction(
+                getArchiveFile().get().getAsFile(),
+                new File(getTemporaryDir(), "archive-index.bin"),
+                getExplodedDirectory().isPresent() ? getExplodedDirectory().get().getAsFile() : null,
+                getEntryCompression(),
+                getStoredExtensions().get(),
+                getMetadataCharset(),
+                isPreserveFileTimestamps());
+    }
+}
@@ -0,0 +1,382 @@
+package org.jenkinsci.gradle.plugins.jpi2;
+
+import org.gradle.api.GradleException;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+import java.util.zip.ZipEntry;
+
+/**
+ * Minimal zip writer for the plugin archive.
+ *
+ * <p>Unlike {@link java.util.zip.ZipOutputStream} it can copy the compressed bytes of an entry straight from a
+ * previously written archive, which is what makes {@link JpiArchiveCopyAction} incremental. The layout of every
+ * entry depends only on its name, metadata and content, so a copied entry is byte-identical to a freshly
+ * compressed one:
+ * <ul>
+ *     <li>stored entries carry their CRC and sizes in the local header;</li>
+ *     <li>deflated entries are streamed and followed by a data descriptor, as {@code ZipOutputStream} does;</li>
+ *     <li>no extra fields or comments are written.</li>
+ * </ul>
+ * Archives that need Zip64 extensions are rejected.
+ */
+final class JpiArchiveWriter implements AutoCloseable {
+    private static final int LOCAL_HEADER_SIGNATURE = 0x04034b50;
+    private static final int DATA_DESCRIPTOR_SIGNATURE = 0x08074b50;
+    private static final int CENTRAL_HEADER_SIGNATURE = 0x02014b50;
+    private static final int END_OF_CENTRAL_DIRECTORY_SIGNATURE = 0x06054b50;
+    static final int LOCAL_HEADER_LENGTH = 30;
+    private static final int FLAG_DATA_DESCRIPTOR = 0x0008;
+    private static final int FLAG_UTF8 = 0x0800;
+    private static final int MADE_BY_UNIX = 3 << 8;
+    private static final int UNIX_FILE = 0100000;
+    private static final int UNIX_DIRECTORY = 040000;
+    private static final int MSDOS_DIRECTORY = 0x10;
+    private static final long ZIP32_LIMIT = 0xFFFFFFFFL;
+    private static final int ZIP32_ENTRY_LIMIT = 0xFFFF;
+    private static final String INDEX_MAGIC = "jpi-archive-index";
+    private static final int INDEX_VERSION = 1;
+
+    /**
+     * What the writer remembers about every entry, persisted as the archive's index so a later build can
+     * find the entry's compressed bytes again.
+     */
+    record Entry(String path, int method, int flags, long time, int mode, long crc, long size, long compressedSize, long headerOffset) {
+        boolean isDirectory() {
+            return path.endsWith("/");
+        }
+    }
+
+    private final CountingOutputStream out;
+    private final Charset charset;
+    private final List<Entry> entries = new ArrayList<>();
+    private final Deflater deflater = new Deflater(Deflater.DEFAULT_COMPRESSION, true);
+    private final byte[] buffer = new byte[64 * 1024];
+    private final byte[] compressed = new byte[64 * 1024];
+
+    JpiArchiveWriter(Path archive, Charset charset) throws IOException {
+        this.out = new CountingOutputStream(new BufferedOutputStream(Files.newOutputStream(archive), 64 * 1024));
+        this.charset = charset;
+    }
+
+    /** @return entries written so far, in archive order */
+    List<Entry> entries() {
+        return entries;
+    }
+
+    Entry directory(String path, long time, int permissions) throws IOException {
+        var entry = new Entry(path + "/", ZipEntry.STORED, nameFlags(), time, UNIX_DIRECTORY | permissions, 0, 0, 0, out.count);
+        writeLocalHeader(entry);
+        entries.add(entry);
+        return entry;
+    }
+
+    /** Writes {@code content} uncompressed; {@code crc} and {@code size} must describe it. */
+    Entry stored(String path, long time, int permissions, long crc, long size, InputStream content) throws IOException {
+        var entry = new Entry(path, ZipEntry.STORED, nameFlags(), time, UNIX_FILE | permissions, crc, size, size, out.count);
+        writeLocalHeader(entry);
+        var copied = content.transferTo(out);
+        if (copied != size) {
+            throw new IOException("Entry " + path + " changed while it was being archived");
+        }
+        entries.add(entry);
+        return entry;
+    }
+
+    /** Deflates {@code content} into the archive. */
+    Entry deflated(String path, long time, int permissions, InputStream content) throws IOException {
+        var headerOffset = out.count;
+        var flags = nameFlags() | FLAG_DATA_DESCRIPTOR;
+        writeLocalHeader(new Entry(path, ZipEntry.DEFLATED, flags, time, UNIX_FILE | permissions, 0, 0, 0, headerOffset));
+        var dataOffset = out.count;
+        var crc = new CRC32();
+        long size = 0;
+        deflater.reset();
+        int read;
+        while ((read = content.read(buffer)) != -1) {
+            crc.update(buffer, 0, read);
+            size += read;
+            deflater.setInput(buffer, 0, read);
+            while (!deflater.needsInput()) {
+                drainDeflater();
+            }
+        }
+        deflater.finish();
+        while (!deflater.finished()) {
+            drainDeflater();
+        }
+        var entry = new Entry(path, ZipEntry.DEFLATED, flags, time, UNIX_FILE | permissions, crc.getValue(), size, out.count - dataOffset, headerOffset);
+        writeDataDescriptor(entry);
+        entries.add(entry);
+        return entry;
+    }
+
+    /**
+     * Copies the compressed bytes of {@code previous}, an entry of the archive readable through {@code source},
+     * under the new entry's metadata.
+     */
+    Entry copy(String path, long time, int permissions, Entry previous, FileChannel source) throws IOException {
+        var flags = nameFlags() | (previous.flags() & FLAG_DATA_DESCRIPTOR);
+        var entry = new Entry(path, previous.method(), flags, time, UNIX_FILE | permissions,
+                previous.crc(), previous.size(), previous.compressedSize(), out.count);
+        writeLocalHeader(entry);
+        var data = Channels.newInputStream(source.position(dataOffset(previous)));
+        var remaining = previous.compressedSize();
+        while (remaining > 0) {
+            var read = data.read(buffer, 0, (int) Math.min(buffer.length, remaining));
+            if (read == -1) {
+                throw new IOException("Previous archive ends inside entry " + previous.path());
+            }
+            out.write(buffer, 0, read);
+            remaining -= read;
+        }
+        if (entry.method() == ZipEntry.DEFLATED) {
+            writeDataDescriptor(entry);
+        }
+        entries.add(entry);
+        return entry;
+    }
+
+    /** @return offset of the first byte of {@code entry}'s data, after its local header */
+    long dataOffset(Entry entry) {
+        return entry.headerOffset() + LOCAL_HEADER_LENGTH + entry.path().getBytes(charset).length;
+    }
+
+    /**
+     * @return whether the local header found at {@code entry}'s offset in {@code source} belongs to that entry,
+     * i.e. whether the index and the archive still agree
+     */
+    boolean matchesLocalHeader(Entry entry, FileChannel source) throws IOException {
+        var name = entry.path().getBytes(charset);
+        var header = ByteBuffer.allocate(LOCAL_HEADER_LENGTH + name.length).order(ByteOrder.LITTLE_ENDIAN);
+        while (header.hasRemaining()) {
+            if (source.read(header, entry.headerOffset() + header.position()) == -1) {
+                return false;
+            }
+        }
+        header.flip();
+        if (header.getInt(0) != LOCAL_HEADER_SIGNATURE
+                || Short.toUnsignedInt(header.getShort(8)) != entry.method()
+                || Short.toUnsignedInt(header.getShort(26)) != name.length
+                || header.getShort(28) != 0) {
+            return false;
+        }
+        return header.slice(LOCAL_HEADER_LENGTH, name.length).equals(ByteBuffer.wrap(name));
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            var centralDirectoryOffset = out.count;
+            for (var entry : entries) {
+                writeCentralHeader(entry);
+            }
+            var centralDirectorySize = out.count - centralDirectoryOffset;
+            if (entries.size() > ZIP32_ENTRY_LIMIT || out.count > ZIP32_LIMIT) {
+                throw new GradleException("Plugin archive exceeds the size or entry-count limits of the zip format");
+            }
+            writeInt(END_OF_CENTRAL_DIRECTORY_SIGNATURE);
+            writeShort(0);
+            writeShort(0);
+            writeShort(entries.size());
+            writeShort(entries.size());
+            writeInt(centralDirectorySize);
+            writeInt(centralDirectoryOffset);
+            writeShort(0);
+        } finally {
+            deflater.end();
+            out.close();
+        }
+    }
+
+    private int nameFlags() {
+        return StandardCharsets.UTF_8.equals(charset) ? FLAG_UTF8 : 0;
+    }
+
+    private void drainDeflater() throws IOException {
+        var length = deflater.deflate(compressed);
+        out.write(compressed, 0, length);
+    }
+
+    private void writeLocalHeader(Entry entry) throws IOException {
+        var name = entry.path().getBytes(charset);
+        var descriptor = (entry.flags() & FLAG_DATA_DESCRIPTOR) != 0;
+        writeInt(LOCAL_HEADER_SIGNATURE);
+        writeShort(versionNeeded(entry));
+        writeShort(entry.flags());
+        writeShort(entry.method());
+        writeInt(dosTime(entry.time()));
+        writeInt(descriptor ? 0 : entry.crc());
+        writeInt(descriptor ? 0 : entry.compressedSize());
+        writeInt(descriptor ? 0 : entry.size());
+        writeShort(name.length);
+        writeShort(0);
+        out.write(name);
+    }
+
+    private void writeDataDescriptor(Entry entry) throws IOException {
+        writeInt(DATA_DESCRIPTOR_SIGNATURE);
+        writeInt(entry.crc());
+        writeInt(entry.compressedSize());
+        writeInt(entry.size());
+    }
+
+    private void writeCentralHeader(Entry entry) throws IOException {
+        var name = entry.path().getBytes(charset);
+        if (entry.size() > ZIP32_LIMIT || entry.compressedSize() > ZIP32_LIMIT || entry.headerOffset() > ZIP32_LIMIT) {
+            throw new GradleException("Plugin archive entry " + entry.path() + " exceeds the size limits of the zip format");
+        }
+        writeInt(CENTRAL_HEADER_SIGNATURE);
+        writeShort(MADE_BY_UNIX | 20);
+        writeShort(versionNeeded(entry));
+        writeShort(entry.flags());
+        writeShort(entry.method());
+        writeInt(dosTime(entry.time()));
+        writeInt(entry.crc());
+        writeInt(entry.compressedSize());
+        writeInt(entry.size());
+        writeShort(name.length);
+        writeShort(0);
+        writeShort(0);
+        writeShort(0);
+        writeShort(0);
+        writeInt(((long) entry.mode() << 16) | (entry.isDirectory() ? MSDOS_DIRECTORY : 0));
+        writeInt(entry.headerOffset());
+        out.write(name);
+    }
+
+    private static int versionNeeded(Entry entry) {
+        return entry.method() == ZipEntry.DEFLATED || (entry.flags() & FLAG_DATA_DESCRIPTOR) != 0 ? 20 : 10;
+    }
+
+    /** Converts to MS-DOS date and time in the local time zone, like {@link ZipEntry#setTime(long)}. */
+    private static long dosTime(long time) {
+        var date = LocalDateTime.ofInstant(Instant.ofEpochMilli(time), ZoneId.systemDefault());
+        if (date.getYear() < 1980) {
+            return (1 << 21) | (1 << 16);
+        }
+        return ((long) (date.getYear() - 1980) << 25)
+                | ((long) date.getMonthValue() << 21)
+                | ((long) date.getDayOfMonth() << 16)
+                | ((long) date.getHour() << 11)
+                | ((long) date.getMinute() << 5)
+                | ((long) date.getSecond() >> 1);
+    }
+
+    private void writeShort(int value) throws IOException {
+        out.write(value & 0xFF);
+        out.write((value >>> 8) & 0xFF);
+    }
+
+    private void writeInt(long value) throws IOException {
+        writeShort((int) (value & 0xFFFF));
+        writeShort((int) ((value >>> 16) & 0xFFFF));
+    }
+
+    /**
+     * Writes the index of {@code entries}, describing the archive at {@code archive}. Besides the entries it
+     * records the archive's length and the JVM, whose deflater output a reused entry must match.
+     */
+    static void writeIndex(Path index, Path archive, List<Entry> entries) throws IOException {
+        Files.createDirectories(index.getParent());
+        try (var data = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(index)))) {
+            data.writeUTF(INDEX_MAGIC);
+            data.writeInt(INDEX_VERSION);
+            data.writeUTF(deflaterIdentity());
+            data.writeLong(Files.size(archive));
+            data.writeInt(entries.size());
+            for (var entry : entries) {
+                data.writeUTF(entry.path());
+                data.writeInt(entry.method());
+                data.writeInt(entry.flags());
+                data.writeLong(entry.time());
+                data.writeInt(entry.mode());
+                data.writeLong(entry.crc());
+                data.writeLong(entry.size());
+                data.writeLong(entry.compressedSize());
+                data.writeLong(entry.headerOffset());
+            }
+        }
+    }
+
+    /**
+     * @return the entries of {@code archive} by path, or an empty map when {@code index} is missing, unreadable or
+     * does not describe {@code archive} as it currently is
+     */
+    static Map<String, Entry> readIndex(Path index, Path archive) {
+        var entries = new HashMap<String, Entry>();
+        if (!Files.isRegularFile(index) || !Files.isRegularFile(archive)) {
+            return entries;
+        }
+        try (var data = new DataInputStream(new BufferedInputStream(Files.newInputStream(index)))) {
+            if (!INDEX_MAGIC.equals(data.readUTF())
+                    || data.readInt() != INDEX_VERSION
+                    || !deflaterIdentity().equals(data.readUTF())
+                    || data.readLong() != Files.size(archive)) {
+                return entries;
+            }
+            var count = data.readInt();
+            for (int i = 0; i < count; i++) {
+                var entry = new Entry(data.readUTF(), data.readInt(), data.readInt(), data.readLong(), data.readInt(),
+                        data.readLong(), data.readLong(), data.readLong(), data.readLong());
+                entries.put(entry.path(), entry);
+            }
+            return entries;
+        } catch (IOException e) {
+            entries.clear();
+            return entries;
+        }
+    }
+
+    private static String deflaterIdentity() {
+        return System.getProperty("java.vendor") + " " + System.getProperty("java.runtime.version");
+    }
+
+    private static final class CountingOutputStream extends OutputStream {
+        private final OutputStream delegate;
+        private long count;
+
+        CountingOutputStream(OutputStream delegate) {
+            this.delegate = delegate;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            delegate.write(b);
+            count++;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            delegate.write(b, off, len);
+            count += len;
+        }
+
+        @Override
+        public void close() throws IOException {
+            delegate.close();
+        }
+    }
+}
@@ -0,0 +1,151 @@
+package org.jenkinsci.gradle.plugins.jpi2;
+
+import org.gradle.api.Transformer;
+import org.gradle.api.artifacts.ArtifactCollection;
+import org.gradle.api.artifacts.component.ComponentIdentifier;
+import org.gradle.api.artifacts.component.ModuleComponentIdentifier;
+import org.gradle.api.artifacts.component.ProjectComponentIdentifier;
+import org.gradle.api.artifacts.result.ResolvedArtifactResult;
+import org.gradle.api.file.FileCollection;
+import org.gradle.api.provider.Provider;
+import org.gradle.api.specs.Spec;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.File;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * The Jenkins plugin archives and {@code .hpl} files among resolved artifacts, and the names they are staged
+ * under in a Jenkins work directory.
+ *
+ * <p>Nothing here resolves when it is created. The file collections and the rename read the artifacts when the
+ * task staging them runs, so configuring that task leaves the plugin graph unresolved.
+ */
+final class PluginArtifactFiles {
+    private static final String HPL_EXTENSION = ".hpl";
+
+    private PluginArtifactFiles() {
+    }
+
+    /** @return the plugin archives among {@code artifacts} */
+    @NotNull
+    static FileCollection archives(@NotNull ArtifactCollection artifacts) {
+        return artifacts.getArtifactFiles().filter(PluginArtifactFiles::isArchive);
+    }
+
+    /**
+     * @return the plugin archives among {@code artifacts}, except those of components that offer an {@code .hpl}
+     * in {@code hpls}
+     */
+    @NotNull
+    static FileCollection archivesWithoutHpl(@NotNull ArtifactCollection artifacts, @NotNull ArtifactCollection hpls) {
+        return archives(artifacts).filter(new WithoutHpl(artifacts.getResolvedArtifacts(), hpls.getResolvedArtifacts()));
+    }
+
+    /** @return the {@code .hpl} files among {@code artifacts} */
+    @NotNull
+    static FileCollection hpls(@NotNull ArtifactCollection artifacts) {
+        return artifacts.getArtifactFiles().filter(PluginArtifactFiles::isHpl);
+    }
+
+    /**
+     * @param targetExtension archive extension to normalise to (e.g. {@code jpi} or {@code hpi})
+     * @return a rename that stages each plugin archive among {@code artifacts} as {@code <short name>.<extension>}
+     */
+    @NotNull
+    static Transformer<String, String> stagedNames(@NotNull ArtifactCollection artifacts, @NotNull Provider<String> targetExtension) {
+        return new StagedName(artifacts.getResolvedArtifacts(), targetExtension);
+    }
+
+    /** As {@link #stagedNames(ArtifactCollection, Provider)}, with a fixed extension. */
+    @NotNull
+    static Transformer<String, String> stagedNames(@NotNull ArtifactCollection artifacts, @NotNull String targetExtension) {
+        return new StagedName(artifacts.getResolvedArtifacts(), artifacts.getResolvedArtifacts().map(ignored -> targetExtension));
+    }
+
+    /** @return whether {@code file} is a plugin archive, judged by its extension */
+    static boolean isArchive(File file) {
+        var name = file.getName();
+        var dot = name.lastIndexOf('.');
+        return dot >= 0 && HpiMetadataRule.PLUGIN_PACKAGINGS.contains(name.substring(dot + 1));
+    }
+
+    private static boolean isHpl(File file) {
+        return file.getName().endsWith(HPL_EXTENSION);
+    }
+
+    /** @return the plugin short name of the component, or {@code null} for components that are not modules or projects */
+    @Nullable
+    static String shortName(ComponentIdentifier component) {
+        if (component instanceof ModuleComponentIdentifier module) {
+            return module.getModule();
+        }
+        if (component instanceof ProjectComponentIdentifier project) {
+            return project.getProjectName();
+        }
+        return null;
+    }
+
+    private static final class StagedName implements Transformer<String, String> {
+        private final Provider<Set<ResolvedArtifactResult>> artifacts;
+        private final Provider<String> targetExtension;
+        private transient Map<String, String> namesByFileName;
+
+        private StagedName(Provider<Set<ResolvedArtifactResult>> artifacts, Provider<String> targetExtension) {
+            this.artifacts = artifacts;
+            this.targetExtension = targetExtension;
+        }
+
+        /** @return the staged name, or {@code null} to keep {@code fileName} */
+        @Override
+        public String transform(@NotNull String fileName) {
+            if (namesByFileName == null) {
+                var extension = targetExtension.get();
+                var names = new HashMap<String, String>();
+                for (var artifact : artifacts.get()) {
+                    var shortName = shortName(artifact.getId().getComponentIdentifier());
+                    if (shortName != null && isArchive(artifact.getFile())) {
+                        names.putIfAbsent(artifact.getFile().getName(), shortName + "." + extension);
+                    }
+                }
+                namesByFileName = names;
+            }
+            return namesByFileName.get(fileName);
+        }
+    }
+
+    private static final class WithoutHpl implements Spec<File> {
+        private final Provider<Set<ResolvedArtifactResult>> artifacts;
+        private final Provider<Set<ResolvedArtifactResult>> hpls;
+        private transient Set<File> replaced;
+
+        private WithoutHpl(Provider<Set<ResolvedArtifactResult>> artifacts, Provider<Set<ResolvedArtifactResult>> hpls) {
+            this.artifacts = artifacts;
+            this.hpls = hpls;
+        }
+
+        @Override
+        public boolean isSatisfiedBy(File file) {
+            if (replaced == null) {
+                var hplOwners = new HashSet<ComponentIdentifier>();
+                for (var hpl : hpls.get()) {
+                    if (isHpl(hpl.getFile())) {
+                        hplOwners.add(hpl.getId().getComponentIdentifier());
+                    }
+                }
+                var files = new HashSet<File>();
+                for (var artifact : artifacts.get()) {
+                    if (hplOwners.contains(artifact.getId().getComponentIdentifier())) {
+                        files.add(artifact.getFile());
+                    }
+                }
+                replaced = files;
+            }
+            return !replaced.contains(file);
+        }
+    }
+}
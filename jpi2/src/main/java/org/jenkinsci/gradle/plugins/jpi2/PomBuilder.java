@@ -8,28 +8,107 @@ import org.gradle.api.Project;
 import org.gradle.api.XmlProvider;
 import org.gradle.api.artifacts.Configuration;
 import org.gradle.api.artifacts.repositories.MavenArtifactRepository;
+import org.gradle.api.artifacts.result.ResolvedComponentResult;
+import org.gradle.api.artifacts.result.ResolvedDependencyResult;
 import org.gradle.api.logging.Logger;
+import org.gradle.api.logging.Logging;
+import org.gradle.api.provider.Provider;
 import org.jetbrains.annotations.NotNull;
 
 import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
 /**
  * Action to update the POM file with resolved dependencies, repositories, plugin metadata,
  * developers, and licenses.
+ *
+ * <p>The action runs when the POM is generated, so it only holds providers of plain values and never the
+ * {@link Project}, its configurations or the extension; that keeps it storable in the configuration cache.
  */
 class PomBuilder implements Action<XmlProvider> {
-    private final Configuration runtimeClasspath;
-    private final Project project;
-    private final JenkinsPluginExtension extension;
-    private final Logger logger;
-
-    public PomBuilder(Configuration runtimeClasspath, Project project, JenkinsPluginExtension extension, Logger logger) {
-        this.runtimeClasspath = runtimeClasspath;
-        this.project = project;
-        this.extension = extension;
-        this.logger = logger;
+    private static final Logger LOGGER = Logging.getLogger(PomBuilder.class);
+
+    private final Provider<Map<String, String>> resolvedVersions;
+    private final Provider<Map<String, String>> repositories;
+    private final Provider<List<Developer>> developers;
+    private final Provider<List<Map<String, String>>> licenses;
+    private final Provider<String> packaging;
+
+    public PomBuilder(Configuration runtimeClasspath, Project project, JenkinsPluginExtension extension) {
+        this.resolvedVersions = runtimeClasspath.getIncoming().getResolutionResult().getRootComponent()
+                .map(PomBuilder::firstLevelModuleVersions);
+        this.repositories = project.provider(() -> mavenRepositories(project));
+        this.developers = extension.getPluginDevelopers().map(devs -> devs.stream().map(Developer::of).toList());
+        this.licenses = extension.getPluginLicenses().map(all -> all.stream().map(PomBuilder::licenseElements).toList());
+        this.packaging = extension.getArchiveExtension();
+    }
+
+    /**
+     * Plain copy of a {@link PluginDeveloper}: the POM elements that are set, in POM order, plus roles and properties.
+     */
+    static final class Developer {
+        private final Map<String, String> elements;
+        private final List<String> roles;
+        private final Map<String, String> properties;
+
+        private Developer(Map<String, String> elements, List<String> roles, Map<String, String> properties) {
+            this.elements = elements;
+            this.roles = roles;
+            this.properties = properties;
+        }
+
+        static Developer of(PluginDeveloper dev) {
+            var elements = new LinkedHashMap<String, String>();
+            putIfPresent(elements, "id", dev.getId().getOrNull());
+            putIfPresent(elements, "name", dev.getName().getOrNull());
+            putIfPresent(elements, "email", dev.getEmail().getOrNull());
+            putIfPresent(elements, "url", dev.getUrl().getOrNull());
+            putIfPresent(elements, "organization", dev.getOrganization().getOrNull());
+            putIfPresent(elements, "organizationUrl", dev.getOrganizationUrl().getOrNull());
+            putIfPresent(elements, "timezone", dev.getTimezone().getOrNull());
+            return new Developer(elements, List.copyOf(dev.getRoles().get()), new LinkedHashMap<>(dev.getProperties().get()));
+        }
+    }
+
+    private static Map<String, String> firstLevelModuleVersions(ResolvedComponentResult root) {
+        var versions = new LinkedHashMap<String, String>();
+        for (var dependency : root.getDependencies()) {
+            if (dependency instanceof ResolvedDependencyResult resolved && !dependency.isConstraint()) {
+                var module = resolved.getSelected().getModuleVersion();
+                if (module != null) {
+                    versions.putIfAbsent(module.getGroup() + ":" + module.getName(), module.getVersion());
+                }
+            }
+        }
+        return versions;
+    }
+
+    private static Map<String, String> mavenRepositories(Project project) {
+        var repositories = new LinkedHashMap<String, String>();
+        project.getRepositories().forEach(it -> {
+            if (it instanceof MavenArtifactRepository m) {
+                repositories.put(it.getName(), m.getUrl().toString());
+            }
+        });
+        return repositories;
+    }
+
+    private static Map<String, String> licenseElements(PluginLicense license) {
+        var elements = new LinkedHashMap<String, String>();
+        putIfPresent(elements, "name", license.getName().getOrNull());
+        putIfPresent(elements, "url", license.getUrl().getOrNull());
+        putIfPresent(elements, "distribution", license.getDistribution().getOrNull());
+        putIfPresent(elements, "comments", license.getComments().getOrNull());
+        return elements;
+    }
+
+    private static void putIfPresent(Map<String, String> elements, String name, String value) {
+        if (value != null) {
+            elements.put(name, value);
+        }
     }
 
     private static Optional<String> getNodeElement(Node dependencyNode, String elementName) {
@@ -55,8 +134,7 @@ class PomBuilder implements Action<XmlProvider> {
     }
 
     private void resolveDependencyVersions(Node root) {
-        var resolvedDependencies = runtimeClasspath.getResolvedConfiguration()
-                .getFirstLevelModuleDependencies();
+        var resolvedDependencies = resolvedVersions.get();
 
         final var originalDependencies = root.getAt(new QName(POM_NS, "dependencies"));
         final var dependencies = originalDependencies.isEmpty()
@@ -77,18 +155,16 @@ class PomBuilder implements Action<XmlProvider> {
             assert groupId.isPresent();
             assert artifactId.isPresent();
 
-            var resolvedDependency = resolvedDependencies.stream()
-                    .filter(it -> it.getModuleGroup().equals(groupId.get()) && it.getModuleName().equals(artifactId.get()))
-                    .findFirst();
+            var resolvedVersion = resolvedDependencies.get(groupId.get() + ":" + artifactId.get());
 
-            if (resolvedDependency.isPresent()) {
+            if (resolvedVersion != null) {
                 if (version.isPresent()) {
                     var versionNode = (Node) dependencyNode.getAt(new QName(POM_NS, "version")).get(0);
                     dependencyNode.remove(versionNode);
                 }
-                dependencyNode.appendNode(new QName(POM_NS, "version"), resolvedDependency.get().getModuleVersion());
+                dependencyNode.appendNode(new QName(POM_NS, "version"), resolvedVersion);
             } else {
-                logger.warn("Dependency not found: {}:{}", groupId, artifactId);
+                LOGGER.warn("Dependency not found: {}:{}", groupId, artifactId);
             }
         });
     }
@@ -99,75 +175,62 @@ class PomBuilder implements Action<XmlProvider> {
                 ? root.appendNode("repositories")
                 : (Node) originalRepositories.get(0);
 
-        project.getRepositories().forEach(it -> {
-            if (it instanceof MavenArtifactRepository m) {
-                var repository = repositories.appendNode("repository");
-                repository.appendNode("id", it.getName());
-                repository.appendNode("url", m.getUrl());
-            }
+        this.repositories.get().forEach((name, url) -> {
+            var repository = repositories.appendNode("repository");
+            repository.appendNode("id", name);
+            repository.appendNode("url", url);
         });
     }
 
     private void addDevelopers(Node root) {
-        var devs = extension.getPluginDevelopers().get();
+        var devs = developers.get();
         if (devs.isEmpty()) {
             return;
         }
         var developersNode = root.appendNode(new QName(POM_NS, "developers"));
         for (var dev : devs) {
             var developerNode = developersNode.appendNode(new QName(POM_NS, "developer"));
-            appendIfPresent(developerNode, "id", dev.getId().getOrNull());
-            appendIfPresent(developerNode, "name", dev.getName().getOrNull());
-            appendIfPresent(developerNode, "email", dev.getEmail().getOrNull());
-            appendIfPresent(developerNode, "url", dev.getUrl().getOrNull());
-            appendIfPresent(developerNode, "organization", dev.getOrganization().getOrNull());
-            appendIfPresent(developerNode, "organizationUrl", dev.getOrganizationUrl().getOrNull());
-            appendIfPresent(developerNode, "timezone", dev.getTimezone().getOrNull());
+            dev.elements.forEach((name, value) -> developerNode.appendNode(new QName(POM_NS, name), value));
             addDeveloperRoles(developerNode, dev);
             addDeveloperProperties(developerNode, dev);
         }
     }
 
-    private void addDeveloperRoles(Node developerNode, PluginDeveloper dev) {
-        var roles = dev.getRoles().get();
-        if (roles.isEmpty()) {
+    private void addDeveloperRoles(Node developerNode, Developer dev) {
+        if (dev.roles.isEmpty()) {
             return;
         }
         var rolesNode = developerNode.appendNode(new QName(POM_NS, "roles"));
-        for (var role : roles) {
+        for (var role : dev.roles) {
             rolesNode.appendNode(new QName(POM_NS, "role"), role);
         }
     }
 
-    private void addDeveloperProperties(Node developerNode, PluginDeveloper dev) {
-        var properties = dev.getProperties().get();
-        if (properties.isEmpty()) {
+    private void addDeveloperProperties(Node developerNode, Developer dev) {
+        if (dev.properties.isEmpty()) {
             return;
         }
         var propertiesNode = developerNode.appendNode(new QName(POM_NS, "properties"));
-        for (var entry : properties.entrySet()) {
+        for (var entry : dev.properties.entrySet()) {
             propertiesNode.appendNode(new QName(POM_NS, entry.getKey()), entry.getValue());
         }
     }
 
     private void addLicenses(Node root) {
-        var licenses = extension.getPluginLicenses().get();
-        if (licenses.isEmpty()) {
+        var all = licenses.get();
+        if (all.isEmpty()) {
             return;
         }
         var licensesNode = root.appendNode(new QName(POM_NS, "licenses"));
-        for (var license : licenses) {
+        for (var license : all) {
             var licenseNode = licensesNode.appendNode(new QName(POM_NS, "license"));
-            appendIfPresent(licenseNode, "name", license.getName().getOrNull());
-            appendIfPresent(licenseNode, "url", license.getUrl().getOrNull());
-            appendIfPresent(licenseNode, "distribution", license.getDistribution().getOrNull());
-            appendIfPresent(licenseNode, "comments", license.getComments().getOrNull());
+            license.forEach((name, value) -> licenseNode.appendNode(new QName(POM_NS, name), value));
         }
     }
 
     private void fixPackaging(Node root) {
         var packagingList = root.getAt(new QName(POM_NS, "packaging"));
-        var packaging = extension.getArchiveExtension().get();
+        var packaging = this.packaging.get();
         if (!packagingList.isEmpty()) {
             ((Node) packagingList.get(0)).setValue(packaging);
         } else {
@@ -175,9 +238,4 @@ class PomBuilder implements Action<XmlProvider> {
         }
     }
 
-    private static void appendIfPresent(Node parent, String name, String value) {
-        if (value != null) {
-            parent.appendNode(new QName(POM_NS, name), value);
-        }
-    }
 }
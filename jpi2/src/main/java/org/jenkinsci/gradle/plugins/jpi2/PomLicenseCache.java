@@ -0,0 +1,103 @@
+package org.jenkinsci.gradle.plugins.jpi2;
+
+import org.gradle.api.file.DirectoryProperty;
+import org.gradle.api.services.BuildService;
+import org.gradle.api.services.BuildServiceParameters;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * A shared Gradle build service that caches the license metadata extracted from POM files.
+ *
+ * <p>Entries are keyed by the SHA-256 of the POM's content, so the same library requested by many
+ * modules is parsed once. Each entry is kept in memory for the rest of the build and written to
+ * {@link Params#getCacheDirectory()} (under the root project's build directory by default), so later
+ * builds on the same machine skip parsing entirely. A content hash is a safe key: the extracted data
+ * depends on nothing but the file's bytes and the extractor itself, whose output format is versioned
+ * through {@link #FORMAT_VERSION}.
+ *
+ * <p>The service also remembers, for the rest of the build, where POM coordinates resolved to. Modules
+ * of a multi-project build mostly bundle the same libraries (and share their parent POMs), so each
+ * coordinate is resolved by whichever project asks first and every other project reuses the result.
+ * That memo is scoped by the repositories a project resolves from: a project declaring other
+ * repositories may find a different POM for the same coordinates, or find one where another project
+ * did not, so it resolves them itself.
+ */
+public abstract class PomLicenseCache implements BuildService<PomLicenseCache.Params> {
+    /** Name under which the service is registered with the build's shared services. */
+    public static final String NAME = "jpi2PomLicenseCache";
+
+    /**
+     * Bumped whenever {@link PomLicenseDataExtractor} starts producing different data for the same
+     * input, so stale entries written by an older plugin version are ignored rather than reused.
+     */
+    static final String FORMAT_VERSION = "v2";
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(PomLicenseCache.class);
+
+    private final Map<String, PomLicenseData> entries = new ConcurrentHashMap<>();
+    private final Map<String, Map<String, Optional<File>>> resolvedPoms = new ConcurrentHashMap<>();
+    private final ThreadLocal<PomLicenseDataExtractor> extractor = ThreadLocal.withInitial(PomLicenseDataExtractor::new);
+
+    /**
+     * Parameters for {@link PomLicenseCache}.
+     */
+    public interface Params extends BuildServiceParameters {
+        /** @return directory where extracted entries are persisted between builds */
+        DirectoryProperty getCacheDirectory();
+    }
+
+    /**
+     * Returns the license metadata of {@code pomFile}, parsing it only when no entry exists for its
+     * content yet.
+     */
+    PomLicenseData extract(File pomFile) {
+        var key = PropertiesFileCache.sha256(pomFile);
+        return entries.computeIfAbsent(key, k -> cache().getOrCompute(k,
+                properties -> PomLicenseData.load(properties, ""),
+                () -> extractor.get().extractFrom(pomFile),
+                (data, properties) -> data.store(properties, "")));
+    }
+
+    /**
+     * Returns the POM files of the given {@code group:artifact:version} coordinates, resolving through
+     * {@code resolver} only those not seen earlier in the build by a project with the same
+     * {@code repositories}. Coordinates that could not be resolved are remembered as well and are absent
+     * from the result.
+     *
+     * @param repositories identifies the repositories {@code resolver} resolves from
+     */
+    Map<String, File> resolvePoms(String repositories, Set<String> coordinates, Function<Set<String>, Map<String, File>> resolver) {
+        var memo = resolvedPoms.computeIfAbsent(repositories, ignored -> new ConcurrentHashMap<>());
+        var missing = coordinates.stream()
+                .filter(coordinate -> !memo.containsKey(coordinate))
+                .collect(Collectors.toSet());
+        if (!missing.isEmpty()) {
+            LOGGER.info("Resolving POMs for license information: {}", missing.stream().sorted().collect(Collectors.joining(", ")));
+            // Resolved outside any lock: projects configured in parallel may occasionally resolve the
+            // same POM twice, which is cheaper than serializing dependency resolution across projects.
+            var resolved = resolver.apply(missing);
+            for (var coordinate : missing) {
+                memo.putIfAbsent(coordinate, Optional.ofNullable(resolved.get(coordinate)));
+            }
+        }
+        var result = new HashMap<String, File>();
+        for (var coordinate : coordinates) {
+            memo.get(coordinate).ifPresent(file -> result.put(coordinate, file));
+        }
+        return result;
+    }
+
+    private PropertiesFileCache cache() {
+        return new PropertiesFileCache(getParameters().getCacheDirectory().get().getAsFile().toPath(), FORMAT_VERSION);
+    }
+}
@@ -0,0 +1,71 @@
+package org.jenkinsci.gradle.plugins.jpi2;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+
+/**
+ * Coordinates, descriptive metadata and declared licenses extracted from a single Maven POM.
+ *
+ * @param parent {@code group:artifact:version} of the declared parent POM, or empty when there is none
+ */
+record PomLicenseData(String groupId, String artifactId, String version, String name, String description, String url,
+                      List<LicenseInfo> licenses, String parent) {
+
+    /** @return {@code group:artifact:version} of this POM, the form used by {@link #parent()} */
+    String coordinates() {
+        return groupId + ":" + artifactId + ":" + version;
+    }
+
+    /** Writes this entry into {@code properties}, every key starting with {@code prefix}. */
+    void store(Properties properties, String prefix) {
+        properties.setProperty(prefix + "groupId", groupId);
+        properties.setProperty(prefix + "artifactId", artifactId);
+        properties.setProperty(prefix + "version", version);
+        properties.setProperty(prefix + "name", name);
+        properties.setProperty(prefix + "description", description);
+        properties.setProperty(prefix + "url", url);
+        properties.setProperty(prefix + "parent", parent);
+        properties.setProperty(prefix + "licenses", Integer.toString(licenses.size()));
+        for (int i = 0; i < licenses.size(); i++) {
+            var license = licenses.get(i);
+            properties.setProperty(prefix + "license." + i + ".name", license.name());
+            properties.setProperty(prefix + "license." + i + ".url", license.url());
+        }
+    }
+
+    /**
+     * Reads an entry written by {@link #store(Properties, String)}.
+     *
+     * @throws IllegalStateException when a key is missing
+     */
+    static PomLicenseData load(Properties properties, String prefix) {
+        var licenses = new ArrayList<LicenseInfo>();
+        var count = Integer.parseInt(required(properties, prefix + "licenses"));
+        for (int i = 0; i < count; i++) {
+            licenses.add(new LicenseInfo(
+                    required(properties, prefix + "license." + i + ".name"),
+                    required(properties, prefix + "license." + i + ".url")));
+        }
+        return new PomLicenseData(
+                required(properties, prefix + "groupId"),
+                required(properties, prefix + "artifactId"),
+                required(properties, prefix + "version"),
+                required(properties, prefix + "name"),
+                required(properties, prefix + "description"),
+                required(properties, prefix + "url"),
+                licenses,
+                required(properties, prefix + "parent"));
+    }
+
+    private static String required(Properties properties, String key) {
+        var value = properties.getProperty(key);
+        if (value == null) {
+            throw new IllegalStateException("Missing key " + key);
+        }
+        return value;
+    }
+
+    record LicenseInfo(String name, String url) {
+    }
+}
@@ -0,0 +1,110 @@
+package org.jenkinsci.gradle.plugins.jpi2;
+
+import org.w3c.dom.Element;
+import org.w3c.dom.Node;
+import org.w3c.dom.NodeList;
+import org.xml.sax.SAXException;
+
+import javax.xml.XMLConstants;
+import javax.xml.parsers.DocumentBuilder;
+import javax.xml.parsers.DocumentBuilderFactory;
+import javax.xml.parsers.ParserConfigurationException;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+
+/**
+ * Reads the license-relevant parts of a Maven POM. Not thread-safe: the underlying
+ * {@link DocumentBuilder} is reused across calls.
+ */
+final class PomLicenseDataExtractor {
+    private final DocumentBuilder builder;
+
+    PomLicenseDataExtractor() {
+        this.builder = createDocumentBuilder();
+    }
+
+    PomLicenseData extractFrom(File pomFile) {
+        try {
+            var document = builder.parse(pomFile);
+            var root = document.getDocumentElement();
+
+            var groupId = directChildText(root, "groupId");
+            var artifactId = directChildText(root, "artifactId");
+            var version = directChildText(root, "version");
+            var name = directChildText(root, "name");
+            var description = directChildText(root, "description");
+            var url = directChildText(root, "url");
+            var licenses = new ArrayList<PomLicenseData.LicenseInfo>();
+            var parent = "";
+
+            // Fall back to parent GAV if not directly specified
+            Node parentNode = directChild(root, "parent");
+            if (parentNode instanceof Element parentElement) {
+                var parentGroupId = directChildText(parentElement, "groupId");
+                var parentArtifactId = directChildText(parentElement, "artifactId");
+                var parentVersion = directChildText(parentElement, "version");
+                if (groupId.isEmpty()) groupId = parentGroupId;
+                if (version.isEmpty()) version = parentVersion;
+                if (!parentGroupId.isEmpty() && !parentArtifactId.isEmpty() && !parentVersion.isEmpty()) {
+                    parent = parentGroupId + ":" + parentArtifactId + ":" + parentVersion;
+                }
+            }
+
+            Node licensesContainer = directChild(root, "licenses");
+            if (licensesContainer instanceof Element element) {
+                var childNodes = element.getChildNodes();
+                for (int i = 0; i < childNodes.getLength(); i++) {
+                    var child = childNodes.item(i);
+                    if (child instanceof Element licenseElement && "license".equals(licenseElement.getTagName())) {
+                        licenses.add(new PomLicenseData.LicenseInfo(
+                                directChildText(licenseElement, "name"),
+                                directChildText(licenseElement, "url")));
+                    }
+                }
+            }
+
+            return new PomLicenseData(groupId, artifactId, version, name, description, url, licenses, parent);
+        } catch (SAXException | IOException e) {
+            throw new RuntimeException("Failed to parse POM: " + pomFile, e);
+        }
+    }
+
+    private static String directChildText(Element parent, String childName) {
+        Node child = directChild(parent, childName);
+        return child == null ? "" : child.getTextContent();
+    }
+
+    private static Node directChild(Element parent, String childName) {
+        NodeList childNodes = parent.getChildNodes();
+        for (int i = 0; i < childNodes.getLength(); i++) {
+            Node child = childNodes.item(i);
+            if (child instanceof Element element && childName.equals(element.getTagName())) {
+                return child;
+            }
+        }
+        return null;
+    }
+
+    private static DocumentBuilder createDocumentBuilder() {
+        var factory = DocumentBuilderFactory.newInstance();
+        factory.setExpandEntityReferences(false);
+        trySetFeature(factory, XMLConstants.FEATURE_SECURE_PROCESSING, true);
+        trySetFeature(factory, "http://xml.org/sax/features/external-general-entities", false);
+        trySetFeature(factory, "http://xml.org/sax/features/external-parameter-entities", false);
+        trySetFeature(factory, "http://apache.org/xml/features/nonvalidating/load-external-dtd", false);
+        try {
+            return factory.newDocumentBuilder();
+        } catch (ParserConfigurationException e) {
+            throw new RuntimeException("Unable to create POM parser", e);
+        }
+    }
+
+    private static void trySetFeature(DocumentBuilderFactory factory, String feature, boolean value) {
+        try {
+            factory.setFeature(feature, value);
+        } catch (ParserConfigurationException ignored) {
+            // Keep defaults when parser implementation does not support this.
+        }
+    }
+}
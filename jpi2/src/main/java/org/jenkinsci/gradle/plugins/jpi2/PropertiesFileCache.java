@@ -0,0 +1,119 @@
+package org.jenkinsci.gradle.plugins.jpi2;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.Properties;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * A directory of {@code .properties} entries keyed by the content hash of the file they were derived from,
+ * shared by the builds running on a machine.
+ *
+ * <p>The cache is an optimization: an entry that can't be read is computed again and an entry that can't be
+ * written is only logged, so a corrupt, read-only or full cache directory never fails the build.
+ */
+final class PropertiesFileCache {
+    private static final Logger LOGGER = LoggerFactory.getLogger(PropertiesFileCache.class);
+
+    private final Path directory;
+
+    /**
+     * @param directory     root directory of the cache
+     * @param formatVersion version of the entries' format; entries written in another format are ignored
+     */
+    PropertiesFileCache(Path directory, String formatVersion) {
+        this.directory = directory.resolve(formatVersion);
+    }
+
+    /**
+     * Returns the value stored under {@code key}, or computes and stores it when there is no readable entry.
+     *
+     * @param key     content hash the value is derived from, see {@link #sha256(File)}
+     * @param reader  reads a value from a stored entry; may throw if the entry is incomplete
+     * @param compute computes the value when there is no readable entry
+     * @param writer  writes a computed value into an empty entry
+     * @param <T>     type of the value
+     * @return the stored or computed value
+     */
+    <T> T getOrCompute(String key, Function<Properties, T> reader, Supplier<T> compute, BiConsumer<T, Properties> writer) {
+        var entryFile = directory.resolve(key.substring(0, 2)).resolve(key + ".properties");
+        if (Files.isRegularFile(entryFile)) {
+            try {
+                return reader.apply(read(entryFile));
+            } catch (IOException | RuntimeException e) {
+                LOGGER.debug("Ignoring unreadable cache entry {}", entryFile, e);
+            }
+        }
+        var value = compute.get();
+        var properties = new Properties();
+        writer.accept(value, properties);
+        try {
+            write(entryFile, properties);
+        } catch (IOException e) {
+            LOGGER.debug("Unable to persist cache entry {}", entryFile, e);
+        }
+        return value;
+    }
+
+    /**
+     * @param file the file to hash
+     * @return the hex-encoded SHA-256 of {@code file}'s content
+     */
+    static String sha256(File file) {
+        try {
+            var digest = MessageDigest.getInstance("SHA-256");
+            try (var in = Files.newInputStream(file.toPath())) {
+                var buffer = new byte[8192];
+                int read;
+                while ((read = in.read(buffer)) != -1) {
+                    digest.update(buffer, 0, read);
+                }
+            }
+            return HexFormat.of().formatHex(digest.digest());
+        } catch (IOException e) {
+            throw new UncheckedIOException("Unable to read " + file, e);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+
+    private static Properties read(Path entryFile) throws IOException {
+        var properties = new Properties();
+        try (var in = Files.newInputStream(entryFile)) {
+            properties.load(in);
+        }
+        return properties;
+    }
+
+    private static void write(Path entryFile, Properties properties) throws IOException {
+        Files.createDirectories(entryFile.getParent());
+        // Builds running concurrently on the same machine may race on an entry; write to a private
+        // temporary file and move it into place so readers never observe a partial file.
+        var temporary = Files.createTempFile(entryFile.getParent(), entryFile.getFileName().toString(), ".tmp");
+        try {
+            try (var out = Files.newOutputStream(temporary)) {
+                properties.store(out, null);
+            }
+            try {
+                Files.move(temporary, entryFile, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(temporary, entryFile, StandardCopyOption.REPLACE_EXISTING);
+            }
+        } finally {
+            Files.deleteIfExists(temporary);
+        }
+    }
+}
@@ -18,6 +18,7 @@ import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Set;
+import java.util.concurrent.Callable;
 import java.util.stream.Collectors;
 
 import static org.jenkinsci.gradle.plugins.jpi2.ArtifactType.ARTIFACT_TYPE_ATTRIBUTE;
@@ -29,6 +30,7 @@ class RuntimeClasspathArtifacts {
     private final Project project;
     private final Configuration configuration;
     private final Configuration jenkinsCore;
+    private FileCollection bundledLibraries;
 
     RuntimeClasspathArtifacts(Project project, Configuration configuration, Configuration jenkinsCore) {
         this.project = project;
@@ -36,15 +38,28 @@ class RuntimeClasspathArtifacts {
         this.jenkinsCore = jenkinsCore;
     }
 
+    /**
+     * @return the bundled libraries; the dependency graph is resolved when the collection is first used, such as
+     * when the task graph is built, not when it is configured
+     */
     @NotNull
     FileCollection getBundledLibraries() {
+        return project.files((Callable<FileCollection>) this::resolveBundledLibraries);
+    }
+
+    @NotNull
+    private FileCollection resolveBundledLibraries() {
+        if (bundledLibraries != null) {
+            return bundledLibraries;
+        }
         var directJarDependencies = getDirectJarDependencies();
         var detachedConfiguration = project.getConfigurations().detachedConfiguration(directJarDependencies.toArray(new Dependency[0]));
         detachedConfiguration.getAttributes().attribute(ARTIFACT_TYPE_ATTRIBUTE, project.getObjects().named(ArtifactType.class, ArtifactType.PLUGIN_JAR));
         detachedConfiguration.shouldResolveConsistentlyWith(configuration);
 
         var jpiProvidedJars = getJarArtifactsFromJpiPlugins();
-        return detachedConfiguration.filter(file -> !jpiProvidedJars.contains(file.getName()));
+        bundledLibraries = detachedConfiguration.filter(file -> !jpiProvidedJars.contains(file.getName()));
+        return bundledLibraries;
     }
 
     @NotNull
@@ -163,23 +178,11 @@ class RuntimeClasspathArtifacts {
         if (reqDep instanceof ProjectDependency projectDependency) {
             var key = (projectDependency.getGroup() == null ? "" : projectDependency.getGroup()) +
                     ":" + projectDependency.getName();
-            var projectPath = projectPathMap.get(key);
-
-            if (projectPath == null) {
-                return false;
-            }
-
-            var dependencyProject = project.getRootProject().getAllprojects().stream()
-                    .filter(it -> it.getPath().equals(projectPath))
-                    .findFirst();
-
-            assert dependencyProject.isPresent();
-
-            if (dependencyProject.get().getTasks().findByName("jpi") == null) {
-                return Objects.equals(reqDep.getGroup(), dependency.getModuleGroup()) &&
-                        reqDep.getName().equals(dependency.getModuleName());
-            }
-            return false;
+            // A Jenkins plugin project resolves to its plugin archive, which has no jar artifact to match here,
+            // so any project dependency that gets this far is a library to bundle.
+            return projectPathMap.containsKey(key) &&
+                    Objects.equals(reqDep.getGroup(), dependency.getModuleGroup()) &&
+                    reqDep.getName().equals(dependency.getModuleName());
         } else if (reqDep instanceof ModuleDependency moduleDependency) {
             return Objects.equals(moduleDependency.getGroup(), dependency.getModuleGroup()) &&
                     Objects.equals(moduleDependency.getName(), dependency.getModuleName());
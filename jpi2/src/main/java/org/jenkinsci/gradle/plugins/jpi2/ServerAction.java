@@ -23,12 +23,15 @@ class ServerAction implements Action<JavaExec> {
     private final String projectRoot;
     private final Provider<String> workDir;
     private final TaskProvider<?> prepareServer;
+    private final Provider<String> serverPort;
 
-    public ServerAction(Configuration serverTaskClasspath, String projectRoot, Provider<String> workDir, TaskProvider<?> prepareServer) {
+    public ServerAction(Configuration serverTaskClasspath, String projectRoot, Provider<String> workDir, TaskProvider<?> prepareServer,
+                        Provider<String> serverPort) {
         this.serverTaskClasspath = serverTaskClasspath;
         this.projectRoot = projectRoot;
         this.workDir = workDir;
         this.prepareServer = prepareServer;
+        this.serverPort = serverPort;
     }
 
     @Override
@@ -37,20 +40,25 @@ class ServerAction implements Action<JavaExec> {
         spec.setStandardOutput(System.out);
         spec.setErrorOutput(System.err);
         spec.getMainClass().set("executable.Main");
+        // The action is stored in the configuration cache, so it must only capture these values,
+        // not this object, the classpath configuration or the project.
+        var projectRoot = this.projectRoot;
+        var workDir = this.workDir;
+        var httpPort = serverPort.orElse("8080");
         spec.doFirst(task -> {
+            var exec = (JavaExec) task;
             var resolvedWorkDir = workDir.get();
-            var serverPort = task.getProject().findProperty("server.port");
             var args = new ArrayList<String>();
             args.addAll(List.of(
                     "--webroot=" + projectRoot + "/build/jenkins/war",
                     "--pluginroot=" + projectRoot + "/build/jenkins/plugins",
                     "--extractedFilesFolder=" + projectRoot + "/build/jenkins/extracted",
                     "--commonLibFolder=" + resolvedWorkDir + "/lib",
-                    "--httpPort=" + (serverPort != null ? serverPort : "8080")
+                    "--httpPort=" + httpPort.get()
             ));
-            args.addAll(spec.getArgs());
-            spec.setArgs(args);
-            spec.environment("JENKINS_HOME", resolvedWorkDir);
+            args.addAll(exec.getArgs());
+            exec.setArgs(args);
+            exec.environment("JENKINS_HOME", resolvedWorkDir);
         });
 
         spec.dependsOn(prepareServer);
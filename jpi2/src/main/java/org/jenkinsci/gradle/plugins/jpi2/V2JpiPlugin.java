@@ -5,10 +5,13 @@ import org.gradle.api.Plugin;
 import org.gradle.api.Project;
 import org.gradle.api.Task;
 import org.gradle.api.artifacts.Configuration;
+import org.gradle.api.artifacts.ConfigurationVariant;
 import org.gradle.api.artifacts.Dependency;
-import org.gradle.api.artifacts.ProjectDependency;
-import org.gradle.api.artifacts.ResolvedArtifact;
 import org.gradle.api.artifacts.component.ModuleComponentIdentifier;
+import org.gradle.api.artifacts.component.ProjectComponentIdentifier;
+import org.gradle.api.artifacts.repositories.FlatDirectoryArtifactRepository;
+import org.gradle.api.artifacts.repositories.UrlArtifactRepository;
+import org.gradle.api.artifacts.type.ArtifactTypeDefinition;
 import org.gradle.api.attributes.Usage;
 import org.gradle.api.file.Directory;
 import org.gradle.api.internal.artifacts.result.DefaultResolvedDependencyResult;
@@ -29,12 +32,14 @@ import org.gradle.api.tasks.SourceSet;
 import org.gradle.api.tasks.SourceSetContainer;
 import org.gradle.api.tasks.Sync;
 import org.gradle.api.tasks.TaskProvider;
+import org.gradle.api.tasks.bundling.AbstractArchiveTask;
 import org.gradle.api.tasks.bundling.Jar;
-import org.gradle.api.tasks.bundling.War;
 import org.gradle.api.tasks.testing.Test;
+import org.gradle.jvm.toolchain.JavaLanguageVersion;
 import org.jenkinsci.gradle.plugins.jpi2.localization.LocalizationPlugin;
 import org.jenkinsci.gradle.plugins.jpi2.accmod.CheckAccessModifierTask;
 import org.jenkinsci.gradle.plugins.jpi2.accmod.PrefixedPropertiesProvider;
+import org.jenkinsci.gradle.plugins.jpi2.accmod.RestrictedApiIndexTransform;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 import org.slf4j.Logger;
@@ -42,8 +47,9 @@ import org.slf4j.LoggerFactory;
 
 import java.io.File;
 import java.net.URI;
-import java.util.Comparator;
-import java.util.LinkedHashMap;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Locale;
@@ -69,6 +75,10 @@ public class V2JpiPlugin implements Plugin<Project> {
     public static final String EXPLODED_JPI_TASK = "explodedJpi";
     /** Task name for creating the JPI archive. */
     public static final String JPI_TASK = "jpi";
+    /** Consumable configuration that offers this plugin to other jpi2 projects. */
+    public static final String JENKINS_PLUGIN_ELEMENTS = "jenkinsPluginElements";
+    /** Variants a Jenkins plugin dependency resolves to on defaultRuntime: external plugins, then plugin projects. */
+    private static final Set<String> PLUGIN_VARIANTS = Set.of(HpiMetadataRule.DEFAULT_RUNTIME_VARIANT, JENKINS_PLUGIN_ELEMENTS);
 
     @Override
     public void apply(@NotNull Project project) {
@@ -79,8 +89,12 @@ public class V2JpiPlugin implements Plugin<Project> {
         RepositoryShortcuts.registerRepositoryShortcuts(publishingExtension.getRepositories(), project);
 
         var extension = project.getExtensions().create("jenkinsPlugin", JenkinsPluginExtension.class, project);
+        var gitVersionService = project.getGradle().getSharedServices()
+                .registerIfAbsent(GitVersionService.NAME, GitVersionService.class, spec ->
+                        spec.getParameters().getDepthCacheDirectory().set(
+                                rootBuildDirectory(project, "jpi2/git-commit-depth")));
         ((ExtensionAware) extension).getExtensions().create("gitVersion", GitVersionExtension.class,
-                project.getObjects(), project.getLayout(), project.getProviders());
+                project.getObjects(), project.getLayout(), project.getProviders(), gitVersionService);
 
         var configurations = project.getConfigurations();
         var dependencies = project.getDependencies();
@@ -109,11 +123,26 @@ public class V2JpiPlugin implements Plugin<Project> {
         testDefaultRuntime.getAttributes().attribute(ARTIFACT_TYPE_ATTRIBUTE, project.getObjects().named(ArtifactType.class, ArtifactType.DEFAULT));
 
         var defaultRuntime = configurations.create("defaultRuntime");
+        defaultRuntime.setCanBeConsumed(false);
         runtimeClasspath.getExtendsFrom().forEach(defaultRuntime::extendsFrom);
         defaultRuntime.shouldResolveConsistentlyWith(jenkinsCore);
         defaultRuntime.getAttributes().attribute(ARTIFACT_TYPE_ATTRIBUTE, project.getObjects().named(ArtifactType.class, ArtifactType.DEFAULT));
 
-        var pomFiles = resolvePomFiles(project, defaultRuntime);
+        // What another jpi2 project's defaultRuntime resolves from this one: the plugin archive, with this
+        // plugin's own runtime dependencies, and an "hpl" variant for hplRun. Consumers reach them through
+        // dependency resolution alone, without reading this project's model.
+        var jenkinsPluginElements = configurations.create(JENKINS_PLUGIN_ELEMENTS);
+        jenkinsPluginElements.setCanBeResolved(false);
+        jenkinsPluginElements.setDescription("Jenkins plugin archive and .hpl for jpi2 projects depending on this project.");
+        runtimeClasspath.getExtendsFrom().forEach(jenkinsPluginElements::extendsFrom);
+        jenkinsPluginElements.getAttributes().attribute(ARTIFACT_TYPE_ATTRIBUTE, project.getObjects().named(ArtifactType.class, ArtifactType.DEFAULT));
+
+        BuildServiceRegistry buildServices = project.getGradle().getSharedServices();
+        var pomLicenseCache = buildServices.registerIfAbsent(PomLicenseCache.NAME, PomLicenseCache.class, spec ->
+                spec.getParameters().getCacheDirectory().set(
+                        rootBuildDirectory(project, "jpi2/pom-license-cache")));
+        var pomFiles = resolvePomFiles(project, defaultRuntime, pomLicenseCache);
+        var parentPomFiles = resolveParentPomFiles(project, pomFiles, pomLicenseCache);
         var licenseTask = project.getTasks().register(GenerateLicenseInfoTask.NAME, GenerateLicenseInfoTask.class, new Action<>() {
             @Override
             public void execute(@NotNull GenerateLicenseInfoTask task) {
@@ -121,11 +150,15 @@ public class V2JpiPlugin implements Plugin<Project> {
                 task.setDescription("Generates license information.");
                 task.getOutputDirectory().set(project.getLayout().getBuildDirectory().dir("licenses"));
                 task.getPomFiles().from(pomFiles);
+                task.getParentPomFiles().from(parentPomFiles);
                 task.getProjectVersion().set(project.provider(() -> project.getVersion().toString()));
                 task.getProjectName().set(project.getName());
                 task.getProjectGroup().set(project.provider(() -> project.getGroup().toString()));
                 task.getProjectDescription().set(project.provider(project::getDescription));
                 task.getProjectUrl().set(project.getProviders().gradleProperty("url"));
+                task.getPomLicenseCache().set(pomLicenseCache);
+                task.usesService(pomLicenseCache);
+                task.getIndexRoots().from(project.getGradle().getGradleUserHomeDir(), project.getRootDir());
             }
         });
 
@@ -137,15 +170,25 @@ public class V2JpiPlugin implements Plugin<Project> {
         SourceSet main = sourceSets.getByName(SourceSet.MAIN_SOURCE_SET_NAME);
         main.getResources().getSrcDirs().add(project.file("src/main/webapp"));
         project.getPlugins().apply(LocalizationPlugin.class);
+        var compiledMetadataIndex = project.getTasks().register(
+                IndexCompiledMetadataTask.NAME,
+                IndexCompiledMetadataTask.class,
+                task -> {
+                    task.setDescription("Indexes the Jenkins metadata found in the main outputs.");
+                    task.getOutputDirectories().from(main.getOutput());
+                    task.getClassesDirectories().from(main.getOutput().getClassesDirs());
+                    task.getProjectDirectory().set(project.getLayout().getProjectDirectory());
+                    task.getIndexFile().set(project.getLayout().getBuildDirectory().file("jenkins-metadata/index.txt"));
+                });
+        var compiledMetadataIndexFile = compiledMetadataIndex.flatMap(IndexCompiledMetadataTask::getIndexFile);
         var checkOverlappingSources = project.getTasks().register(
                 CheckOverlappingSourcesTask.NAME,
                 CheckOverlappingSourcesTask.class,
                 task -> {
                     task.setGroup("Verification");
                     task.setDescription("Checks for overlapping generated Jenkins metadata across main source outputs.");
-                    task.getClassesDirs().from(main.getOutput().getClassesDirs());
+                    task.getMetadataIndex().set(compiledMetadataIndexFile);
                     task.getOutputFile().set(project.getLayout().getBuildDirectory().file("check-overlap/discovered.txt"));
-                    task.dependsOn(project.getTasks().named("classes"));
                 });
         project.getTasks().named("check", task -> task.dependsOn(checkOverlappingSources));
 
@@ -155,19 +198,67 @@ public class V2JpiPlugin implements Plugin<Project> {
                 task -> {
                     task.setGroup(BasePlugin.BUILD_GROUP);
                     task.setDescription("Generates optional Jenkins manifest attributes.");
-                    task.getInspectionDirectories().from(main.getOutput());
+                    task.getMetadataIndex().set(compiledMetadataIndexFile);
                     task.getOutputFile().set(project.getLayout().getBuildDirectory().file("jenkins-manifests/optional.mf"));
                 });
         var optionalManifestFile = optionalManifest.flatMap(GenerateOptionalJenkinsManifestTask::getOutputFile);
 
-        var jpiTask = project.getTasks().register(JPI_TASK, War.class, new ConfigureJpiAction(project, defaultRuntime, jenkinsCore, extension));
+        var pluginDependenciesManifest = project.getTasks().register(
+                GeneratePluginDependenciesManifestTask.NAME,
+                GeneratePluginDependenciesManifestTask.class,
+                task -> {
+                    task.setGroup(BasePlugin.BUILD_GROUP);
+                    task.setDescription("Generates the Plugin-Dependencies manifest attribute.");
+                    // Resolving defaultRuntime must wait until this task actually executes: some publishing
+                    // plugins (e.g. com.jfrog.artifactory) realize the archive tasks from a
+                    // gradle.projectsEvaluated listener, before projects are configured and before Gradle's
+                    // exclusive project-execution lock is available, and an eager resolution there is
+                    // rejected as unsafe. Finalizing on read keeps the resolution to a single walk.
+                    task.getPluginDependencies().set(project.provider(() -> resolvePluginDependencies(defaultRuntime)));
+                    task.getPluginDependencies().finalizeValueOnRead();
+                    task.getOutputFile().set(project.getLayout().getBuildDirectory().file("jenkins-manifests/plugin-dependencies.mf"));
+                });
+        var pluginDependenciesManifestFile = pluginDependenciesManifest.flatMap(GeneratePluginDependenciesManifestTask::getOutputFile);
+
+        var jenkinsManifest = project.getTasks().register(
+                GenerateJenkinsManifestTask.NAME,
+                GenerateJenkinsManifestTask.class,
+                task -> {
+                    task.setGroup(BasePlugin.BUILD_GROUP);
+                    task.setDescription("Generates the Jenkins plugin manifest attributes.");
+                    task.getPluginVersion().set(extension.getEffectiveVersion());
+                    task.getProjectGroup().set(project.provider(() -> project.getGroup().toString()));
+                    task.getProjectName().set(project.getName());
+                    task.getPluginId().set(extension.getPluginId());
+                    task.getDisplayName().set(extension.getDisplayName());
+                    task.getMinimumJavaVersion().set(ext.getToolchain().getLanguageVersion()
+                            .orElse(JavaLanguageVersion.of(GenerateJenkinsManifestTask.DEFAULT_MINIMUM_JAVA_VERSION))
+                            .map(JavaLanguageVersion::toString));
+                    task.getJenkinsVersion().set(extension.getJenkinsVersion());
+                    task.getHomePage().set(extension.getHomePage().map(URI::toASCIIString));
+                    task.getCompatibleSinceVersion().set(extension.getCompatibleSinceVersion());
+                    task.getPluginFirstClassLoader().set(extension.getPluginFirstClassLoader());
+                    task.getMaskClasses().set(extension.getMaskClasses());
+                    task.getPluginDevelopers().set(extension.getPluginDevelopers().map(GenerateJenkinsManifestTask::formatDevelopers));
+                    task.getOutputFile().set(project.getLayout().getBuildDirectory().file("jenkins-manifests/jenkins.mf"));
+                });
+        var jenkinsManifestFile = jenkinsManifest.flatMap(GenerateJenkinsManifestTask::getOutputFile);
+
+        Provider<Directory> jpiDirectory = project.getLayout().getBuildDirectory().dir("jpi");
+        var jpiTask = project.getTasks().register(JPI_TASK, JpiArchiveTask.class, new ConfigureJpiAction(project, defaultRuntime, jenkinsCore, extension));
         jpiTask.configure(new Action<>() {
             @Override
-            public void execute(@NotNull War war) {
+            public void execute(@NotNull JpiArchiveTask war) {
+                war.getStoredExtensions().convention(extension.getStoredEntryExtensions());
+                war.getExplodedDirectory().set(jpiDirectory);
                 war.dependsOn(licenseTask);
+                war.getInputs().file(jenkinsManifestFile);
+                war.getManifest().from(jenkinsManifestFile);
                 war.getInputs().file(optionalManifestFile);
                 war.getManifest().from(optionalManifestFile);
-                war.getWebInf().from(licenseTask.flatMap(GenerateLicenseInfoTask::getOutputDirectory));
+                war.getInputs().file(pluginDependenciesManifestFile);
+                war.getManifest().from(pluginDependenciesManifestFile);
+                war.getWebInf().from(licenseTask.flatMap(GenerateLicenseInfoTask::getOutputDirectory), spec -> spec.include("licenses.xml"));
                 war.getArchiveVersion().set(extension.getEffectiveVersion());
                 // Gradle's own default for these flipped between the 8.x and 9.x lines; pin them so the
                 // archive's bytes (and therefore testServer's build-cache key, which fingerprints this
@@ -179,36 +270,24 @@ public class V2JpiPlugin implements Plugin<Project> {
         project.getTasks().named("jar", Jar.class).configure(new Action<>() {
             @Override
             public void execute(@NotNull Jar jarTask) {
-                jarTask.manifest(new ManifestAction(project, extension));
+                jarTask.getInputs().file(jenkinsManifestFile);
+                jarTask.getManifest().from(jenkinsManifestFile);
                 jarTask.getInputs().file(optionalManifestFile);
                 jarTask.getManifest().from(optionalManifestFile);
+                jarTask.getInputs().file(pluginDependenciesManifestFile);
+                jarTask.getManifest().from(pluginDependenciesManifestFile);
                 jarTask.setPreserveFileTimestamps(false);
                 jarTask.setReproducibleFileOrder(true);
-
-                // Resolving defaultRuntime must wait until the jar task actually executes: some publishing
-                // plugins (e.g. com.jfrog.artifactory) realize this task from a gradle.projectsEvaluated
-                // listener, before projects are configured and before Gradle's exclusive project-execution
-                // lock is available, and an eager resolution there is rejected as unsafe.
-                var pluginDependencies = project.provider(() -> resolvePluginDependencies(defaultRuntime));
-                jarTask.getInputs().property("pluginDependencies", pluginDependencies).optional(true);
-                jarTask.doFirst(new Action<>() {
-                    @Override
-                    public void execute(@NotNull Task task) {
-                        var value = pluginDependencies.getOrNull();
-                        if (value != null) {
-                            jarTask.getManifest().getAttributes().put("Plugin-Dependencies", value);
-                        }
-                    }
-                });
             }
         });
-        Provider<Directory> jpiDirectory = project.getLayout().getBuildDirectory().dir("jpi");
         var runtimeClasspathArtifacts = new RuntimeClasspathArtifacts(project, defaultRuntime, jenkinsCore);
-        project.getTasks().register(EXPLODED_JPI_TASK, Sync.class, new Action<>() {
+        // The jpi task unpacks the archive into jpiDirectory while writing it; this is kept as the entry point
+        // that other tasks and builds depend on for the exploded plugin.
+        project.getTasks().register(EXPLODED_JPI_TASK, new Action<>() {
             @Override
-            public void execute(@NotNull Sync sync) {
-                sync.into(jpiDirectory);
-                sync.with(jpiTask.get());
+            public void execute(@NotNull Task task) {
+                task.setDescription("Assembles the exploded plugin archive.");
+                task.dependsOn(jpiTask);
             }
         });
         var generateHpl = project.getTasks().register(GenerateHplTask.TASK_NAME, GenerateHplTask.class, new Action<>() {
@@ -234,23 +313,24 @@ public class V2JpiPlugin implements Plugin<Project> {
                 task.dependsOn(jpiTask);
             }
         });
+        jenkinsPluginElements.getOutgoing().artifact(jpiTask);
+        jenkinsPluginElements.getOutgoing().getVariants().create(ArtifactType.HPL, new Action<>() {
+            @Override
+            public void execute(@NotNull ConfigurationVariant variant) {
+                variant.getAttributes().attribute(ARTIFACT_TYPE_ATTRIBUTE, project.getObjects().named(ArtifactType.class, ArtifactType.HPL));
+                variant.artifact(generateHpl.flatMap(GenerateHplTask::getHpl));
+            }
+        });
 
         final var projectRoot = project.getLayout().getProjectDirectory().getAsFile().getAbsolutePath();
         final var workDir = WorkDirectorySettings.getWorkDir(project, extension, projectRoot);
         final var prepareServer = createPrepareServerTask(project, workDir, defaultRuntime, jpiTask);
         final var prepareRun = createPrepareRunTask(project, workDir, defaultRuntime, generateHpl);
 
-        project.getGradle().projectsEvaluated(gradle -> {
-            var projectByPath = project.getRootProject().getAllprojects().stream()
-                    .collect(Collectors.toMap(Project::getPath, it -> it));
-            var projectDependencies = getProjectDependencies(runtimeClasspath, projectByPath);
-            configureProjectDependencyJpis(prepareServer, getProjectDependencyJpis(projectDependencies, extension.getArchiveExtension().get()));
-            configureProjectDependencyTasks(prepareRun, getProjectDependencyTasks(projectDependencies, GenerateHplTask.TASK_NAME));
-            wireUpstreamJpiReferencedFiles(project, projectDependencies);
-        });
-
-        project.getTasks().register("server", JavaExec.class, new ServerAction(serverTaskClasspath, projectRoot, workDir, prepareServer));
-        project.getTasks().register("hplRun", JavaExec.class, new ServerAction(serverTaskClasspath, projectRoot, workDir, prepareRun));
+        var serverPort = project.getProviders().systemProperty("server.port")
+                .orElse(project.getProviders().gradleProperty("server.port"));
+        project.getTasks().register("server", JavaExec.class, new ServerAction(serverTaskClasspath, projectRoot, workDir, prepareServer, serverPort));
+        project.getTasks().register("hplRun", JavaExec.class, new ServerAction(serverTaskClasspath, projectRoot, workDir, prepareRun, serverPort));
         project.getPlugins().withType(JavaBasePlugin.class, new SezpozJavaAction(project));
         project.getPlugins().withType(GroovyBasePlugin.class, new SezpozGroovyAction(project));
         configureAccessModifier(project);
@@ -284,19 +364,20 @@ public class V2JpiPlugin implements Plugin<Project> {
         var publicationName = configurePublishing(project, jpiTask, defaultRuntime, extension);
 
         var publishing = project.getExtensions().getByType(PublishingExtension.class);
-        var resolveVersion = project.getTasks().register("resolvePluginVersion", task -> {
-            task.doFirst(t -> {
-                if (extension.getVersionSource().get() != VersionSource.PROJECT) {
-                    var v = extension.getEffectiveVersion().get();
-                    publishing.getPublications().withType(MavenPublication.class).configureEach(pub -> pub.setVersion(v));
-                }
-            });
-        });
         var capitalizedName = publicationName.isEmpty() ? publicationName : publicationName.substring(0, 1).toUpperCase() + publicationName.substring(1);
-        project.getTasks().named("generatePomFileFor" + capitalizedName + "Publication").configure(t -> t.dependsOn(resolveVersion));
-        project.getTasks().named("generateMetadataFileFor" + capitalizedName + "Publication").configure(t -> t.dependsOn(resolveVersion));
+        // The effective version may come from Git, so it is only computed once the task graph shows the
+        // publication is generated. Doing it here, rather than in a task action, means the configuration cache
+        // stores the publication with its final coordinates.
+        var pomTaskPath = project.absoluteProjectPath("generatePomFileFor" + capitalizedName + "Publication");
+        var metadataTaskPath = project.absoluteProjectPath("generateMetadataFileFor" + capitalizedName + "Publication");
+        project.getGradle().getTaskGraph().whenReady(graph -> {
+            if (extension.getVersionSource().get() != VersionSource.PROJECT
+                    && (graph.hasTask(pomTaskPath) || graph.hasTask(metadataTaskPath))) {
+                var v = extension.getEffectiveVersion().get();
+                publishing.getPublications().withType(MavenPublication.class).configureEach(pub -> pub.setVersion(v));
+            }
+        });
 
-        BuildServiceRegistry buildServices = project.getGradle().getSharedServices();
         var portAllocationService = buildServices.registerIfAbsent("portAllocation", PortAllocationService.class, spec -> {
         });
 
@@ -320,7 +401,7 @@ public class V2JpiPlugin implements Plugin<Project> {
         var isWindows = System.getProperty("os.name", "").toLowerCase(Locale.ROOT).contains("windows");
         var gradleScriptName = isWindows ? "bin/gradle.bat" : "bin/gradle";
         var gradleExecutable = gradleHome != null ? new File(gradleHome, gradleScriptName).getAbsolutePath() : "gradle";
-        var isRootProject = project == project.getRootProject();
+        var isRootProject = Project.PATH_SEPARATOR.equals(project.getPath());
         var projectPath = project.getPath();
 
         var testServerTask = registerTestTask(project, portAllocationService, launchThrottle, maxParallelLaunches, gradleExecutable, startParameter, isRootProject, projectPath,
@@ -347,6 +428,10 @@ public class V2JpiPlugin implements Plugin<Project> {
             task.getReferencedFiles().from(main.getOutput().getClassesDirs());
             task.getReferencedFiles().from(project.provider(main.getOutput()::getResourcesDir));
             task.getReferencedFiles().from(runtimeClasspathArtifacts.getBundledLibraries());
+            // Upstream plugin projects' .hpl files reference their classes, resources and bundled
+            // libraries the same way. Their jars carry the same classes and resources, so the runtime
+            // classpath fingerprints all of it without reaching into the upstream projects.
+            task.getReferencedFiles().from(runtimeClasspath);
             task.dependsOn(project.getTasks().named("classes"));
         });
     }
@@ -442,6 +527,18 @@ public class V2JpiPlugin implements Plugin<Project> {
             });
         });
 
+        project.getDependencies().registerTransform(RestrictedApiIndexTransform.class, spec -> {
+            spec.getFrom().attribute(ArtifactTypeDefinition.ARTIFACT_TYPE_ATTRIBUTE, ArtifactTypeDefinition.JAR_TYPE);
+            spec.getTo().attribute(ArtifactTypeDefinition.ARTIFACT_TYPE_ATTRIBUTE, RestrictedApiIndexTransform.ARTIFACT_TYPE);
+        });
+        var compileClasspath = project.getConfigurations().getByName("compileClasspath");
+        // Lenient: classes directories of project dependencies have no jar to reduce; the checker
+        // reads them directly from the compile classpath.
+        var restrictedApiClasspath = compileClasspath.getIncoming().artifactView(view -> {
+            view.setLenient(true);
+            view.getAttributes().attribute(ArtifactTypeDefinition.ARTIFACT_TYPE_ATTRIBUTE, RestrictedApiIndexTransform.ARTIFACT_TYPE);
+        }).getFiles();
+
         var propertyProvider = project.provider(new PrefixedPropertiesProvider(project, CheckAccessModifierTask.PREFIX));
         var checkAccessModifier = project.getTasks().register(CheckAccessModifierTask.NAME, CheckAccessModifierTask.class, task -> {
             task.setGroup("Verification");
@@ -454,11 +551,12 @@ public class V2JpiPlugin implements Plugin<Project> {
                     .getClassesDirs();
             task.getAccessModifierClasspath().from(jenkinsAccessModifier);
             task.getAccessModifierProperties().set(propertyProvider);
-            task.getCompileClasspath().from(project.getConfigurations().getByName("compileClasspath"));
+            task.getCompileClasspath().from(compileClasspath);
+            task.getRestrictedApiClasspath().from(restrictedApiClasspath);
             task.getCompilationDirs().from(dirs);
             task.getIgnoreFailures().convention(true);
+            task.getMaxWorkItems().convention(project.getGradle().getStartParameter().getMaxWorkerCount());
             task.getOutputDirectory().set(project.getLayout().getBuildDirectory().dir("access-modifier"));
-            task.getOutputs().upToDateWhen(element -> !task.getIgnoreFailures().get());
         });
 
         project.getTasks().named("check", task -> task.dependsOn(checkAccessModifier));
@@ -493,18 +591,27 @@ public class V2JpiPlugin implements Plugin<Project> {
         publication.getPom().getName().set(extension.getDisplayName());
         publication.getPom().getUrl().set(extension.getHomePage().map(URI::toASCIIString));
         publication.getPom().getDescription().set(project.provider(project::getDescription));
-        publication.getPom().withXml(new PomBuilder(runtimeClasspath, project, extension, project.getLogger()));
+        publication.getPom().withXml(new PomBuilder(runtimeClasspath, project, extension));
+    }
+
+    /**
+     * A directory under the root project's default build directory, shared by every project in the build.
+     * Derived from the root directory alone, as reading the root project's layout from another project is
+     * not allowed with isolated projects.
+     */
+    @NotNull
+    private static Provider<Directory> rootBuildDirectory(@NotNull Project project, @NotNull String path) {
+        return project.getObjects().directoryProperty().fileValue(new File(project.getRootDir(), "build/" + path));
     }
 
     @NotNull
     private static TaskProvider<Sync> createPrepareServerTask(@NotNull Project project, Provider<String> workDir, Configuration defaultRuntime,
-                                                              TaskProvider<?> jpiTaskProvider) {
+                                                              TaskProvider<? extends AbstractArchiveTask> jpiTaskProvider) {
         return project.getTasks().register("prepareServer", Sync.class, new ConfigurePrepareServerAction(
                 jpiTaskProvider,
                 workDir,
-                defaultRuntime,
+                defaultRuntime.getIncoming().getArtifacts(),
                 project.provider(project::getName),
-                project.provider(() -> project.getVersion().toString()),
                 project.getExtensions().getByType(JenkinsPluginExtension.class).getArchiveExtension()
         ));
     }
@@ -512,128 +619,20 @@ public class V2JpiPlugin implements Plugin<Project> {
     @NotNull
     private static TaskProvider<Sync> createPrepareRunTask(@NotNull Project project, Provider<String> workDir, Configuration defaultRuntime,
                                                            TaskProvider<GenerateHplTask> hplTaskProvider) {
+        // Lenient: only plugin projects offer an .hpl; other project dependencies are plain libraries.
+        var projectDependencyHpls = defaultRuntime.getIncoming().artifactView(view -> {
+            view.setLenient(true);
+            view.componentFilter(id -> id instanceof ProjectComponentIdentifier);
+            view.getAttributes().attribute(ARTIFACT_TYPE_ATTRIBUTE, project.getObjects().named(ArtifactType.class, ArtifactType.HPL));
+        }).getArtifacts();
         return project.getTasks().register("prepareRun", Sync.class, new ConfigurePrepareRunAction(
                 hplTaskProvider,
                 workDir,
-                defaultRuntime
+                defaultRuntime.getIncoming().getArtifacts(),
+                projectDependencyHpls
         ));
     }
 
-    private static void configureProjectDependencyTasks(TaskProvider<Sync> prepareTask, List<TaskProvider<?>> projectDependencyTasks) {
-        prepareTask.configure(sync -> projectDependencyTasks.forEach(sync::from));
-    }
-
-    /**
-     * Wire each upstream JPI project dependency's {@code main} source set classes / resources
-     * into this project's {@code testHplRun} {@code referencedFiles}. Upstream {@code .hpl}
-     * manifests only reference paths to those directories, so without this the consumer's
-     * {@code testHplRun} cache would not invalidate when an upstream class's content changes.
-     */
-    private static void wireUpstreamJpiReferencedFiles(@NotNull Project project, @NotNull List<Project> projectDependencies) {
-        var hplProjectDeps = projectDependencies.stream()
-                .filter(dep -> dep.getTasks().getNames().contains(GenerateHplTask.TASK_NAME))
-                .toList();
-        if (hplProjectDeps.isEmpty()) {
-            return;
-        }
-        project.getTasks().named("testHplRun", TestServerTask.class, task -> {
-            for (var dep : hplProjectDeps) {
-                var depJava = dep.getExtensions().getByType(JavaPluginExtension.class);
-                var depMain = depJava.getSourceSets().getByName(SourceSet.MAIN_SOURCE_SET_NAME);
-                task.getReferencedFiles().from(depMain.getResources().getSrcDirs());
-                task.getReferencedFiles().from(depMain.getOutput().getClassesDirs());
-                task.getReferencedFiles().from(dep.provider(() -> depMain.getOutput().getResourcesDir()));
-                // The upstream .hpl also references the dep's bundled library JARs by path, so
-                // adding or removing a library in the upstream module must bust the cache here.
-                var depDefaultRuntime = dep.getConfigurations().getByName("defaultRuntime");
-                var depJenkinsCore = dep.getConfigurations().getByName("jenkinsCore");
-                task.getReferencedFiles().from(new RuntimeClasspathArtifacts(dep, depDefaultRuntime, depJenkinsCore).getBundledLibraries());
-                task.dependsOn(dep.getTasks().named("classes"));
-            }
-        });
-    }
-
-    private static void configureProjectDependencyJpis(TaskProvider<Sync> prepareTask, List<TaskWithRename> projectDependencyJpis) {
-        prepareTask.configure(sync -> projectDependencyJpis.forEach(task ->
-                sync.from(task.getTaskProvider()).rename(task.getRenameTransformer())
-        ));
-    }
-
-    @NotNull
-    private static List<TaskProvider<?>> getProjectDependencyTasks(List<Project> projectDependencies, String taskName) {
-        return projectDependencies.stream()
-                .filter(it -> it.getTasks().getNames().contains(taskName))
-                .sorted(Comparator.comparing(Project::getName))
-                .map(it -> it.getTasks().named(taskName))
-                .collect(Collectors.toList());
-    }
-
-    @NotNull
-    private static List<TaskWithRename> getProjectDependencyJpis(List<Project> projectDependencies, String targetExtension) {
-        return projectDependencies.stream()
-                .filter(it -> it.getTasks().getNames().contains(JPI_TASK))
-                .sorted(Comparator.comparing(Project::getName))
-                .map(it -> new TaskWithRename(
-                        it.getTasks().named(JPI_TASK),
-                        new DropVersionTransformer(
-                                it.getName(),
-                                it.getVersion().toString(),
-                                targetExtension
-                        )
-                ))
-                .collect(Collectors.toList());
-    }
-
-    @NotNull
-    private static List<Project> getProjectDependencies(Configuration runtimeClasspath, Map<String, Project> projectByPath) {
-        Map<String, Project> projectsByPath = new LinkedHashMap<>();
-        collectProjectDependencies(runtimeClasspath, projectByPath, projectsByPath, new LinkedHashSet<>());
-        return List.copyOf(projectsByPath.values());
-    }
-
-    private static void collectProjectDependencies(Configuration configuration, Map<String, Project> projectByPath,
-                                                   Map<String, Project> projectsByPath,
-                                                   Set<String> visitedProjectPaths) {
-        configuration.getAllDependencies().withType(ProjectDependency.class).forEach(projectDependency -> {
-            var dependencyProjectPath = getProjectDependencyPath(projectDependency);
-            var dependencyProject = dependencyProjectPath == null ? null : projectByPath.get(dependencyProjectPath);
-            if (dependencyProject == null || !visitedProjectPaths.add(dependencyProject.getPath())) {
-                return;
-            }
-
-            projectsByPath.put(dependencyProject.getPath(), dependencyProject);
-
-            var dependencyRuntimeClasspath = dependencyProject.getConfigurations().findByName("runtimeClasspath");
-            if (dependencyRuntimeClasspath != null) {
-                collectProjectDependencies(dependencyRuntimeClasspath, projectByPath, projectsByPath, visitedProjectPaths);
-            }
-        });
-    }
-
-    private static String getProjectDependencyPath(ProjectDependency projectDependency) {
-        try {
-            var getPath = projectDependency.getClass().getMethod("getPath");
-            var projectPath = getPath.invoke(projectDependency);
-            if (projectPath instanceof String path) {
-                return path;
-            }
-        } catch (ReflectiveOperationException ignored) {
-            // Fall through to older Gradle APIs.
-        }
-
-        try {
-            var getDependencyProject = projectDependency.getClass().getMethod("getDependencyProject");
-            var dependencyProject = getDependencyProject.invoke(projectDependency);
-            if (dependencyProject instanceof Project project) {
-                return project.getPath();
-            }
-        } catch (ReflectiveOperationException ignored) {
-            return null;
-        }
-
-        return null;
-    }
-
     @NotNull
     private static Configuration createServerTaskClasspathConfiguration(@NotNull Project project) {
         return project.getConfigurations().create("serverTaskClasspath", new Action<>() {
@@ -645,30 +644,96 @@ public class V2JpiPlugin implements Plugin<Project> {
         });
     }
 
+    /**
+     * Resolves the POMs of all bundled module dependencies. Resolution goes through {@code pomLicenseCache},
+     * so coordinates already resolved by another project of the build with the same repositories are not
+     * resolved again.
+     */
     @NotNull
-    private static Provider<Set<File>> resolvePomFiles(@NotNull Project project, Configuration libraryConfiguration) {
+    private static Provider<Set<File>> resolvePomFiles(@NotNull Project project, Configuration libraryConfiguration, Provider<PomLicenseCache> pomLicenseCache) {
         return project.provider(() -> {
             var pomCoordinates = libraryConfiguration.getResolvedConfiguration().getResolvedArtifacts().stream()
                     .filter(artifact -> "jar".equals(artifact.getExtension()))
                     .filter(artifact -> artifact.getId().getComponentIdentifier() instanceof ModuleComponentIdentifier)
                     .map(artifact -> {
                         var id = artifact.getModuleVersion().getId();
-                        return id.getGroup() + ":" + id.getName() + ":" + id.getVersion() + "@pom";
+                        return id.getGroup() + ":" + id.getName() + ":" + id.getVersion();
                     })
-                    .toList();
+                    .collect(Collectors.toSet());
+            return new HashSet<>(pomLicenseCache.get().resolvePoms(repositoriesKey(project), pomCoordinates, missing -> resolvePoms(project, missing)).values());
+        });
+    }
 
-            var deps = pomCoordinates.stream()
-                    .map(coord -> project.getDependencies().create(coord))
-                    .toArray(Dependency[]::new);
+    /**
+     * Walks the parent chains of {@code pomFiles} one generation at a time, resolving each generation
+     * through a single detached configuration. Parents already resolved elsewhere in the build are
+     * taken from {@code pomLicenseCache} rather than resolved again.
+     */
+    private static Provider<Set<File>> resolveParentPomFiles(@NotNull Project project, Provider<Set<File>> pomFiles, Provider<PomLicenseCache> pomLicenseCache) {
+        return project.provider(() -> {
+            var cache = pomLicenseCache.get();
+            var repositories = repositoriesKey(project);
+            var parentPomFiles = new HashSet<File>();
+            var seen = new HashSet<String>();
+            var pending = new HashSet<String>();
+            for (var pomFile : pomFiles.get()) {
+                var parent = cache.extract(pomFile).parent();
+                if (!parent.isEmpty() && seen.add(parent)) {
+                    pending.add(parent);
+                }
+            }
+            while (!pending.isEmpty()) {
+                var resolved = cache.resolvePoms(repositories, pending, missing -> resolvePoms(project, missing));
+                pending = new HashSet<>();
+                for (var parentPomFile : resolved.values()) {
+                    parentPomFiles.add(parentPomFile);
+                    var parent = cache.extract(parentPomFile).parent();
+                    if (!parent.isEmpty() && seen.add(parent)) {
+                        pending.add(parent);
+                    }
+                }
+            }
+            return parentPomFiles;
+        });
+    }
 
-            var detached = project.getConfigurations().detachedConfiguration(deps);
-            detached.getAttributes().attribute(Usage.USAGE_ATTRIBUTE, project.getObjects().named(Usage.class, Usage.JAVA_RUNTIME));
+    /**
+     * Identifies the repositories {@code project} resolves from, by name and location. Projects that declare
+     * none resolve from the repositories declared in the settings, which are the same for all of them.
+     */
+    private static String repositoriesKey(@NotNull Project project) {
+        return project.getRepositories().stream()
+                .map(repository -> {
+                    if (repository instanceof UrlArtifactRepository url) {
+                        return repository.getName() + "=" + url.getUrl();
+                    }
+                    if (repository instanceof FlatDirectoryArtifactRepository flatDir) {
+                        return repository.getName() + "=" + flatDir.getDirs();
+                    }
+                    return repository.getName();
+                })
+                .collect(Collectors.joining("\n"));
+    }
 
-            var lenient = detached.getResolvedConfiguration().getLenientConfiguration();
-            return lenient.getArtifacts().stream()
-                    .map(ResolvedArtifact::getFile)
-                    .collect(Collectors.toSet());
-        });
+    /**
+     * Resolves the POMs of {@code group:artifact:version} coordinates leniently, keyed by those coordinates.
+     * Coordinates that cannot be resolved are absent from the result.
+     */
+    private static Map<String, File> resolvePoms(@NotNull Project project, Collection<String> coordinates) {
+        var deps = coordinates.stream()
+                .map(coord -> project.getDependencies().create(coord + "@pom"))
+                .toArray(Dependency[]::new);
+
+        var detached = project.getConfigurations().detachedConfiguration(deps);
+        detached.getAttributes().attribute(Usage.USAGE_ATTRIBUTE, project.getObjects().named(Usage.class, Usage.JAVA_RUNTIME));
+
+        var lenient = detached.getResolvedConfiguration().getLenientConfiguration();
+        var result = new HashMap<String, File>();
+        for (var artifact : lenient.getArtifacts()) {
+            var id = artifact.getModuleVersion().getId();
+            result.put(id.getGroup() + ":" + id.getName() + ":" + id.getVersion(), artifact.getFile());
+        }
+        return result;
     }
 
     private static String getVersionFromProperties(@NotNull Project project, String propertyName, String defaultVersion) {
@@ -691,11 +756,11 @@ public class V2JpiPlugin implements Plugin<Project> {
                     task.setGroup("Verification");
                     task.setDescription("Copies Jenkins plugin dependencies on the test classpath into a directory " +
                             "jenkins-test-harness reads to install them as plugins in JenkinsRule.");
-                    task.getPluginFiles().from(project.provider(() -> resolveTestPluginArtifacts(testDefaultRuntime).stream()
-                            .map(ResolvedArtifact::getFile)
-                            .collect(Collectors.toList())));
-                    task.getFileNameToPluginId().set(project.provider(() -> resolveTestPluginArtifacts(testDefaultRuntime).stream()
-                            .collect(Collectors.toMap(a -> a.getFile().getName(), ResolvedArtifact::getName, (a, b) -> a))));
+                    // One artifact collection backs both inputs, so the graph is resolved once. Its files also
+                    // carry the tasks that build plugin projects among the test dependencies.
+                    var pluginArtifacts = testDefaultRuntime.getIncoming().getArtifacts();
+                    task.getPluginFiles().from(PluginArtifactFiles.archives(pluginArtifacts));
+                    task.getPluginArtifacts().set(pluginArtifacts.getResolvedArtifacts());
                     task.getOutputDir().set(testPluginDependenciesDir.map(dir -> dir.dir("test-dependencies")));
                 });
         project.getTasks().named("test", Test.class, task -> {
@@ -704,13 +769,6 @@ public class V2JpiPlugin implements Plugin<Project> {
         });
     }
 
-    @NotNull
-    private static List<ResolvedArtifact> resolveTestPluginArtifacts(@NotNull Configuration testDefaultRuntime) {
-        return testDefaultRuntime.getResolvedConfiguration().getResolvedArtifacts().stream()
-                .filter(a -> "jpi".equals(a.getExtension()) || "hpi".equals(a.getExtension()))
-                .collect(Collectors.toList());
-    }
-
     @Nullable
     static String resolvePluginDependencies(@NotNull Configuration defaultRuntime) {
         var rootDependencies = defaultRuntime.getIncoming().getResolutionResult().getRoot().getDependencies();
@@ -720,7 +778,7 @@ public class V2JpiPlugin implements Plugin<Project> {
                 .filter(it -> !it.isConstraint())
                 .filter(it -> it instanceof DefaultResolvedDependencyResult)
                 .map(it -> ((DefaultResolvedDependencyResult) it))
-                .filter(it -> it.getResolvedVariant().getDisplayName().equals(HpiMetadataRule.DEFAULT_RUNTIME_VARIANT))
+                .filter(it -> PLUGIN_VARIANTS.contains(it.getResolvedVariant().getDisplayName()))
                 .map(it -> it.getSelected().getModuleVersion())
                 .filter(Objects::nonNull)
                 .map(it -> it.getName() + ":" + it.getVersion())
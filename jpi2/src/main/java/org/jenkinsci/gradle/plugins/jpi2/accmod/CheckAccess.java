@@ -2,24 +2,23 @@ package org.jenkinsci.gradle.plugins.jpi2.accmod;
 
 import org.gradle.workers.WorkAction;
 import org.kohsuke.accmod.impl.Checker;
-import org.slf4j.Logger;
-import org.slf4j.LoggerFactory;
 
 import javax.inject.Inject;
+import java.io.File;
 import java.io.IOException;
 import java.net.URL;
-import java.net.URLClassLoader;
-import java.nio.charset.StandardCharsets;
-import java.nio.file.Files;
-import java.util.List;
+import java.util.LinkedHashSet;
 import java.util.Properties;
+import java.util.Set;
 
 /**
- * Work action that runs {@code kohsuke.accmod.Checker} against a compiled class directory
- * to enforce {@code @Restricted} access-modifier rules.
+ * Work action that runs {@code kohsuke.accmod.Checker} against a shard of the class files of a compiled class
+ * directory to find uses of {@code @Restricted} APIs. Concurrent shards share their class loader.
+ *
+ * <p>Violations are written to the output file; reporting them is left to {@link CheckAccessModifierTask},
+ * which merges them with the results of unchanged classes.
  */
 public abstract class CheckAccess implements WorkAction<CheckAccessParameters> {
-    private static final Logger LOGGER = LoggerFactory.getLogger(CheckAccess.class);
 
     /** Required by Gradle's worker injection infrastructure. */
     @Inject
@@ -28,44 +27,44 @@ public abstract class CheckAccess implements WorkAction<CheckAccessParameters> {
 
     @Override
     public void execute() {
-        List<URL> toScan = getParameters().getClasspathToScan().getFiles().stream()
-                .map(file -> {
-                    try {
-                        return file.toURI().toURL();
-                    } catch (Exception e) {
-                        throw new IllegalStateException("Could not convert file to URL: " + file, e);
-                    }
-                })
-                .toList();
-        URL[] urls = toScan.toArray(new URL[0]);
+        // Directories (compiled classes, project dependencies) are cheap to search and have no reduced form.
+        Set<File> restrictionLocations = new LinkedHashSet<>();
+        getParameters().getClasspathToScan().getFiles().stream().filter(File::isDirectory).forEach(restrictionLocations::add);
+        restrictionLocations.addAll(getParameters().getRestrictedApiClasspath().getFiles());
+        URL[] restrictionUrls = toUrls(restrictionLocations);
+        URL[] classpathUrls = toUrls(getParameters().getClasspathToScan().getFiles());
 
-        URLClassLoader loader = new URLClassLoader(urls, getClass().getClassLoader());
         InternalErrorListener listener = new InternalErrorListener();
         Properties props = new Properties();
         getParameters().getPropertiesForAccessModifier().get().forEach(props::put);
 
-        try {
-            Checker checker = new Checker(loader, listener, props, new MavenLoggingBridge());
-            checker.check(getParameters().getDirToCheck().get().getAsFile());
+        File dirToCheck = getParameters().getDirToCheck().get().getAsFile();
+        try (var lease = SharedClassLoaders.acquire(restrictionUrls, classpathUrls, getClass().getClassLoader())) {
+            Checker checker = new Checker(lease.loader(), listener, props, new MavenLoggingBridge());
+            for (String classFile : getParameters().getClassFiles().get()) {
+                listener.checking(classFile);
+                checker.check(new File(dirToCheck, classFile));
+            }
         } catch (IOException e) {
             throw new IllegalStateException("Failed to run restricted API checks", e);
         }
 
         try {
-            var outputFile = getParameters().getOutputFile().get().getAsFile().toPath();
-            Files.createDirectories(outputFile.getParent());
-            Files.writeString(outputFile, listener.errorMessage(), StandardCharsets.UTF_8);
-        } catch (Exception e) {
-            throw new IllegalStateException("Failed to write access modifier report", e);
+            listener.results().write(getParameters().getOutputFile().get().getAsFile().toPath());
+        } catch (IOException e) {
+            throw new IllegalStateException("Failed to write access modifier results", e);
         }
+    }
 
-        if (listener.hasErrors()) {
-            if (getParameters().getIgnoreFailures().get()) {
-                LOGGER.warn(listener.errorMessage());
-            } else {
-                LOGGER.error(listener.errorMessage());
-                throw new RestrictedApiException();
-            }
-        }
+    private static URL[] toUrls(Set<File> files) {
+        return files.stream()
+                .map(file -> {
+                    try {
+                        return file.toURI().toURL();
+                    } catch (Exception e) {
+                        throw new IllegalStateException("Could not convert file to URL: " + file, e);
+                    }
+                })
+                .toArray(URL[]::new);
     }
 }
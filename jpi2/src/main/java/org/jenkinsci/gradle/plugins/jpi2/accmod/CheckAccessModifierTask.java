@@ -3,22 +3,46 @@ package org.jenkinsci.gradle.plugins.jpi2.accmod;
 import org.gradle.api.DefaultTask;
 import org.gradle.api.file.ConfigurableFileCollection;
 import org.gradle.api.file.DirectoryProperty;
+import org.gradle.api.file.FileType;
 import org.gradle.api.provider.MapProperty;
 import org.gradle.api.provider.Property;
 import org.gradle.api.tasks.CacheableTask;
 import org.gradle.api.tasks.Classpath;
 import org.gradle.api.tasks.CompileClasspath;
 import org.gradle.api.tasks.Input;
-import org.gradle.api.tasks.InputFiles;
+import org.gradle.api.tasks.Internal;
 import org.gradle.api.tasks.OutputDirectory;
 import org.gradle.api.tasks.TaskAction;
+import org.gradle.work.ChangeType;
+import org.gradle.work.Incremental;
+import org.gradle.work.InputChanges;
 import org.gradle.workers.WorkerExecutor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 import javax.inject.Inject;
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 /**
- * Submits parallel {@link CheckAccess} work items — one per compilation output directory —
- * to enforce {@code @Restricted} API access rules from {@code kohsuke.accmod}.
+ * Submits parallel {@link CheckAccess} work items — each covering a shard of a compilation output
+ * directory — to enforce {@code @Restricted} API access rules from {@code kohsuke.accmod}, re-checking only
+ * the classes that changed since the previous run when possible.
  */
 @CacheableTask
 public abstract class CheckAccessModifierTask extends DefaultTask {
@@ -27,12 +51,24 @@ public abstract class CheckAccessModifierTask extends DefaultTask {
     /** Property prefix used to pass access-modifier settings, e.g. {@code checkAccessModifier.someKey}. */
     public static final String PREFIX = NAME + ".";
 
+    private static final Logger LOGGER = LoggerFactory.getLogger(CheckAccessModifierTask.class);
+    private static final String CLASS_SUFFIX = ".class";
+    private static final String REPORT_SUFFIX = ".txt";
+    private static final String RESULTS_SUFFIX = ".results";
+    private static final String SHAPES_SUFFIX = ".shapes";
+    // Each work item's Checker loads every @Restricted declaration on the classpath before checking its first
+    // class, so shards stay few: one per worker, unless that would make them smaller than this.
+    private static final int MIN_CLASSES_PER_WORK_ITEM = 50;
+    private static final String RESTRICTED_INDEX = "META-INF/annotations/org.kohsuke.accmod.Restricted";
+
     private final WorkerExecutor workerExecutor;
     private final ConfigurableFileCollection accessModifierClasspath;
     private final MapProperty<String, Object> accessModifierProperties;
     private final ConfigurableFileCollection compileClasspath;
+    private final ConfigurableFileCollection restrictedApiClasspath;
     private final ConfigurableFileCollection compilationDirs;
     private final Property<Boolean> ignoreFailures;
+    private final Property<Integer> maxWorkItems;
     private final DirectoryProperty outputDirectory;
 
     /**
@@ -48,8 +84,10 @@ public abstract class CheckAccessModifierTask extends DefaultTask {
         this.accessModifierClasspath = objects.fileCollection();
         this.accessModifierProperties = objects.mapProperty(String.class, Object.class);
         this.compileClasspath = objects.fileCollection();
+        this.restrictedApiClasspath = objects.fileCollection();
         this.compilationDirs = objects.fileCollection();
         this.ignoreFailures = objects.property(Boolean.class);
+        this.maxWorkItems = objects.property(Integer.class);
         this.outputDirectory = objects.directoryProperty();
     }
 
@@ -71,39 +109,283 @@ public abstract class CheckAccessModifierTask extends DefaultTask {
         return compileClasspath;
     }
 
+    /**
+     * @return the compile classpath reduced by {@link RestrictedApiIndexTransform} to the classes declaring
+     *         restrictions; the checker reads restrictions from here instead of scanning every jar
+     */
+    @Classpath
+    public ConfigurableFileCollection getRestrictedApiClasspath() {
+        return restrictedApiClasspath;
+    }
+
     /** @return directories of compiled {@code .class} files to scan for {@code @Restricted} violations */
-    @InputFiles
+    @Incremental
     @Classpath
     public ConfigurableFileCollection getCompilationDirs() {
         return compilationDirs;
     }
 
-    /** @return {@code true} when violations are logged as warnings rather than failing the build */
+    /**
+     * @return {@code true} when violations are logged as warnings rather than failing the build; they are logged
+     *         when the classes are checked, and stay in the reports while the task is up to date
+     */
     @Input
     public Property<Boolean> getIgnoreFailures() {
         return ignoreFailures;
     }
 
-    /** @return directory where per-compilation-directory violation reports are written */
+    /**
+     * @return how many work items the classes to check are split into at most; usually Gradle's max worker count
+     */
+    @Internal
+    public Property<Integer> getMaxWorkItems() {
+        return maxWorkItems;
+    }
+
+    /**
+     * @return directory where per-compilation-directory violation reports ({@code <dir>-<parent>.txt}) are written,
+     *         each next to the per-class results ({@code .results}) later runs merge into
+     */
     @OutputDirectory
     public DirectoryProperty getOutputDirectory() {
         return outputDirectory;
     }
 
-    /** Submits one {@link CheckAccess} work item per compilation directory using classpath-isolated workers. */
+    /**
+     * Checks the compiled classes for restricted API usage, splitting them into shards of class files checked by
+     * parallel {@link CheckAccess} work items, about one per worker.
+     *
+     * <p>When only some classes changed since the last run, just those are checked again and their results
+     * merged with the previous ones. Everything is checked again when a changed class declares restrictions
+     * itself, when the supertypes or non-private signatures of a changed class differ from the last run (see
+     * {@link ClassShapes}), or when the compile classpath or checker settings changed.
+     *
+     * @param inputChanges changes since the last execution
+     */
     @TaskAction
-    public void check() {
+    public void check(InputChanges inputChanges) {
+        var dirs = List.copyOf(compilationDirs.getFiles());
+        var outputDir = outputDirectory.get().getAsFile().toPath();
+        boolean fullCheck = !inputChanges.isIncremental() || restrictionsChanged(inputChanges, dirs);
+
+        Map<File, Set<String>> changed = new LinkedHashMap<>();
+        Map<File, List<String>> toCheck = new LinkedHashMap<>();
+        Map<File, SortedMap<String, String>> shapes = new LinkedHashMap<>();
+        for (var dir : dirs) {
+            changed.put(dir, new TreeSet<>());
+            toCheck.put(dir, new ArrayList<>());
+            shapes.put(dir, fullCheck ? new TreeMap<>() : readShapes(outputDir.resolve(reportName(dir) + SHAPES_SUFFIX)));
+        }
+        if (!fullCheck) {
+            String reshaped = null;
+            for (var change : inputChanges.getFileChanges(compilationDirs)) {
+                if (change.getFileType() != FileType.FILE || !change.getFile().getName().endsWith(CLASS_SUFFIX)) {
+                    continue;
+                }
+                var dir = owningDirectory(dirs, change.getFile());
+                if (dir == null) {
+                    continue;
+                }
+                var classFile = relativePath(dir, change.getFile());
+                changed.get(dir).add(classFile);
+                // A removed class leaves nothing to check. Whatever extended or called it no longer compiles
+                // unchanged, so it shows up as a change of its own.
+                if (change.getChangeType() == ChangeType.REMOVED) {
+                    shapes.get(dir).remove(classFile);
+                    continue;
+                }
+                toCheck.get(dir).add(classFile);
+                var shape = shapeOf(change.getFile());
+                var previous = shapes.get(dir).put(classFile, shape);
+                if (previous != null && !previous.equals(shape)) {
+                    reshaped = classFile;
+                }
+            }
+            if (reshaped != null) {
+                LOGGER.info("Checking all classes for restricted API usage: the supertypes or signatures of {} changed", reshaped);
+                fullCheck = true;
+            } else {
+                LOGGER.info("Checking classes changed since the last run for restricted API usage: {}",
+                        toCheck.values().stream().flatMap(List::stream).sorted().toList());
+            }
+        }
+        if (fullCheck) {
+            for (var dir : dirs) {
+                var classFiles = listClassFiles(dir);
+                toCheck.put(dir, classFiles);
+                var dirShapes = new TreeMap<String, String>();
+                for (var classFile : classFiles) {
+                    dirShapes.put(classFile, shapeOf(new File(dir, classFile)));
+                }
+                shapes.put(dir, dirShapes);
+            }
+        }
+
         var queue = workerExecutor.classLoaderIsolation(spec -> spec.getClasspath().from(accessModifierClasspath));
-        for (var compilationDir : compilationDirs) {
-            String parentName = compilationDir.getParentFile() == null ? "classes" : compilationDir.getParentFile().getName();
-            String fileName = compilationDir.getName() + "-" + parentName + ".txt";
-            queue.submit(CheckAccess.class, params -> {
-                params.getClasspathToScan().from(compilationDirs, compileClasspath);
-                params.getDirToCheck().set(compilationDir);
-                params.getIgnoreFailures().set(ignoreFailures);
-                params.getPropertiesForAccessModifier().set(accessModifierProperties);
-                params.getOutputFile().set(outputDirectory.file(fileName));
-            });
+        var workDir = getTemporaryDir().toPath();
+        int total = toCheck.values().stream().mapToInt(List::size).sum();
+        int workItems = Math.max(1, maxWorkItems.getOrElse(1));
+        int classesPerWorkItem = Math.max(MIN_CLASSES_PER_WORK_ITEM, (total + workItems - 1) / workItems);
+        Map<File, List<Path>> itemResults = new LinkedHashMap<>();
+        for (var dir : dirs) {
+            var classFiles = toCheck.get(dir).stream().sorted().toList();
+            var shards = new ArrayList<Path>();
+            itemResults.put(dir, shards);
+            // A plugin usually has a single classes directory; sharding it is what lets the check use
+            // more than one worker.
+            for (int start = 0; start < classFiles.size(); start += classesPerWorkItem) {
+                var shard = List.copyOf(classFiles.subList(start, Math.min(start + classesPerWorkItem, classFiles.size())));
+                var itemResult = workDir.resolve(reportName(dir) + "-" + shards.size() + RESULTS_SUFFIX);
+                shards.add(itemResult);
+                queue.submit(CheckAccess.class, params -> {
+                    params.getClasspathToScan().from(compilationDirs, compileClasspath);
+                    params.getRestrictedApiClasspath().from(restrictedApiClasspath);
+                    params.getDirToCheck().set(dir);
+                    params.getClassFiles().set(shard);
+                    params.getPropertiesForAccessModifier().set(accessModifierProperties);
+                    params.getOutputFile().set(itemResult.toFile());
+                });
+            }
+        }
+        LOGGER.info("Checking {} classes for restricted API usage in {} work items", total,
+                itemResults.values().stream().mapToInt(List::size).sum());
+        queue.await();
+
+        boolean violations = false;
+        var reports = new HashSet<String>();
+        try {
+            for (var dir : dirs) {
+                var name = reportName(dir);
+                reports.add(name + REPORT_SUFFIX);
+                reports.add(name + RESULTS_SUFFIX);
+                reports.add(name + SHAPES_SUFFIX);
+                var resultsFile = outputDir.resolve(name + RESULTS_SUFFIX);
+                var results = fullCheck ? new CheckAccessResults() : CheckAccessResults.read(resultsFile);
+                results.removeAll(changed.get(dir));
+                for (var itemResult : itemResults.get(dir)) {
+                    results.putAll(CheckAccessResults.read(itemResult));
+                    Files.delete(itemResult);
+                }
+                results.write(resultsFile);
+                ClassShapes.write(outputDir.resolve(name + SHAPES_SUFFIX), shapes.get(dir));
+                var report = results.report();
+                Files.writeString(outputDir.resolve(name + REPORT_SUFFIX), report, StandardCharsets.UTF_8);
+                if (results.hasViolations()) {
+                    violations = true;
+                    if (ignoreFailures.get()) {
+                        LOGGER.warn(report);
+                    } else {
+                        LOGGER.error(report);
+                    }
+                }
+            }
+            deleteStaleReports(outputDir, reports);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to write access modifier report", e);
+        }
+        if (violations && !ignoreFailures.get()) {
+            throw new RestrictedApiException();
+        }
+    }
+
+    private static String reportName(File compilationDir) {
+        String parentName = compilationDir.getParentFile() == null ? "classes" : compilationDir.getParentFile().getName();
+        return compilationDir.getName() + "-" + parentName;
+    }
+
+    /**
+     * Whether a class that declares {@code @Restricted} members changed, or the set of such classes did.
+     * Calls into those classes from anywhere in the checked directories may have changed status, and the
+     * checker offers no way to find them, so everything is checked again.
+     */
+    private boolean restrictionsChanged(InputChanges inputChanges, List<File> dirs) {
+        var restrictedClasses = new HashSet<String>();
+        for (var dir : dirs) {
+            var index = new File(dir, RESTRICTED_INDEX);
+            if (!index.isFile()) {
+                continue;
+            }
+            try {
+                Files.readAllLines(index.toPath(), StandardCharsets.UTF_8).stream()
+                        .map(String::trim)
+                        .filter(line -> !line.isEmpty())
+                        .map(line -> line.replace('$', '.'))
+                        .forEach(restrictedClasses::add);
+            } catch (IOException e) {
+                throw new UncheckedIOException("Failed to read " + index, e);
+            }
+        }
+        for (var change : inputChanges.getFileChanges(compilationDirs)) {
+            var dir = owningDirectory(dirs, change.getFile());
+            if (dir == null) {
+                continue;
+            }
+            var path = relativePath(dir, change.getFile());
+            if (path.equals(RESTRICTED_INDEX)) {
+                return true;
+            }
+            if (path.endsWith(CLASS_SUFFIX)) {
+                var className = path.substring(0, path.length() - CLASS_SUFFIX.length()).replace('/', '.').replace('$', '.');
+                if (restrictedClasses.contains(className)) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    private static SortedMap<String, String> readShapes(Path file) {
+        try {
+            return ClassShapes.read(file);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to read " + file, e);
+        }
+    }
+
+    private static String shapeOf(File classFile) {
+        try {
+            return ClassShapes.of(classFile);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to read " + classFile, e);
+        }
+    }
+
+    private static List<String> listClassFiles(File dir) {
+        if (!dir.isDirectory()) {
+            return new ArrayList<>();
+        }
+        try (Stream<Path> files = Files.walk(dir.toPath())) {
+            return files.filter(Files::isRegularFile)
+                    .filter(file -> file.getFileName().toString().endsWith(CLASS_SUFFIX))
+                    .map(file -> relativePath(dir, file.toFile()))
+                    .sorted()
+                    .collect(Collectors.toCollection(ArrayList::new));
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to list classes in " + dir, e);
+        }
+    }
+
+    private static File owningDirectory(List<File> dirs, File file) {
+        var path = file.toPath();
+        for (var dir : dirs) {
+            if (path.startsWith(dir.toPath())) {
+                return dir;
+            }
+        }
+        return null;
+    }
+
+    private static String relativePath(File dir, File file) {
+        return dir.toPath().relativize(file.toPath()).toString().replace(File.separatorChar, '/');
+    }
+
+    private static void deleteStaleReports(Path outputDir, Set<String> current) throws IOException {
+        try (Stream<Path> files = Files.list(outputDir)) {
+            for (var file : files.toList()) {
+                if (!current.contains(file.getFileName().toString())) {
+                    Files.deleteIfExists(file);
+                }
+            }
         }
     }
 }
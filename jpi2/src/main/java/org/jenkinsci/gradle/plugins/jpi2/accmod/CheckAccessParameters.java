@@ -3,8 +3,8 @@ package org.jenkinsci.gradle.plugins.jpi2.accmod;
 import org.gradle.api.file.ConfigurableFileCollection;
 import org.gradle.api.file.DirectoryProperty;
 import org.gradle.api.file.RegularFileProperty;
+import org.gradle.api.provider.ListProperty;
 import org.gradle.api.provider.MapProperty;
-import org.gradle.api.provider.Property;
 import org.gradle.workers.WorkParameters;
 
 /**
@@ -17,12 +17,15 @@ public interface CheckAccessParameters extends WorkParameters {
     /** @return full classpath (compiled classes + compile deps) for type resolution during scanning */
     ConfigurableFileCollection getClasspathToScan();
 
-    /** @return the specific compiled-classes directory being inspected for violations */
+    /** @return the reduced jars of {@link RestrictedApiIndexTransform} the checker reads jar restrictions from */
+    ConfigurableFileCollection getRestrictedApiClasspath();
+
+    /** @return the compiled-classes directory containing {@link #getClassFiles()} */
     DirectoryProperty getDirToCheck();
 
-    /** @return {@code true} to treat violations as warnings rather than build errors */
-    Property<Boolean> getIgnoreFailures();
+    /** @return class files to inspect, relative to {@link #getDirToCheck()} */
+    ListProperty<String> getClassFiles();
 
-    /** @return file where this work item writes its violation report */
+    /** @return file where this work item writes the violations it found, in {@link CheckAccessResults} form */
     RegularFileProperty getOutputFile();
 }
@@ -0,0 +1,152 @@
+package org.jenkinsci.gradle.plugins.jpi2.accmod;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+/**
+ * Restricted-API violations of one compilation directory, keyed by the class file (relative to that
+ * directory) they were found in.
+ *
+ * <p>{@link CheckAccessModifierTask} persists these next to each report so that later runs only re-check
+ * the classes that changed and merge the rest from the previous run. Classes without violations have no
+ * entry.
+ */
+final class CheckAccessResults {
+    private static final Comparator<Violation> CALL_SITE_ORDER =
+            Comparator.comparing(Violation::className, Comparator.nullsLast(String::compareTo))
+                    .thenComparing(Violation::line, Comparator.nullsLast(Integer::compareTo));
+
+    private final SortedMap<String, List<Violation>> byClassFile = new TreeMap<>();
+
+    /**
+     * A use of a restricted API.
+     *
+     * @param message   the checker's description of the restricted API
+     * @param className class containing the call site, when known
+     * @param line      line of the call site, when known
+     */
+    record Violation(String message, String className, Integer line) {
+    }
+
+    /** Records a violation found in {@code classFile}. */
+    void add(String classFile, Violation violation) {
+        byClassFile.computeIfAbsent(classFile, ignored -> new ArrayList<>()).add(violation);
+    }
+
+    /** Forgets everything recorded for {@code classFiles}, e.g. because they changed or were removed. */
+    void removeAll(Collection<String> classFiles) {
+        classFiles.forEach(byClassFile::remove);
+    }
+
+    /** Adds every entry of {@code other}, replacing entries recorded here for the same class files. */
+    void putAll(CheckAccessResults other) {
+        byClassFile.putAll(other.byClassFile);
+    }
+
+    boolean hasViolations() {
+        return !byClassFile.isEmpty();
+    }
+
+    /**
+     * Formats the violations as a report grouped by restricted API, most used first.
+     *
+     * @return the report; a single blank line when there are no violations
+     */
+    String report() {
+        Map<String, Set<Violation>> byMessage = new TreeMap<>();
+        for (var violations : byClassFile.values()) {
+            for (var violation : violations) {
+                byMessage.computeIfAbsent(violation.message(), ignored -> new TreeSet<>(CALL_SITE_ORDER)).add(violation);
+            }
+        }
+        var sorted = new ArrayList<>(byMessage.entrySet());
+        sorted.sort((a, b) -> Integer.compare(b.getValue().size(), a.getValue().size()));
+
+        List<String> lines = new ArrayList<>();
+        lines.add("");
+        for (var entry : sorted) {
+            lines.add("");
+            lines.add(entry.getKey());
+            lines.add("\tbut was used on " + pluralizeLines(entry.getValue().size()) + ":");
+            entry.getValue().stream()
+                    .map(callSite -> "\t\t- " + callSite.className() + ":" + callSite.line())
+                    .forEach(lines::add);
+        }
+        return String.join(System.lineSeparator(), lines);
+    }
+
+    /** Reads results written by {@link #write(Path)}; a missing file reads as no violations. */
+    static CheckAccessResults read(Path file) throws IOException {
+        var results = new CheckAccessResults();
+        if (!Files.isRegularFile(file)) {
+            return results;
+        }
+        for (var line : Files.readAllLines(file, StandardCharsets.UTF_8)) {
+            if (line.isEmpty()) {
+                continue;
+            }
+            var fields = line.split("\t", -1);
+            if (fields.length != 4) {
+                throw new IOException("Malformed access modifier results in " + file + ": " + line);
+            }
+            results.add(unescape(fields[0]), new Violation(
+                    unescape(fields[3]),
+                    fields[2].isEmpty() ? null : unescape(fields[2]),
+                    fields[1].isEmpty() ? null : Integer.valueOf(fields[1])));
+        }
+        return results;
+    }
+
+    /** Writes the results in class-file order, so unchanged results produce an identical file. */
+    void write(Path file) throws IOException {
+        Files.createDirectories(file.getParent());
+        var lines = new ArrayList<String>();
+        byClassFile.forEach((classFile, violations) -> violations.stream()
+                .sorted(CALL_SITE_ORDER.thenComparing(Violation::message))
+                .map(violation -> String.join("\t",
+                        escape(classFile),
+                        violation.line() == null ? "" : violation.line().toString(),
+                        violation.className() == null ? "" : escape(violation.className()),
+                        escape(violation.message())))
+                .forEach(lines::add));
+        Files.write(file, lines, StandardCharsets.UTF_8);
+    }
+
+    private static String pluralizeLines(int count) {
+        return count + " " + (count == 1 ? "line" : "lines");
+    }
+
+    private static String escape(String value) {
+        return value.replace("\\", "\\\\").replace("\t", "\\t").replace("\n", "\\n").replace("\r", "\\r");
+    }
+
+    private static String unescape(String value) {
+        var result = new StringBuilder(value.length());
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '\\' && i + 1 < value.length()) {
+                char next = value.charAt(++i);
+                result.append(switch (next) {
+                    case 't' -> '\t';
+                    case 'n' -> '\n';
+                    case 'r' -> '\r';
+                    default -> next;
+                });
+            } else {
+                result.append(c);
+            }
+        }
+        return result.toString();
+    }
+}
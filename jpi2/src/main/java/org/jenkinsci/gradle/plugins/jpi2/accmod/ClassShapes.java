@@ -0,0 +1,138 @@
+package org.jenkinsci.gradle.plugins.jpi2.accmod;
+
+import java.io.DataInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+
+/**
+ * Digests of what other classes can see of a class file: its access flags, superclass, interfaces and
+ * non-private fields and methods. Method bodies, private members and debug information are left out.
+ *
+ * <p>{@link CheckAccessModifierTask} keeps them next to its results. The checker resolves calls through
+ * supertypes, so when a class's shape changes, the results of unchanged subclasses and callers may no longer
+ * hold; a change that keeps the shape (an edit inside a method body) only affects the class itself.
+ */
+final class ClassShapes {
+    private static final int ACC_PRIVATE = 0x0002;
+
+    private ClassShapes() {
+    }
+
+    /** @return the hex-encoded digest of {@code classFile}'s shape */
+    static String of(File classFile) throws IOException {
+        var shape = new ArrayList<String>();
+        try (var in = new DataInputStream(Files.newInputStream(classFile.toPath()))) {
+            if (in.readInt() != 0xCAFEBABE) {
+                throw new IOException("Not a class file: " + classFile);
+            }
+            in.readUnsignedShort();
+            in.readUnsignedShort();
+            var constants = readConstantPool(in);
+            shape.add("access " + in.readUnsignedShort());
+            in.readUnsignedShort();
+            shape.add("super " + className(constants, in.readUnsignedShort()));
+            var interfaces = new ArrayList<String>();
+            for (int i = in.readUnsignedShort(); i > 0; i--) {
+                interfaces.add("interface " + className(constants, in.readUnsignedShort()));
+            }
+            interfaces.sort(null);
+            shape.addAll(interfaces);
+            shape.addAll(readMembers(in, constants, "field"));
+            shape.addAll(readMembers(in, constants, "method"));
+        }
+        try {
+            var digest = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(digest.digest(String.join("\n", shape).getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+
+    /** Reads digests written by {@link #write(Path, Map)}; a missing file reads as none. */
+    static SortedMap<String, String> read(Path file) throws IOException {
+        var shapes = new TreeMap<String, String>();
+        if (!Files.isRegularFile(file)) {
+            return shapes;
+        }
+        for (var line : Files.readAllLines(file, StandardCharsets.UTF_8)) {
+            var tab = line.indexOf('\t');
+            if (tab < 0) {
+                throw new IOException("Malformed class shapes in " + file + ": " + line);
+            }
+            shapes.put(line.substring(0, tab), line.substring(tab + 1));
+        }
+        return shapes;
+    }
+
+    /** Writes {@code shapes}, keyed by class file, in class-file order. */
+    static void write(Path file, SortedMap<String, String> shapes) throws IOException {
+        Files.createDirectories(file.getParent());
+        var lines = new ArrayList<String>();
+        shapes.forEach((classFile, shape) -> lines.add(classFile + "\t" + shape));
+        Files.write(file, lines, StandardCharsets.UTF_8);
+    }
+
+    /** @return the UTF-8 constants by index; other constants are skipped */
+    private static String[] readConstantPool(DataInputStream in) throws IOException {
+        var count = in.readUnsignedShort();
+        var utf8 = new String[count];
+        var classes = new int[count];
+        for (int i = 1; i < count; i++) {
+            var tag = in.readUnsignedByte();
+            switch (tag) {
+                case 1 -> utf8[i] = in.readUTF();
+                case 7 -> classes[i] = in.readUnsignedShort();
+                case 8, 16, 19, 20 -> in.readUnsignedShort();
+                case 15 -> {
+                    in.readUnsignedByte();
+                    in.readUnsignedShort();
+                }
+                case 3, 4, 9, 10, 11, 12, 17, 18 -> in.readInt();
+                case 5, 6 -> {
+                    in.readLong();
+                    i++;
+                }
+                default -> throw new IOException("Unknown constant pool tag " + tag);
+            }
+        }
+        // Resolve class constants to their names so className() needs a single lookup.
+        var constants = new String[count];
+        for (int i = 1; i < count; i++) {
+            constants[i] = classes[i] != 0 ? utf8[classes[i]] : utf8[i];
+        }
+        return constants;
+    }
+
+    private static String className(String[] constants, int index) {
+        return index == 0 ? "" : constants[index];
+    }
+
+    private static List<String> readMembers(DataInputStream in, String[] constants, String kind) throws IOException {
+        var members = new ArrayList<String>();
+        for (int i = in.readUnsignedShort(); i > 0; i--) {
+            var access = in.readUnsignedShort();
+            var name = constants[in.readUnsignedShort()];
+            var descriptor = constants[in.readUnsignedShort()];
+            for (int j = in.readUnsignedShort(); j > 0; j--) {
+                in.readUnsignedShort();
+                in.skipNBytes(Integer.toUnsignedLong(in.readInt()));
+            }
+            if ((access & ACC_PRIVATE) == 0) {
+                members.add(kind + " " + access + " " + name + " " + descriptor);
+            }
+        }
+        members.sort(null);
+        return members;
+    }
+}
@@ -0,0 +1,54 @@
+package org.jenkinsci.gradle.plugins.jpi2.accmod;
+
+import java.io.IOException;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.util.Arrays;
+import java.util.Enumeration;
+import java.util.LinkedHashSet;
+
+/**
+ * Class loader handed to {@code kohsuke.accmod.Checker}, which reads class files from it as resources.
+ *
+ * <p>The checker looks for restrictions by enumerating the {@code Restricted} index over the whole classpath.
+ * Here that enumeration only sees the compiled classes and the reduced jars produced by
+ * {@link RestrictedApiIndexTransform}. Those same locations come first for every other lookup, so the
+ * listed classes are read from the small jars. The full compile classpath is still searched after them,
+ * and a jar there is only opened when the checker needs a class the earlier locations don't have.
+ */
+final class RestrictedApiClassLoader extends URLClassLoader {
+    private final URLClassLoader restrictions;
+
+    /**
+     * @param restrictionUrls  compiled classes and reduced restricted-API jars
+     * @param classpathUrls    the full compile classpath
+     * @param parent           parent class loader
+     */
+    RestrictedApiClassLoader(URL[] restrictionUrls, URL[] classpathUrls, ClassLoader parent) {
+        super(concat(restrictionUrls, classpathUrls), parent);
+        this.restrictions = new URLClassLoader(restrictionUrls, null);
+    }
+
+    @Override
+    public Enumeration<URL> getResources(String name) throws IOException {
+        if (RestrictedApiIndexTransform.RESTRICTED_INDEX.equals(name)) {
+            return restrictions.getResources(name);
+        }
+        return super.getResources(name);
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            restrictions.close();
+        } finally {
+            super.close();
+        }
+    }
+
+    private static URL[] concat(URL[] first, URL[] second) {
+        var urls = new LinkedHashSet<URL>(Arrays.asList(first));
+        urls.addAll(Arrays.asList(second));
+        return urls.toArray(new URL[0]);
+    }
+}
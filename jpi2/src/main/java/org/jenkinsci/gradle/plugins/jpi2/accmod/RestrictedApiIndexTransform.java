@@ -0,0 +1,137 @@
+package org.jenkinsci.gradle.plugins.jpi2.accmod;
+
+import org.gradle.api.artifacts.transform.CacheableTransform;
+import org.gradle.api.artifacts.transform.InputArtifact;
+import org.gradle.api.artifacts.transform.TransformAction;
+import org.gradle.api.artifacts.transform.TransformOutputs;
+import org.gradle.api.artifacts.transform.TransformParameters;
+import org.gradle.api.file.FileSystemLocation;
+import org.gradle.api.provider.Provider;
+import org.gradle.api.tasks.Classpath;
+import org.jetbrains.annotations.NotNull;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.GregorianCalendar;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+import java.util.zip.ZipOutputStream;
+
+/**
+ * Reduces a compile-classpath jar (or classes directory) to the restricted-API data the access-modifier
+ * checker reads: the {@code org.kohsuke.accmod.Restricted} index and the class files it lists, which carry
+ * the {@code @Restricted} annotations. Artifacts declaring no restrictions produce no output.
+ *
+ * <p>The checker collects restrictions by enumerating the index over its whole classpath and reading every
+ * listed class. Offering it these small jars first means that work no longer opens jenkins-core and every
+ * plugin jar, and Gradle caches the result per distinct jar for all modules and later builds.
+ */
+@CacheableTransform
+public abstract class RestrictedApiIndexTransform implements TransformAction<TransformParameters.None> {
+    /** Artifact type of the transformed artifacts. */
+    public static final String ARTIFACT_TYPE = "jenkins-restricted-api";
+    static final String RESTRICTED_INDEX = "META-INF/annotations/org.kohsuke.accmod.Restricted";
+    // Fixed so that the same input always produces byte-identical output. ZipEntry#setTime converts to a DOS
+    // time in the local time zone, so this is midnight local time, well after the DOS epoch wherever the build
+    // runs; the same constant Gradle uses for archives that don't preserve file timestamps.
+    private static final long ENTRY_TIME = new GregorianCalendar(1980, Calendar.FEBRUARY, 1, 0, 0, 0).getTimeInMillis();
+
+    /** @return the jar or classes directory to reduce */
+    @InputArtifact
+    @Classpath
+    public abstract Provider<FileSystemLocation> getInputArtifact();
+
+    @Override
+    public void transform(@NotNull TransformOutputs outputs) {
+        var input = getInputArtifact().get().getAsFile();
+        try {
+            var entries = input.isDirectory() ? readDirectory(input) : readJar(input);
+            if (entries.isEmpty()) {
+                return;
+            }
+            var name = input.getName().endsWith(".jar") ? input.getName().substring(0, input.getName().length() - 4) : input.getName();
+            write(outputs.file(name + "-restricted-api.jar"), entries);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to index restricted APIs of " + input, e);
+        }
+    }
+
+    private static Map<String, byte[]> readJar(File jar) throws IOException {
+        var entries = new LinkedHashMap<String, byte[]>();
+        try (var zip = new ZipFile(jar)) {
+            var index = zip.getEntry(RESTRICTED_INDEX);
+            if (index == null) {
+                return entries;
+            }
+            var indexBytes = readAll(zip.getInputStream(index));
+            entries.put(RESTRICTED_INDEX, indexBytes);
+            for (var classFile : classFiles(indexBytes)) {
+                var entry = zip.getEntry(classFile);
+                if (entry != null) {
+                    entries.put(classFile, readAll(zip.getInputStream(entry)));
+                }
+            }
+        }
+        return entries;
+    }
+
+    private static Map<String, byte[]> readDirectory(File dir) throws IOException {
+        var entries = new LinkedHashMap<String, byte[]>();
+        var index = new File(dir, RESTRICTED_INDEX);
+        if (!index.isFile()) {
+            return entries;
+        }
+        var indexBytes = Files.readAllBytes(index.toPath());
+        entries.put(RESTRICTED_INDEX, indexBytes);
+        for (var classFile : classFiles(indexBytes)) {
+            var file = new File(dir, classFile);
+            if (file.isFile()) {
+                entries.put(classFile, Files.readAllBytes(file.toPath()));
+            }
+        }
+        return entries;
+    }
+
+    /** Maps the class names listed in the index to class file paths, the same way the checker does. */
+    private static List<String> classFiles(byte[] index) {
+        var classFiles = new ArrayList<String>();
+        for (var line : new String(index, StandardCharsets.UTF_8).split("\\R")) {
+            var className = line.trim();
+            if (!className.isEmpty()) {
+                classFiles.add(className.replace('.', '/') + ".class");
+            }
+        }
+        return classFiles;
+    }
+
+    private static void write(File destination, Map<String, byte[]> entries) throws IOException {
+        try (OutputStream out = Files.newOutputStream(destination.toPath());
+             var zip = new ZipOutputStream(out)) {
+            for (var entry : entries.entrySet()) {
+                var zipEntry = new ZipEntry(entry.getKey());
+                zipEntry.setTime(ENTRY_TIME);
+                zip.putNextEntry(zipEntry);
+                zip.write(entry.getValue());
+                zip.closeEntry();
+            }
+        }
+    }
+
+    private static byte[] readAll(InputStream in) throws IOException {
+        try (in; var out = new ByteArrayOutputStream()) {
+            in.transferTo(out);
+            return out.toByteArray();
+        }
+    }
+}
@@ -0,0 +1,63 @@
+package org.jenkinsci.gradle.plugins.jpi2.accmod;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.URL;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Lets the {@link CheckAccess} work items checking shards of the same classpath share one
+ * {@link RestrictedApiClassLoader}, so jars opened for one shard aren't opened again for the next.
+ *
+ * <p>Loaders are reference counted and closed once the last work item using them releases them, so nothing
+ * outlives the task that needed it.
+ */
+final class SharedClassLoaders {
+    private static final Map<List<List<URL>>, Lease> LEASES = new HashMap<>();
+
+    private SharedClassLoaders() {
+    }
+
+    /** A loader acquired through {@link #acquire}; closing it releases this work item's reference. */
+    static final class Lease implements AutoCloseable {
+        private final List<List<URL>> key;
+        private final RestrictedApiClassLoader loader;
+        private int references;
+
+        private Lease(List<List<URL>> key, RestrictedApiClassLoader loader) {
+            this.key = key;
+            this.loader = loader;
+        }
+
+        RestrictedApiClassLoader loader() {
+            return loader;
+        }
+
+        @Override
+        public void close() {
+            synchronized (LEASES) {
+                if (--references > 0) {
+                    return;
+                }
+                LEASES.remove(key);
+            }
+            try {
+                loader.close();
+            } catch (IOException e) {
+                throw new UncheckedIOException("Failed to close access modifier class loader", e);
+            }
+        }
+    }
+
+    /** Returns the loader for the given classpath, creating it when no running work item holds one. */
+    static Lease acquire(URL[] restrictionUrls, URL[] classpathUrls, ClassLoader parent) {
+        var key = List.of(List.of(restrictionUrls), List.of(classpathUrls));
+        synchronized (LEASES) {
+            var lease = LEASES.computeIfAbsent(key, k -> new Lease(k, new RestrictedApiClassLoader(restrictionUrls, classpathUrls, parent)));
+            lease.references++;
+            return lease;
+        }
+    }
+}
@@ -1,20 +1,21 @@
 package org.jenkinsci.gradle.plugins.jpi2.localization;
 
 import org.gradle.api.file.DirectoryProperty;
-import org.gradle.api.file.RegularFileProperty;
-import org.gradle.api.provider.Property;
+import org.gradle.api.provider.ListProperty;
 import org.gradle.workers.WorkParameters;
 
+import java.io.File;
+
 /**
  * Work parameters for the localization generation task.
  */
 public interface LocalizationParameters extends WorkParameters {
-    /** @return the source Messages.properties file */
-    RegularFileProperty getSourceFile();
+    /** @return the source Messages.properties files of this batch */
+    ListProperty<File> getSourceFiles();
 
     /** @return the output directory for generated files */
     DirectoryProperty getOutputDir();
 
-    /** @return the relative path of the source file within the source root */
-    Property<String> getRelativePath();
+    /** @return the relative path of each source file within its source root, in the order of {@link #getSourceFiles()} */
+    ListProperty<String> getRelativePaths();
 }
@@ -3,6 +3,7 @@ package org.jenkinsci.gradle.plugins.jpi2.localization;
 import org.gradle.api.GradleException;
 import org.gradle.api.file.ConfigurableFileCollection;
 import org.gradle.api.file.DirectoryProperty;
+import org.gradle.api.file.FileType;
 import org.gradle.api.tasks.CacheableTask;
 import org.gradle.api.tasks.InputFiles;
 import org.gradle.api.tasks.OutputDirectory;
@@ -11,19 +12,33 @@ import org.gradle.api.tasks.PathSensitivity;
 import org.gradle.api.tasks.SkipWhenEmpty;
 import org.gradle.api.tasks.SourceTask;
 import org.gradle.api.tasks.TaskAction;
+import org.gradle.work.ChangeType;
+import org.gradle.work.FileChange;
+import org.gradle.work.Incremental;
+import org.gradle.work.InputChanges;
 import org.gradle.workers.WorkQueue;
 import org.gradle.workers.WorkerExecutor;
 
 import javax.inject.Inject;
 import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
 import java.util.HashSet;
+import java.util.Map;
 import java.util.Set;
+import java.util.SortedMap;
+import java.util.TreeMap;
 
 /**
- * Task that generates Java classes from Messages.properties files.
+ * Task that generates Java classes from Messages.properties files, incrementally when possible.
  */
 @CacheableTask
 public abstract class LocalizationTask extends SourceTask {
+    private static final String PROPERTIES_SUFFIX = ".properties";
+    private static final int BUNDLES_PER_WORK_ITEM = 50;
+
     /** Creates a new localization task. */
     public LocalizationTask() {
         include("**/Messages.properties");
@@ -47,41 +62,79 @@ public abstract class LocalizationTask extends SourceTask {
     @Inject
     public abstract WorkerExecutor getWorkerExecutor();
 
-    /** Submits one localizer work item per {@code Messages.properties} file, resolved relative to the configured source roots. */
+    /**
+     * Generates sources for the {@code Messages.properties} files that changed since the last run, resolved
+     * relative to the configured source roots, and deletes the sources of removed ones. Bundles are handed to
+     * the localizer in batches so that small bundles don't each pay for a work item and a generator.
+     *
+     * @param inputChanges changes since the last execution
+     */
     @TaskAction
-    public void generate() {
-        WorkQueue workQueue = getWorkerExecutor().classLoaderIsolation(spec ->
-                spec.getClasspath().from(getLocalizerClasspath()));
-
+    public void generate(InputChanges inputChanges) {
         Set<String> roots = new HashSet<>();
         for (File root : getSourceRoots().getFiles()) {
             String absolutePath = root.getAbsolutePath();
             roots.add(absolutePath.endsWith(File.separator) ? absolutePath : absolutePath + File.separator);
         }
 
-        for (File file : getSource()) {
-            String absolutePath = file.getAbsolutePath();
-            String candidate = null;
-            for (String root : roots) {
-                if (absolutePath.startsWith(root)) {
-                    candidate = absolutePath.substring(root.length());
-                    break;
+        File outputDir = getOutputDir().get().getAsFile();
+        SortedMap<String, File> toGenerate = new TreeMap<>();
+        if (inputChanges.isIncremental()) {
+            for (FileChange change : inputChanges.getFileChanges(getSource())) {
+                if (change.getFileType() != FileType.FILE) {
+                    continue;
+                }
+                String relativePath = relativePath(change.getFile(), roots);
+                if (change.getChangeType() == ChangeType.REMOVED) {
+                    deleteGenerated(outputDir, relativePath);
+                } else {
+                    toGenerate.put(relativePath, change.getFile());
                 }
             }
-            if (candidate == null) {
-                throw new GradleException("Could not determine relative path of " + absolutePath + " from configured roots: " + String.join(",", roots));
+        } else {
+            for (File file : getSource()) {
+                toGenerate.put(relativePath(file, roots), file);
             }
-            final String relativePath = candidate;
+        }
+
+        WorkQueue workQueue = getWorkerExecutor().classLoaderIsolation(spec ->
+                spec.getClasspath().from(getLocalizerClasspath()));
+        var bundles = new ArrayList<>(toGenerate.entrySet());
+        for (int start = 0; start < bundles.size(); start += BUNDLES_PER_WORK_ITEM) {
+            var batch = bundles.subList(start, Math.min(start + BUNDLES_PER_WORK_ITEM, bundles.size()));
+            var files = batch.stream().map(Map.Entry::getValue).toList();
+            var relativePaths = batch.stream().map(Map.Entry::getKey).toList();
             workQueue.submit(RunGenerator.class, parameters -> {
-                parameters.getSourceFile().set(file);
+                parameters.getSourceFiles().set(files);
                 parameters.getOutputDir().set(getOutputDir());
-                parameters.getRelativePath().set(relativePath);
+                parameters.getRelativePaths().set(relativePaths);
             });
         }
     }
 
+    private static String relativePath(File file, Set<String> roots) {
+        String absolutePath = file.getAbsolutePath();
+        for (String root : roots) {
+            if (absolutePath.startsWith(root)) {
+                return absolutePath.substring(root.length());
+            }
+        }
+        throw new GradleException("Could not determine relative path of " + absolutePath + " from configured roots: " + String.join(",", roots));
+    }
+
+    /** Deletes the source the localizer generated for the bundle at {@code relativePath}. */
+    private static void deleteGenerated(File outputDir, String relativePath) {
+        String generated = relativePath.substring(0, relativePath.length() - PROPERTIES_SUFFIX.length()) + ".java";
+        try {
+            Files.deleteIfExists(new File(outputDir, generated).toPath());
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to delete stale generated source " + generated, e);
+        }
+    }
+
     @Override
     @InputFiles
+    @Incremental
     @SkipWhenEmpty
     @PathSensitive(PathSensitivity.RELATIVE)
     public org.gradle.api.file.FileTree getSource() {
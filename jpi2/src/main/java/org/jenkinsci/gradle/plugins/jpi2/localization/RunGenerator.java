@@ -11,25 +11,33 @@ import org.slf4j.LoggerFactory;
 
 import java.io.File;
 import java.io.IOException;
+import java.util.List;
 
 /**
- * Work action that runs the localizer generator.
+ * Work action that runs the localizer generator over a batch of {@code Messages.properties} files.
  */
 public abstract class RunGenerator implements WorkAction<LocalizationParameters> {
 
     @Override
     public void execute() {
-        File file = getParameters().getSourceFile().get().getAsFile();
+        List<File> files = getParameters().getSourceFiles().get();
+        List<String> relativePaths = getParameters().getRelativePaths().get();
         File outputDir = getParameters().getOutputDir().get().getAsFile();
-        String relativePath = getParameters().getRelativePath().get();
         GeneratorConfig config = GeneratorConfig.of(outputDir, null, new InfoReporter(), null, false);
         ClassGenerator generator = new Generator(config);
 
+        for (int i = 0; i < files.size(); i++) {
+            File file = files.get(i);
+            try {
+                generator.generate(file, relativePaths.get(i));
+            } catch (IOException e) {
+                throw new GradleException("Failed to generate Java source file from " + file.getAbsolutePath(), e);
+            }
+        }
         try {
-            generator.generate(file, relativePath);
             generator.build();
         } catch (IOException e) {
-            throw new GradleException("Failed to generate Java source file from " + file.getAbsolutePath(), e);
+            throw new GradleException("Failed to write Java source files generated from " + files, e);
         }
     }
 
@@ -4,6 +4,7 @@ import org.gradle.api.file.DirectoryProperty
 import org.gradle.api.file.ProjectLayout
 import org.gradle.api.file.RegularFileProperty
 import org.gradle.api.model.ObjectFactory
+import org.gradle.api.provider.ListProperty
 import org.gradle.api.provider.Property
 import org.gradle.api.provider.Provider
 import org.gradle.api.provider.ProviderFactory
@@ -20,6 +21,7 @@ abstract class GitVersionExtension @Inject constructor(
     objectFactory: ObjectFactory,
     private val layout: ProjectLayout,
     providers: ProviderFactory,
+    versionService: Provider<GitVersionService>,
 ) {
 
     companion object {
@@ -52,6 +54,14 @@ abstract class GitVersionExtension @Inject constructor(
     val allowDirty: Property<Boolean> = objectFactory.property(Boolean::class.javaObjectType)
         .convention(false)
 
+    /**
+     * Pathspecs, relative to [gitRoot], checked for uncommitted changes and untracked files when [allowDirty] is false.
+     * Limiting the check to the paths that feed the plugin keeps it fast in large workspaces.
+     * Empty (the default) checks the whole working tree.
+     */
+    val dirtyCheckPaths: ListProperty<String> = objectFactory.listProperty(String::class.java)
+        .convention(emptyList())
+
     /**
      * Root of the Git repository. Defaults to the project directory.
      */
@@ -74,14 +84,17 @@ abstract class GitVersionExtension @Inject constructor(
      * Resolved on demand when the value is read; no task required. Use this as the source of truth
      * for the plugin version when [VersionSource.GIT]. The [generateGitVersion] task still writes
      * this value (and the full hash) to [outputFile] for scripts and compatibility.
+     * Modeled as a [GitVersionValueSource], so the configuration cache can be reused until the version changes;
+     * projects of the same repository share one source through the [GitVersionService].
      */
     val version: Provider<String> = providers.provider {
-        GitVersion.compute(
+        GitVersionService.Request(
             gitRoot.get().asFile.toPath(),
             versionFormat.get(),
             versionPrefix.get(),
             abbrevLength.get(),
             allowDirty.get(),
-        ).version()
-    }
+            dirtyCheckPaths.get(),
+        )
+    }.flatMap { versionService.get().version(providers, it) }
 }
@@ -24,6 +24,9 @@ abstract class JenkinsPluginExtension @Inject constructor(private val project: P
         const val DEFAULT_LOCALIZER_VERSION = "1.31"
 
         const val DEFAULT_ARCHIVE_EXTENSION = "jpi"
+
+        @JvmField
+        val DEFAULT_STORED_ENTRY_EXTENSIONS = setOf("jar", "zip", "gz", "png", "jpg", "jpeg", "gif")
     }
 
     /**
@@ -33,6 +36,14 @@ abstract class JenkinsPluginExtension @Inject constructor(private val project: P
     val archiveExtension: Property<String> = project.objects.property(String::class.java)
         .convention(DEFAULT_ARCHIVE_EXTENSION)
 
+    /**
+     * Extensions (without the leading dot) of files written uncompressed into the plugin archive because
+     * they are already compressed, such as bundled jars and images.
+     * Defaults to [DEFAULT_STORED_ENTRY_EXTENSIONS]. Set to an empty set to deflate every entry.
+     */
+    val storedEntryExtensions: SetProperty<String> = project.objects.setProperty(String::class.java)
+        .convention(DEFAULT_STORED_ENTRY_EXTENSIONS)
+
     /**
      * The Jenkins work directory used by `server` and `hplRun`.
      * Defaults to `${projectDir}/work`.
@@ -77,4 +77,240 @@ class AccessModifierIntegrationTest extends V2IntegrationTestBase {
                 .contains("org/example/restricted/OhNo")
                 .contains("must not be used");
     }
+
+    @Test
+    void checkAccessModifierReadsRestrictionsFromDependencyJars() throws IOException {
+        // given
+        var ith = new IntegrationTestHelper(tempDir, "8.14");
+        initBuild(ith);
+        Files.writeString(ith.inProjectDir("settings.gradle.kts").toPath(), /* language=kotlin */ """
+                rootProject.name = "test-plugin"
+                include("upstream", "downstream")
+                """);
+        Files.writeString(ith.inProjectDir("build.gradle.kts").toPath(), "");
+        ith.mkDirInProjectDir("upstream/src/main/java/org/example/restricted");
+        Files.writeString(ith.inProjectDir("upstream/build.gradle.kts").toPath(), getBasePluginConfig());
+        Files.writeString(ith.inProjectDir("upstream/src/main/java/org/example/restricted/OhNo.java").toPath(), /* language=java */ """
+                package org.example.restricted;
+                import org.kohsuke.accmod.Restricted;
+                import org.kohsuke.accmod.restrictions.DoNotUse;
+                @Restricted(DoNotUse.class)
+                public class OhNo {
+                    public int add(int a, int b) {
+                        return a + b;
+                    }
+                }
+                """);
+        ith.mkDirInProjectDir("downstream/src/main/java/org/example/blessed");
+        Files.writeString(ith.inProjectDir("downstream/build.gradle.kts").toPath(), getBasePluginConfig() + /* language=kotlin */ """
+                dependencies {
+                    implementation(project(":upstream"))
+                }
+                tasks.named<org.jenkinsci.gradle.plugins.jpi2.accmod.CheckAccessModifierTask>("checkAccessModifier") {
+                    ignoreFailures.set(false)
+                }
+                """);
+        Files.writeString(ith.inProjectDir("downstream/src/main/java/org/example/blessed/Consumer.java").toPath(), /* language=java */ """
+                package org.example.blessed;
+                import org.example.restricted.OhNo;
+                public class Consumer {
+                    public int consume() {
+                        return new OhNo().add(1, 2);
+                    }
+                }
+                """);
+
+        // when
+        // Resolve the upstream project as a jar, so its restrictions come through the artifact transform.
+        var result = ith.gradleRunner()
+                .withArguments(":downstream:checkAccessModifier", "-Dorg.gradle.java.compile-classpath-packaging=true")
+                .buildAndFail();
+
+        // then
+        assertThat(result.getOutput())
+                .contains(":downstream:checkAccessModifier FAILED")
+                .contains("org/example/restricted/OhNo")
+                .contains("must not be used");
+    }
+
+    @Test
+    void checkAccessModifierReportsEveryShardOfALargeDirectory() throws IOException {
+        // given
+        var ith = new IntegrationTestHelper(tempDir, "8.14");
+        initBuild(ith);
+        Files.writeString(ith.inProjectDir("build.gradle.kts").toPath(), getBasePluginConfig() + /* language=kotlin */ """
+                tasks.named<org.jenkinsci.gradle.plugins.jpi2.accmod.CheckAccessModifierTask>("checkAccessModifier") {
+                    maxWorkItems.set(4)
+                }
+                """);
+        ith.mkDirInProjectDir("src/main/java/org/example/restricted");
+        ith.mkDirInProjectDir("src/main/java/org/example/blessed");
+        Files.writeString(ith.inProjectDir("src/main/java/org/example/restricted/OhNo.java").toPath(), /* language=java */ """
+                package org.example.restricted;
+                import org.kohsuke.accmod.Restricted;
+                import org.kohsuke.accmod.restrictions.DoNotUse;
+                @Restricted(DoNotUse.class)
+                public class OhNo {
+                    public int add(int a, int b) {
+                        return a + b;
+                    }
+                }
+                """);
+        var consumers = 450;
+        for (int i = 0; i < consumers; i++) {
+            Files.writeString(ith.inProjectDir("src/main/java/org/example/blessed/Consumer" + i + ".java").toPath(), /* language=java */ """
+                    package org.example.blessed;
+                    import org.example.restricted.OhNo;
+                    public class Consumer%d {
+                        public int consume() {
+                            return new OhNo().add(1, 2);
+                        }
+                    }
+                    """.formatted(i));
+        }
+        var report = ith.inProjectDir("build/access-modifier/main-java.txt").toPath();
+
+        // when
+        var result = ith.gradleRunner().withArguments("checkAccessModifier", "--info").build();
+        var first = Files.readString(report);
+        ith.gradleRunner().withArguments("clean", "checkAccessModifier").build();
+
+        // then
+        assertThat(result.getOutput()).contains("Checking " + (consumers + 1) + " classes for restricted API usage in 4 work items");
+        assertThat(first).contains("but was used on " + consumers + " lines");
+        assertThat(Files.readString(report)).isEqualTo(first);
+    }
+
+    @Test
+    void checkAccessModifierMergesResultsOfUnchangedClasses() throws IOException {
+        // given
+        var ith = new IntegrationTestHelper(tempDir, "8.14");
+        initBuild(ith);
+        Files.writeString(ith.inProjectDir("build.gradle.kts").toPath(), getBasePluginConfig());
+        ith.mkDirInProjectDir("src/main/java/org/example/restricted");
+        ith.mkDirInProjectDir("src/main/java/org/example/blessed");
+        Files.writeString(ith.inProjectDir("src/main/java/org/example/restricted/OhNo.java").toPath(), /* language=java */ """
+                package org.example.restricted;
+                import org.kohsuke.accmod.Restricted;
+                import org.kohsuke.accmod.restrictions.DoNotUse;
+                @Restricted(DoNotUse.class)
+                public class OhNo {
+                    public int add(int a, int b) {
+                        return a + b;
+                    }
+                }
+                """);
+        var consumer = ith.inProjectDir("src/main/java/org/example/blessed/Consumer.java").toPath();
+        Files.writeString(consumer, /* language=java */ """
+                package org.example.blessed;
+                import org.example.restricted.OhNo;
+                public class Consumer {
+                    public int consume() {
+                        return new OhNo().add(1, 2);
+                    }
+                }
+                """);
+        var other = ith.inProjectDir("src/main/java/org/example/blessed/Other.java").toPath();
+        Files.writeString(other, /* language=java */ """
+                package org.example.blessed;
+                public class Other {
+                    public int value() {
+                        return 1;
+                    }
+                }
+                """);
+        var report = ith.inProjectDir("build/access-modifier/main-java.txt").toPath();
+        ith.gradleRunner().withArguments("checkAccessModifier").build();
+        assertThat(Files.readString(report)).contains("Consumer:");
+
+        // when
+        Files.writeString(other, /* language=java */ """
+                package org.example.blessed;
+                public class Other {
+                    public int value() {
+                        return 2;
+                    }
+                }
+                """);
+        var otherChanged = ith.gradleRunner().withArguments("checkAccessModifier", "--info").build();
+
+        // then
+        assertThat(otherChanged.getOutput())
+                .contains("Checking classes changed since the last run for restricted API usage: [org/example/blessed/Other.class]");
+        assertThat(Files.readString(report)).contains("Consumer:");
+
+        // when
+        Files.writeString(consumer, /* language=java */ """
+                package org.example.blessed;
+                public class Consumer {
+                    public int consume() {
+                        return 3;
+                    }
+                }
+                """);
+        var consumerChanged = ith.gradleRunner().withArguments("checkAccessModifier", "--info").build();
+
+        // then
+        assertThat(consumerChanged.getOutput())
+                .contains("Checking classes changed since the last run for restricted API usage: [org/example/blessed/Consumer.class]");
+        assertThat(Files.readString(report)).doesNotContain("Consumer:");
+    }
+
+    @Test
+    void checkAccessModifierChecksEverythingWhenSignaturesChange() throws IOException {
+        // given
+        var ith = new IntegrationTestHelper(tempDir, "8.14");
+        initBuild(ith);
+        Files.writeString(ith.inProjectDir("build.gradle.kts").toPath(), getBasePluginConfig());
+        ith.mkDirInProjectDir("src/main/java/org/example/blessed");
+        var base = ith.inProjectDir("src/main/java/org/example/blessed/Base.java").toPath();
+        Files.writeString(base, /* language=java */ """
+                package org.example.blessed;
+                public class Base {
+                    public int value() {
+                        return 1;
+                    }
+                }
+                """);
+        Files.writeString(ith.inProjectDir("src/main/java/org/example/blessed/Derived.java").toPath(), /* language=java */ """
+                package org.example.blessed;
+                public class Derived extends Base {
+                }
+                """);
+        ith.gradleRunner().withArguments("checkAccessModifier").build();
+        var fullCheck = "Checking all classes for restricted API usage: the supertypes or signatures of org/example/blessed/Base.class changed";
+
+        // when
+        Files.writeString(base, /* language=java */ """
+                package org.example.blessed;
+                public class Base {
+                    public int value() {
+                        return 2;
+                    }
+                }
+                """);
+        var bodyChanged = ith.gradleRunner().withArguments("checkAccessModifier", "--info").build();
+
+        // then
+        assertThat(bodyChanged.getOutput())
+                .doesNotContain(fullCheck)
+                .contains("Checking classes changed since the last run for restricted API usage: [org/example/blessed/Base.class]");
+
+        // when
+        Files.writeString(base, /* language=java */ """
+                package org.example.blessed;
+                public class Base extends java.util.ArrayList<String> {
+                    public int value() {
+                        return 2;
+                    }
+                }
+                """);
+        var supertypeChanged = ith.gradleRunner().withArguments("checkAccessModifier", "--info").build();
+
+        // then
+        assertThat(supertypeChanged.getOutput()).contains(fullCheck);
+        assertThat(Files.readString(ith.inProjectDir("build/access-modifier/main-java.shapes").toPath()))
+                .contains("org/example/blessed/Base.class\t")
+                .contains("org/example/blessed/Derived.class\t");
+    }
 }
@@ -25,6 +25,27 @@ class CheckOverlappingSourcesIntegrationTest extends V2IntegrationTestBase {
         assertThat(ith.inProjectDir("build/check-overlap/discovered.txt")).exists();
     }
 
+    @Test
+    void checkAndManifestShareOneMetadataIndex() throws IOException {
+        var ith = new IntegrationTestHelper(tempDir, "8.14");
+        configureSimpleBuild(ith);
+        ith.mkDirInProjectDir("src/main/java/com/example");
+        Files.writeString(ith.inProjectDir("src/main/java/com/example/JavaExtension.java").toPath(), /* language=java */ """
+                package com.example;
+                @hudson.Extension
+                public class JavaExtension {
+                }
+                """);
+
+        var result = ith.gradleRunner().withArguments(CheckOverlappingSourcesTask.NAME, GenerateOptionalJenkinsManifestTask.NAME).build();
+
+        assertThat(result.task(":" + IndexCompiledMetadataTask.NAME).getOutcome()).isEqualTo(TaskOutcome.SUCCESS);
+        assertThat(Files.readString(ith.inProjectDir("build/jenkins-metadata/index.txt").toPath()))
+                .contains("com.example.JavaExtension");
+        assertThat(Files.readString(ith.inProjectDir("build/check-overlap/discovered.txt").toPath()))
+                .startsWith("build/classes/java/main/META-INF/annotations/");
+    }
+
     @Test
     void checkOverlappingSourcesFailsForMultiplePluginImplementations() throws IOException {
         var ith = new IntegrationTestHelper(tempDir, "8.14");
@@ -55,6 +76,24 @@ class CheckOverlappingSourcesIntegrationTest extends V2IntegrationTestBase {
                 .contains("Found multiple directories containing Jenkins plugin implementations");
     }
 
+    @Test
+    void checkOverlappingSourcesIgnoresResources() throws IOException {
+        var ith = new IntegrationTestHelper(tempDir, "8.14");
+        configureSimpleBuild(ith);
+        ith.mkDirInProjectDir("src/main/java/com/example");
+        ith.mkDirInProjectDir("src/main/resources/META-INF/services");
+        Files.writeString(ith.inProjectDir("src/main/java/com/example/JavaPlugin.java").toPath(), /* language=java */ """
+                package com.example;
+                public class JavaPlugin extends hudson.Plugin {
+                }
+                """);
+        Files.writeString(ith.inProjectDir("src/main/resources/META-INF/services/hudson.Plugin").toPath(), "com.example.JavaPlugin\n");
+
+        var result = ith.gradleRunner().withArguments("checkOverlappingSources").build();
+
+        assertThat(result.task(":checkOverlappingSources").getOutcome()).isEqualTo(TaskOutcome.SUCCESS);
+    }
+
     @Test
     void checkOverlappingSourcesFailsForOverlappingSezpozFiles() throws IOException {
         var ith = new IntegrationTestHelper(tempDir, "8.14");
@@ -0,0 +1,169 @@
+package org.jenkinsci.gradle.plugins.jpi2;
+
+import org.apache.maven.model.Developer;
+import org.apache.maven.model.License;
+import org.apache.maven.model.Model;
+import org.apache.maven.model.io.xpp3.MavenXpp3Reader;
+import org.assertj.core.groups.Tuple;
+import org.codehaus.plexus.util.xml.pull.XmlPullParserException;
+import org.gradle.testkit.runner.BuildResult;
+import org.jenkinsci.gradle.plugins.jpi.IntegrationTestHelper;
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.io.FileReader;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ConfigurationCacheIntegrationTest extends V2IntegrationTestBase {
+
+    private static final String METADATA_CONFIG = /* language=kotlin */ """
+            jenkinsPlugin {
+                developers {
+                    developer {
+                        id.set("alice")
+                        name.set("Alice Dev")
+                        roles.add("maintainer")
+                    }
+                }
+                licenses {
+                    license {
+                        name.set("MIT License")
+                        url.set("https://opensource.org/licenses/MIT")
+                    }
+                }
+            }
+            dependencies {
+                implementation("org.jenkins-ci.plugins:structs:338.v848422169819")
+            }
+            """;
+
+    @Test
+    void buildTasksReuseConfigurationCache() throws IOException {
+        // given
+        var ith = new IntegrationTestHelper(tempDir, "8.14");
+        initBuild(ith);
+        Files.writeString(ith.inProjectDir("build.gradle.kts").toPath(), getBasePluginConfig() + METADATA_CONFIG);
+        writeSource(ith);
+
+        // when
+        var second = runTwiceWithConfigurationCache(ith, "jar", "jpi", "generateLicenseInfo", "checkOverlappingSources",
+                "checkAccessModifier", "localizeMessages", "generateHpl", "generateJenkinsManifest");
+
+        // then
+        assertThat(ith.inProjectDir("build/libs/test-plugin-1.0.0.jpi")).exists();
+        assertThat(second.getOutput()).doesNotContain("problems were found");
+    }
+
+    @Test
+    void publishingReusesConfigurationCache() throws IOException, XmlPullParserException {
+        // given
+        var ith = new IntegrationTestHelper(tempDir, "8.14");
+        initBuild(ith);
+        Files.writeString(ith.inProjectDir("build.gradle.kts").toPath(), getBasePluginConfig() + METADATA_CONFIG);
+        writeSource(ith);
+
+        // when
+        runTwiceWithConfigurationCache(ith, "publish");
+
+        // then
+        var model = readPom(ith.inProjectDir("build/repo/com/example/test-plugin/1.0.0/test-plugin-1.0.0.pom"));
+        assertThat(model.getPackaging()).isEqualTo("jpi");
+        assertThat(model.getDevelopers()).extracting(Developer::getId, Developer::getRoles)
+                .containsExactly(new Tuple("alice", List.of("maintainer")));
+        assertThat(model.getLicenses()).extracting(License::getName).containsExactly("MIT License");
+        assertThat(model.getRepositories()).isNotEmpty();
+        assertThat(model.getDependencies()).anySatisfy(dependency -> {
+            assertThat(dependency.getArtifactId()).isEqualTo("structs");
+            assertThat(dependency.getVersion()).isEqualTo("338.v848422169819");
+        });
+    }
+
+    @Test
+    void publishingWithFixedVersionSourceReusesConfigurationCache() throws IOException, XmlPullParserException {
+        // given
+        var ith = new IntegrationTestHelper(tempDir, "8.14");
+        initBuild(ith);
+        Files.writeString(ith.inProjectDir("build.gradle.kts").toPath(), getBasePluginConfig() + /* language=kotlin */ """
+                jenkinsPlugin {
+                    versionSource.set(org.jenkinsci.gradle.plugins.jpi2.VersionSource.FIXED)
+                    fixedVersion.set("2.0.0-beta")
+                }
+                """);
+
+        // when
+        runTwiceWithConfigurationCache(ith, "publish");
+
+        // then
+        var model = readPom(ith.inProjectDir("build/repo/com/example/test-plugin/2.0.0-beta/test-plugin-2.0.0-beta.pom"));
+        assertThat(model.getVersion()).isEqualTo("2.0.0-beta");
+    }
+
+    @Test
+    void serverPreparationReusesConfigurationCache() throws IOException {
+        // given
+        var ith = new IntegrationTestHelper(tempDir, "8.14");
+        initBuild(ith);
+        Files.writeString(ith.inProjectDir("build.gradle.kts").toPath(), getBasePluginConfig() + METADATA_CONFIG);
+        writeSource(ith);
+
+        // when
+        runTwiceWithConfigurationCache(ith, "prepareServer", "prepareRun");
+
+        // then
+        assertThat(ith.inProjectDir("work/plugins/structs.jpi")).exists();
+        assertThat(ith.inProjectDir("work/plugins/test-plugin.hpl")).exists();
+    }
+
+    @Test
+    void multiModuleBuildReusesConfigurationCache() throws IOException {
+        // given
+        var ith = new IntegrationTestHelper(tempDir, "8.14");
+        configureModuleWithNestedDependencies(ith);
+
+        // when
+        runTwiceWithConfigurationCache(ith, "build", "publish", ":plugin-four:prepareServer", ":plugin-four:prepareRun");
+
+        // then
+        assertThat(ith.inProjectDir("plugin-four/work/plugins/plugin-three.jpi")).exists();
+        assertThat(ith.inProjectDir("plugin-four/work/plugins/plugin-four.hpl")).exists();
+    }
+
+    private static BuildResult runTwiceWithConfigurationCache(IntegrationTestHelper ith, String... tasks) {
+        var arguments = new ArrayList<String>();
+        arguments.add("--configuration-cache");
+        arguments.addAll(List.of(tasks));
+
+        BuildResult first = ith.gradleRunner().withArguments(arguments).build();
+        assertThat(first.getOutput()).contains("Configuration cache entry stored");
+
+        BuildResult second = ith.gradleRunner().withArguments(arguments).build();
+        assertThat(second.getOutput()).contains("Configuration cache entry reused");
+        return second;
+    }
+
+    private static void writeSource(IntegrationTestHelper ith) throws IOException {
+        var source = ith.inProjectDir("src/main/java/com/example/plugin/Example.java").toPath();
+        Files.createDirectories(source.getParent());
+        Files.writeString(source, /* language=java */ """
+                package com.example.plugin;
+
+                public class Example {
+                }
+                """);
+        var messages = ith.inProjectDir("src/main/resources/com/example/plugin/Messages.properties").toPath();
+        Files.createDirectories(messages.getParent());
+        Files.writeString(messages, "hello=Hello\n");
+    }
+
+    private static Model readPom(File pom) throws IOException, XmlPullParserException {
+        assertThat(pom).exists();
+        try (var reader = new FileReader(pom)) {
+            return new MavenXpp3Reader().read(reader);
+        }
+    }
+}
@@ -0,0 +1,148 @@
+package org.jenkinsci.gradle.plugins.jpi2;
+
+import org.gradle.testkit.runner.TaskOutcome;
+import org.jenkinsci.gradle.plugins.jpi.IntegrationTestHelper;
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class JpiArchiveIntegrationTest extends V2IntegrationTestBase {
+
+    @Test
+    void bundledJarsAreStoredAndOtherEntriesDeflated() throws IOException {
+        // given
+        var ith = new IntegrationTestHelper(tempDir, "8.14");
+        configureBuildWithOssLibraryDependency(ith);
+
+        // when
+        ith.gradleRunner().withArguments("jpi").build();
+
+        // then
+        var methods = entryMethods(ith.inProjectDir("build/libs/test-plugin-1.0.0.jpi"));
+        assertThat(methods)
+                .containsEntry("WEB-INF/lib/test-plugin-1.0.0.jar", ZipEntry.STORED)
+                .containsEntry("WEB-INF/lib/commons-lang3-3.12.0.jar", ZipEntry.STORED)
+                .containsEntry("META-INF/MANIFEST.MF", ZipEntry.DEFLATED);
+    }
+
+    @Test
+    void emptyStoredEntryExtensionsDeflatesEverything() throws IOException {
+        // given
+        var ith = new IntegrationTestHelper(tempDir, "8.14");
+        configureSimpleBuild(ith);
+        Files.writeString(ith.inProjectDir("build.gradle.kts").toPath(), getBasePluginConfig() + /* language=kotlin */ """
+                jenkinsPlugin {
+                    storedEntryExtensions.empty()
+                }
+                """);
+
+        // when
+        ith.gradleRunner().withArguments("jpi").build();
+
+        // then
+        var methods = entryMethods(ith.inProjectDir("build/libs/test-plugin-1.0.0.jpi"));
+        assertThat(methods).containsEntry("WEB-INF/lib/test-plugin-1.0.0.jar", ZipEntry.DEFLATED);
+    }
+
+    @Test
+    void archiveIsReproducible() throws IOException {
+        // given
+        var ith = new IntegrationTestHelper(tempDir, "8.14");
+        configureBuildWithOssLibraryDependency(ith);
+        var jpi = ith.inProjectDir("build/libs/test-plugin-1.0.0.jpi");
+        ith.gradleRunner().withArguments("jpi").build();
+        var first = Files.readAllBytes(jpi.toPath());
+
+        // when
+        ith.gradleRunner().withArguments("clean", "jpi", "--no-build-cache").build();
+
+        // then
+        assertThat(Files.readAllBytes(jpi.toPath())).isEqualTo(first);
+    }
+
+    @Test
+    void rebuiltArchiveIsIdenticalToCleanBuild() throws IOException {
+        // given
+        var ith = new IntegrationTestHelper(tempDir, "8.14");
+        configureBuildWithOssLibraryDependency(ith);
+        ith.mkDirInProjectDir("src/main/webapp");
+        Files.writeString(ith.inProjectDir("src/main/webapp/help.html").toPath(), "<div>Help</div>");
+        Files.writeString(ith.inProjectDir("src/main/webapp/notes.html").toPath(), "<div>Notes</div>");
+        var jpi = ith.inProjectDir("build/libs/test-plugin-1.0.0.jpi");
+        ith.gradleRunner().withArguments("jpi").build();
+
+        // when
+        Files.writeString(ith.inProjectDir("src/main/webapp/notes.html").toPath(), "<div>Updated notes</div>");
+        ith.gradleRunner().withArguments("jpi").build();
+        var rebuilt = Files.readAllBytes(jpi.toPath());
+        ith.gradleRunner().withArguments("clean", "jpi", "--no-build-cache").build();
+
+        // then
+        assertThat(rebuilt).isEqualTo(Files.readAllBytes(jpi.toPath()));
+        try (var zip = new ZipFile(jpi)) {
+            assertThat(new String(zip.getInputStream(zip.getEntry("notes.html")).readAllBytes()))
+                    .isEqualTo("<div>Updated notes</div>");
+        }
+    }
+
+    @Test
+    void explodedJpiIsUpdatedInPlace() throws IOException {
+        // given
+        var ith = new IntegrationTestHelper(tempDir, "8.14");
+        configureBuildWithOssLibraryDependency(ith);
+        ith.mkDirInProjectDir("src/main/webapp/images");
+        Files.writeString(ith.inProjectDir("src/main/webapp/help.html").toPath(), "<div>Help</div>");
+        Files.writeString(ith.inProjectDir("src/main/webapp/images/old.html").toPath(), "<div>Old</div>");
+        ith.gradleRunner().withArguments("jpi").build();
+        var library = ith.inProjectDir("build/jpi/WEB-INF/lib/commons-lang3-3.12.0.jar");
+        assertThat(library).exists();
+        assertThat(library.setLastModified(0)).isTrue();
+
+        // when
+        Files.delete(ith.inProjectDir("src/main/webapp/images/old.html").toPath());
+        Files.writeString(ith.inProjectDir("src/main/webapp/help.html").toPath(), "<div>More help</div>");
+        var result = ith.gradleRunner().withArguments("explodedJpi").build();
+
+        // then
+        assertThat(result.task(":jpi").getOutcome()).isEqualTo(TaskOutcome.SUCCESS);
+        assertThat(ith.inProjectDir("build/jpi/help.html")).hasContent("<div>More help</div>");
+        assertThat(ith.inProjectDir("build/jpi/images")).doesNotExist();
+        assertThat(library.lastModified()).isZero();
+        assertThat(ith.inProjectDir("build/jpi/META-INF/MANIFEST.MF")).exists();
+    }
+
+    @Test
+    void explodedJpiRestoresFilesEditedInPlace() throws IOException {
+        // given
+        var ith = new IntegrationTestHelper(tempDir, "8.14");
+        configureBuildWithOssLibraryDependency(ith);
+        Files.writeString(ith.inProjectDir("src/main/webapp/help.html").toPath(), "<div>Help</div>");
+        ith.gradleRunner().withArguments("jpi").build();
+        var help = ith.inProjectDir("build/jpi/help.html");
+        assertThat(help).hasContent("<div>Help</div>");
+
+        // when
+        Files.writeString(help.toPath(), "<div>Edit</div>");
+        var result = ith.gradleRunner().withArguments("explodedJpi").build();
+
+        // then
+        assertThat(result.task(":jpi").getOutcome()).isEqualTo(TaskOutcome.SUCCESS);
+        assertThat(help).hasContent("<div>Help</div>");
+    }
+
+    private static Map<String, Integer> entryMethods(File archive) throws IOException {
+        var methods = new HashMap<String, Integer>();
+        try (var zip = new ZipFile(archive)) {
+            zip.stream().forEach(entry -> methods.put(entry.getName(), entry.getMethod()));
+        }
+        return methods;
+    }
+}
@@ -3,8 +3,14 @@ package org.jenkinsci.gradle.plugins.jpi2;
 import org.jenkinsci.gradle.plugins.jpi.IntegrationTestHelper;
 import org.junit.jupiter.api.Test;
 
+import java.io.File;
 import java.io.IOException;
 import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.Map;
+import java.util.jar.JarEntry;
+import java.util.jar.JarOutputStream;
 
 import static org.assertj.core.api.Assertions.assertThat;
 
@@ -31,4 +37,156 @@ class LicenseInfoIntegrationTest extends V2IntegrationTestBase {
         var packagedLicenseInfo = ith.inProjectDir("build/jpi/WEB-INF/licenses.xml");
         assertThat(packagedLicenseInfo).exists();
     }
+
+    @Test
+    void generateLicenseInfoShouldInheritLicensesFromParentPom() throws IOException {
+        // given
+        var ith = new IntegrationTestHelper(tempDir, "8.14");
+        configureSimpleBuild(ith);
+        // commons-lang3 declares no licenses itself; they come from org.apache:apache via commons-parent
+        Files.writeString(ith.inProjectDir("build.gradle.kts").toPath(), /* language=kotlin */ """
+                dependencies {
+                    implementation("org.apache.commons:commons-lang3:3.12.0")
+                }
+                """, StandardOpenOption.APPEND);
+
+        // when
+        ith.gradleRunner().withArguments("generateLicenseInfo").build();
+
+        // then
+        var licenses = Files.readString(ith.inProjectDir("build/licenses/licenses.xml").toPath());
+        var commonsLang = licenses.substring(licenses.indexOf("artifactId=\"commons-lang3\""));
+        commonsLang = commonsLang.substring(0, commonsLang.indexOf("</l:dependency>"));
+        assertThat(commonsLang).contains("name=\"Apache License, Version 2.0\"");
+    }
+
+    @Test
+    void generateLicenseInfoShouldReportSharedLibrariesInEveryModule() throws IOException {
+        // given
+        var ith = new IntegrationTestHelper(tempDir, "8.14");
+        Files.writeString(ith.inProjectDir("settings.gradle.kts").toPath(), /* language=kotlin */ """
+                rootProject.name = "test-plugin"
+                include("plugin-one", "plugin-two")
+                """);
+        Files.writeString(ith.inProjectDir("build.gradle.kts").toPath(), "");
+        for (var module : List.of("plugin-one", "plugin-two")) {
+            ith.mkDirInProjectDir(module);
+            Files.writeString(ith.inProjectDir(module + "/build.gradle.kts").toPath(), getBasePluginConfig() + /* language=kotlin */ """
+                    dependencies {
+                        implementation("org.apache.commons:commons-lang3:3.12.0")
+                    }
+                    """);
+        }
+
+        // when
+        var result = ith.gradleRunner().withArguments("generateLicenseInfo", "--info").build();
+
+        // then
+        for (var module : List.of("plugin-one", "plugin-two")) {
+            assertThat(Files.readString(ith.inProjectDir(module + "/build/licenses/licenses.xml").toPath()))
+                    .contains("artifactId=\"commons-lang3\"")
+                    .contains("name=\"Apache License, Version 2.0\"");
+        }
+        assertThat(result.getOutput().lines()
+                .filter(line -> line.startsWith("Resolving POMs for license information:"))
+                .filter(line -> line.contains("org.apache.commons:commons-lang3:3.12.0")))
+                .hasSize(1);
+    }
+
+    @Test
+    void generateLicenseInfoShouldResolvePomsFromEachProjectsRepositories() throws IOException {
+        // given
+        var ith = new IntegrationTestHelper(tempDir, "8.14");
+        Files.writeString(ith.inProjectDir("settings.gradle.kts").toPath(), /* language=kotlin */ """
+                rootProject.name = "test-plugin"
+                include("plugin-one", "plugin-two")
+                """);
+        Files.writeString(ith.inProjectDir("build.gradle.kts").toPath(), "");
+        var licenses = Map.of("plugin-one", "License One", "plugin-two", "License Two");
+        for (var module : List.of("plugin-one", "plugin-two")) {
+            // the same coordinates, published with a different license in each project's repository
+            publishLibrary(ith.inProjectDir("repo-" + module), licenses.get(module));
+            ith.mkDirInProjectDir(module);
+            Files.writeString(ith.inProjectDir(module + "/build.gradle.kts").toPath(), getBasePluginConfig() + /* language=kotlin */ """
+                    repositories {
+                        maven { url = uri(rootDir.resolve("repo-%s")) }
+                    }
+                    dependencies {
+                        implementation("com.example:library:1.0")
+                    }
+                    """.formatted(module));
+        }
+
+        // when
+        ith.gradleRunner().withArguments("generateLicenseInfo").build();
+
+        // then
+        for (var module : List.of("plugin-one", "plugin-two")) {
+            assertThat(Files.readString(ith.inProjectDir(module + "/build/licenses/licenses.xml").toPath()))
+                    .contains("name=\"" + licenses.get(module) + "\"");
+        }
+    }
+
+    private static void publishLibrary(File repository, String license) throws IOException {
+        var dir = new File(repository, "com/example/library/1.0").toPath();
+        Files.createDirectories(dir);
+        Files.writeString(dir.resolve("library-1.0.pom"), /* language=xml */ """
+                <?xml version="1.0" encoding="UTF-8"?>
+                <project xmlns="http://maven.apache.org/POM/4.0.0">
+                  <modelVersion>4.0.0</modelVersion>
+                  <groupId>com.example</groupId>
+                  <artifactId>library</artifactId>
+                  <version>1.0</version>
+                  <name>Library</name>
+                  <licenses>
+                    <license>
+                      <name>%s</name>
+                      <url>https://example.com/license</url>
+                    </license>
+                  </licenses>
+                </project>
+                """.formatted(license));
+        try (var jar = new JarOutputStream(Files.newOutputStream(dir.resolve("library-1.0.jar")))) {
+            jar.putNextEntry(new JarEntry("com/example/library/"));
+            jar.closeEntry();
+        }
+    }
+
+    @Test
+    void generateLicenseInfoShouldUpdateReportWhenDependencyChanges() throws IOException {
+        // given
+        var ith = new IntegrationTestHelper(tempDir, "8.14");
+        configureSimpleBuild(ith);
+        var buildFile = ith.inProjectDir("build.gradle.kts").toPath();
+        var baseConfig = Files.readString(buildFile);
+        Files.writeString(buildFile, baseConfig + /* language=kotlin */ """
+                dependencies {
+                    implementation("org.apache.commons:commons-lang3:3.12.0")
+                    implementation("org.apache.commons:commons-math3:3.6.1")
+                }
+                """);
+        ith.gradleRunner().withArguments("build").build();
+
+        // when
+        Files.writeString(buildFile, baseConfig + /* language=kotlin */ """
+                dependencies {
+                    implementation("org.apache.commons:commons-lang3:3.13.0")
+                }
+                """);
+        ith.gradleRunner().withArguments("build").build();
+
+        // then
+        assertThat(Files.readString(ith.inProjectDir("build/licenses/licenses.xml").toPath()))
+                .contains("version=\"3.13.0\"")
+                .doesNotContain("version=\"3.12.0\"")
+                .doesNotContain("artifactId=\"commons-math3\"");
+        assertThat(ith.inProjectDir("build/jpi/WEB-INF/licenses.xml")).exists();
+        assertThat(ith.inProjectDir("build/jpi/WEB-INF/" + GenerateLicenseInfoTask.INDEX_FILE_NAME)).doesNotExist();
+        // POMs from the Gradle user home are recorded relative to it, so the index is relocatable
+        assertThat(Files.readAllLines(ith.inProjectDir("build/licenses/" + GenerateLicenseInfoTask.INDEX_FILE_NAME).toPath()))
+                .filteredOn(line -> line.contains(".path="))
+                .isNotEmpty()
+                .allMatch(line -> line.matches("entry\\.\\d+\\.path=0\\\\?:.+"), "relative to the Gradle user home")
+                .noneMatch(line -> line.contains(tempDir.getAbsolutePath()));
+    }
 }
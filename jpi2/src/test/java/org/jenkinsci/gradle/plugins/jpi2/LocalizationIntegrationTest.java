@@ -147,6 +147,43 @@ class LocalizationIntegrationTest extends V2IntegrationTestBase {
         assertThat(secondRun.getOutput()).contains("Configuration cache entry reused");
     }
 
+    @Test
+    void localizeMessagesOnlyRegeneratesChangedBundles() throws IOException {
+        // given
+        var ith = new IntegrationTestHelper(tempDir, "8.14");
+        initBuild(ith);
+        Files.writeString(ith.inProjectDir("build.gradle.kts").toPath(), getBasePluginConfig());
+        ith.mkDirInProjectDir("src/main/resources/org/example/one");
+        ith.mkDirInProjectDir("src/main/resources/org/example/two");
+        var one = ith.inProjectDir("src/main/resources/org/example/one/Messages.properties").toPath();
+        var two = ith.inProjectDir("src/main/resources/org/example/two/Messages.properties").toPath();
+        Files.writeString(one, "first=First\n");
+        Files.writeString(two, "second=Second\n");
+        var generatedOne = ith.inProjectDir("build/generated-src/localizer/org/example/one/Messages.java").toPath();
+        var generatedTwo = ith.inProjectDir("build/generated-src/localizer/org/example/two/Messages.java").toPath();
+
+        ith.gradleRunner().withArguments("localizeMessages").build();
+        var untouched = Files.getLastModifiedTime(generatedTwo);
+
+        // when
+        Files.writeString(one, "first=First\nupdated=Updated\n");
+        BuildResult changed = ith.gradleRunner().withArguments("localizeMessages").build();
+
+        // then
+        assertThat(changed.task(":localizeMessages").getOutcome()).isEqualTo(TaskOutcome.SUCCESS);
+        assertThat(Files.readString(generatedOne)).contains("public static String updated()");
+        assertThat(Files.getLastModifiedTime(generatedTwo)).isEqualTo(untouched);
+
+        // when
+        Files.delete(two);
+        BuildResult removed = ith.gradleRunner().withArguments("localizeMessages").build();
+
+        // then
+        assertThat(removed.task(":localizeMessages").getOutcome()).isEqualTo(TaskOutcome.SUCCESS);
+        assertThat(generatedOne).exists();
+        assertThat(generatedTwo).doesNotExist();
+    }
+
     @Test
     void extensionLocalizerVersionOverridesGradleProperty() throws IOException {
         var ith = new IntegrationTestHelper(tempDir, "8.14");
@@ -7,6 +7,7 @@ import org.apache.maven.model.io.xpp3.MavenXpp3Reader;
 import org.assertj.core.groups.Tuple;
 import org.codehaus.plexus.util.xml.pull.XmlPullParserException;
 import org.gradle.testkit.runner.GradleRunner;
+import org.gradle.testkit.runner.TaskOutcome;
 import org.jenkinsci.gradle.plugins.jpi.IntegrationTestHelper;
 import org.junit.jupiter.api.Test;
 
@@ -15,6 +16,7 @@ import java.io.FileReader;
 import java.io.IOException;
 import java.nio.charset.StandardCharsets;
 import java.util.jar.Attributes;
+import java.util.jar.JarFile;
 import java.util.jar.Manifest;
 
 import static org.assertj.core.api.Assertions.assertThat;
@@ -47,6 +49,51 @@ class ManifestIntegrationTest extends V2IntegrationTestBase {
         assertThat(manifestData.getValue("Plugin-Dependencies")).isEqualTo("git:5.7.0");
     }
 
+    @Test
+    void jarAndJpiShareResolvedPluginDependencies() throws IOException {
+        // given
+        var ith = new IntegrationTestHelper(tempDir, "8.14");
+        initBuild(ith);
+        Files.writeString(ith.inProjectDir("build.gradle.kts").toPath(), getBasePluginConfig() + /* language=kotlin */ """
+                dependencies {
+                    implementation("org.jenkins-ci.plugins:git:5.7.0")
+                }
+                """);
+
+        // when
+        var result = ith.gradleRunner().withArguments("jar", "jpi").build();
+
+        // then
+        assertThat(result.task(":" + GeneratePluginDependenciesManifestTask.NAME)).isNotNull();
+        assertThat(ith.inProjectDir("build/jenkins-manifests/plugin-dependencies.mf")).exists();
+        try (var jar = new JarFile(ith.inProjectDir("build/libs/test-plugin-1.0.0.jar"))) {
+            assertThat(jar.getManifest().getMainAttributes().getValue("Plugin-Dependencies")).isEqualTo("git:5.7.0");
+        }
+        assertThat(manifestAttributes(ith).getValue("Plugin-Dependencies")).isEqualTo("git:5.7.0");
+    }
+
+    @Test
+    void jenkinsManifestIsRegeneratedOnlyWhenItsInputsChange() throws IOException {
+        // given
+        var ith = new IntegrationTestHelper(tempDir, "8.14");
+        initBuild(ith);
+        var buildFile = ith.inProjectDir("build.gradle.kts").toPath();
+        var baseConfig = getBasePluginConfig();
+        Files.writeString(buildFile, baseConfig);
+        var task = ":" + GenerateJenkinsManifestTask.NAME;
+        ith.gradleRunner().withArguments("jpi").build();
+
+        // when
+        var unchanged = ith.gradleRunner().withArguments("jpi").build();
+        Files.writeString(buildFile, baseConfig.replace("version = \"1.0.0\"", "version = \"1.0.1\""));
+        var changed = ith.gradleRunner().withArguments("jpi").build();
+
+        // then
+        assertThat(unchanged.task(task).getOutcome()).isEqualTo(TaskOutcome.UP_TO_DATE);
+        assertThat(changed.task(task).getOutcome()).isEqualTo(TaskOutcome.SUCCESS);
+        assertThat(manifestAttributes(ith).getValue("Plugin-Version")).isEqualTo("1.0.1");
+    }
+
     @Test
     void manifestContainsVersionWhenUsingBom() throws IOException, XmlPullParserException {
         var ith = new IntegrationTestHelper(tempDir, "8.14");
@@ -171,4 +171,29 @@ class MultiModuleIntegrationTest extends V2IntegrationTestBase {
         assertThat(ith.inProjectDir("plugin-four/work/plugins/plugin-three.jpi")).doesNotExist();
         assertThat(ith.inProjectDir("plugin-four/work/plugins/plugin-four.hpl")).exists();
     }
+
+    @Test
+    void multiModuleWiresPluginProjectsWithIsolatedProjects() throws IOException {
+        // given
+        var ith = new IntegrationTestHelper(tempDir, "8.14");
+        configureModuleWithNestedDependencies(ith);
+        var isolatedProjects = "-Dorg.gradle.unsafe.isolated-projects=true";
+
+        // when
+        var server = ith.gradleRunner().withArguments(isolatedProjects, ":plugin-four:prepareServer").build();
+
+        // then
+        assertThat(server.task(":plugin-three:jpi").getOutcome()).isEqualTo(TaskOutcome.SUCCESS);
+        assertThat(ith.inProjectDir("plugin-four/work/plugins/plugin-three.jpi")).exists();
+        assertThat(ith.inProjectDir("plugin-four/work/plugins/plugin-four.jpi")).exists();
+
+        // when
+        var run = ith.gradleRunner().withArguments(isolatedProjects, ":plugin-four:prepareRun").build();
+
+        // then
+        assertThat(run.task(":plugin-three:generateHpl").getOutcome()).isEqualTo(TaskOutcome.SUCCESS);
+        assertThat(ith.inProjectDir("plugin-four/work/plugins/plugin-three.hpl")).exists();
+        assertThat(ith.inProjectDir("plugin-four/work/plugins/plugin-three.jpi")).doesNotExist();
+        assertThat(ith.inProjectDir("plugin-four/work/plugins/plugin-four.hpl")).exists();
+    }
 }
@@ -71,6 +71,79 @@ class SimpleBuildIntegrationTest extends V2IntegrationTestBase {
                 .isEqualTo(ith.inProjectDir("src/main/webapp").getCanonicalPath());
     }
 
+    @Test
+    void configuringServerTasksDoesNotResolvePluginDependencies() throws IOException {
+        // given
+        var ith = new IntegrationTestHelper(tempDir, "8.14");
+        initBuild(ith);
+        Files.writeString(ith.inProjectDir("build.gradle.kts").toPath(), getBasePluginConfig() + /* language=kotlin */ """
+                dependencies {
+                    implementation("org.jenkins-ci.plugins:structs:338.v848422169819")
+                }
+                configurations.named("defaultRuntime") {
+                    incoming.beforeResolve {
+                        throw GradleException("defaultRuntime resolved while configuring tasks")
+                    }
+                }
+                """);
+
+        // when
+        var result = ith.gradleRunner().withArguments("tasks", "--all").build();
+
+        // then
+        assertThat(result.getOutput()).contains("prepareServer", "prepareRun", "testServer", "testHplRun");
+    }
+
+    @Test
+    void copyTestPluginDependenciesStagesPluginsUnderShortNames() throws IOException {
+        // given
+        var ith = new IntegrationTestHelper(tempDir, "8.14");
+        initBuild(ith);
+        Files.writeString(ith.inProjectDir("build.gradle.kts").toPath(), getBasePluginConfig() + /* language=kotlin */ """
+                dependencies {
+                    testImplementation("org.jenkins-ci.plugins:structs:338.v848422169819")
+                }
+                """);
+
+        // when
+        ith.gradleRunner().withArguments("copyTestPluginDependencies").build();
+
+        // then
+        var testDependencies = ith.inProjectDir("build/jpi-plugin/test/test-dependencies");
+        assertThat(new File(testDependencies, "structs.jpi")).exists();
+        assertThat(Files.readAllLines(new File(testDependencies, "index").toPath())).containsExactly("structs");
+    }
+
+    @Test
+    void copyTestPluginDependenciesDeletesPluginsThatAreNoLongerDependencies() throws IOException {
+        // given
+        var ith = new IntegrationTestHelper(tempDir, "8.14");
+        initBuild(ith);
+        var build = ith.inProjectDir("build.gradle.kts").toPath();
+        Files.writeString(build, getBasePluginConfig() + /* language=kotlin */ """
+                dependencies {
+                    testImplementation("org.jenkins-ci.plugins:structs:338.v848422169819")
+                    testImplementation("org.jenkins-ci.plugins:jackson2-api:2.19.0-404.vb_b_0fd2fea_e10")
+                }
+                """);
+        ith.gradleRunner().withArguments("copyTestPluginDependencies").build();
+        var testDependencies = ith.inProjectDir("build/jpi-plugin/test/test-dependencies");
+        assertThat(new File(testDependencies, "jackson2-api.jpi")).exists();
+
+        // when
+        Files.writeString(build, getBasePluginConfig() + /* language=kotlin */ """
+                dependencies {
+                    testImplementation("org.jenkins-ci.plugins:structs:338.v848422169819")
+                }
+                """);
+        var result = ith.gradleRunner().withArguments("copyTestPluginDependencies").build();
+
+        // then
+        assertThat(result.task(":copyTestPluginDependencies").getOutcome()).isEqualTo(TaskOutcome.SUCCESS);
+        assertThat(testDependencies.list()).containsExactlyInAnyOrder("index", "structs.jpi");
+        assertThat(Files.readAllLines(new File(testDependencies, "index").toPath())).containsExactly("structs");
+    }
+
     @Test
     void simpleGradleBuildShouldLaunchServer() throws IOException, InterruptedException {
         // given
@@ -215,6 +215,50 @@ class VersionSourceIntegrationTest extends V2IntegrationTestBase {
         assertThat(result.getOutput()).contains("uncommitted changes");
     }
 
+    @Test
+    void generateGitVersionSucceedsOnCleanTreeWhenAllowDirtyFalse() throws IOException, InterruptedException {
+        var ith = new IntegrationTestHelper(tempDir, "8.14");
+        initBuild(ith);
+        Files.writeString(ith.inProjectDir("build.gradle.kts").toPath(), getConfig());
+        initGitRepo(ith.inProjectDir("."));
+
+        ith.gradleRunner().withArguments("generateGitVersion").build();
+
+        assertThat(ith.inProjectDir("build/generated/version/version.txt")).exists();
+    }
+
+    @Test
+    void generateGitVersionOnlyChecksDirtyCheckPaths() throws IOException, InterruptedException {
+        // given
+        var ith = new IntegrationTestHelper(tempDir, "8.14");
+        initBuild(ith);
+        Files.writeString(ith.inProjectDir("build.gradle.kts").toPath(), getConfig() + /* language=kotlin */ """
+                jenkinsPlugin {
+                    gitVersion {
+                        dirtyCheckPaths.set(listOf("src", "build.gradle.kts"))
+                    }
+                }
+                """);
+        ith.mkDirInProjectDir("src/main/java");
+        Files.writeString(ith.inProjectDir("src/main/java/Tracked.java").toPath(), "class Tracked {}\n");
+        initGitRepo(ith.inProjectDir("."));
+        ith.mkDirInProjectDir("docs/drafts");
+        Files.writeString(ith.inProjectDir("docs/drafts/notes.md").toPath(), "untracked");
+
+        // when
+        ith.gradleRunner().withArguments("generateGitVersion").build();
+
+        // then
+        assertThat(ith.inProjectDir("build/generated/version/version.txt")).exists();
+
+        // when
+        Files.writeString(ith.inProjectDir("src/main/java/Tracked.java").toPath(), "class Tracked { int changed; }\n");
+        BuildResult result = ith.gradleRunner().withArguments("generateGitVersion").buildAndFail();
+
+        // then
+        assertThat(result.getOutput()).contains("uncommitted changes");
+    }
+
     @Test
     void generateGitVersionSucceedsWhenAllowDirtyTrue() throws IOException, InterruptedException {
         var ith = new IntegrationTestHelper(tempDir, "8.14");
@@ -259,6 +303,169 @@ class VersionSourceIntegrationTest extends V2IntegrationTestBase {
         assertThat(firstLine).matches("rc-\\d+\\.[a-f0-9]{10}");
     }
 
+    @Test
+    void generateGitVersionResolvesPackedReferences() throws IOException, InterruptedException {
+        var ith = new IntegrationTestHelper(tempDir, "8.14");
+        initBuild(ith);
+        Files.writeString(ith.inProjectDir("build.gradle.kts").toPath(), getConfig() + /* language=kotlin */ """
+                jenkinsPlugin {
+                    gitVersion {
+                        abbrevLength.set(40)
+                        allowDirty.set(true)
+                    }
+                }
+                """);
+        initGitRepo(ith.inProjectDir("."));
+        runGit(ith.inProjectDir("."), "pack-refs", "--all");
+
+        ith.gradleRunner().withArguments("generateGitVersion").build();
+
+        var versionFile = ith.inProjectDir("build/generated/version/version.txt");
+        var firstLine = Files.readAllLines(versionFile.toPath(), StandardCharsets.UTF_8).get(0);
+        assertThat(firstLine).matches("1\\." + GIT_HASH.pattern());
+        assertThat(ith.inProjectDir(".git/refs/heads").list()).isEmpty();
+    }
+
+    @Test
+    void gitVersionCountsCommitsFromRememberedDepth() throws IOException, InterruptedException {
+        // given
+        var ith = new IntegrationTestHelper(tempDir, "8.14");
+        initBuild(ith);
+        Files.writeString(ith.inProjectDir("build.gradle.kts").toPath(), getConfig() + /* language=kotlin */ """
+                jenkinsPlugin {
+                    gitVersion {
+                        allowDirty.set(true)
+                    }
+                }
+                """);
+        var projectDir = ith.inProjectDir(".");
+        initGitRepo(projectDir);
+        var versionFile = ith.inProjectDir("build/generated/version/version.txt").toPath();
+        ith.gradleRunner().withArguments("generateGitVersion").build();
+        assertThat(Files.readAllLines(versionFile, StandardCharsets.UTF_8).get(0)).startsWith("1.");
+
+        // when
+        runGit(projectDir, "commit", "--allow-empty", "-m", "Second commit");
+        runGit(projectDir, "commit", "--allow-empty", "-m", "Third commit");
+        ith.gradleRunner().withArguments("generateGitVersion").build();
+
+        // then
+        assertThat(Files.readAllLines(versionFile, StandardCharsets.UTF_8).get(0)).startsWith("3.");
+        var depthCaches = ith.inProjectDir("build/jpi2/git-commit-depth/v1").listFiles();
+        assertThat(depthCaches).hasSize(1);
+        assertThat(Files.readAllLines(depthCaches[0].toPath(), StandardCharsets.UTF_8))
+                .hasSize(2)
+                .first().asString().endsWith(" 3");
+
+        // when
+        runGit(projectDir, "reset", "--hard", "HEAD~1");
+        runGit(projectDir, "commit", "--allow-empty", "-m", "Rewritten third commit");
+        runGit(projectDir, "commit", "--allow-empty", "-m", "Fourth commit");
+        ith.gradleRunner().withArguments("generateGitVersion").build();
+
+        // then
+        assertThat(Files.readAllLines(versionFile, StandardCharsets.UTF_8).get(0)).startsWith("4.");
+    }
+
+    @Test
+    void gitVersionSourceReusesConfigurationCacheAcrossCommits() throws IOException, InterruptedException {
+        // given
+        var ith = new IntegrationTestHelper(tempDir, "8.14");
+        initBuild(ith);
+        Files.writeString(ith.inProjectDir("build.gradle.kts").toPath(), getBasePluginConfig() + /* language=kotlin */ """
+                jenkinsPlugin {
+                    versionSource.set(org.jenkinsci.gradle.plugins.jpi2.VersionSource.GIT)
+                    gitVersion {
+                        allowDirty.set(true)
+                    }
+                }
+                """);
+        var projectDir = ith.inProjectDir(".");
+        initGitRepo(projectDir);
+        var manifest = ith.inProjectDir("build/jenkins-manifests/jenkins.mf").toPath();
+
+        BuildResult first = ith.gradleRunner().withArguments("--configuration-cache", "generateJenkinsManifest").build();
+        assertThat(first.getOutput()).contains("Configuration cache entry stored");
+        assertThat(Files.readString(manifest)).contains("Plugin-Version: 1.");
+
+        // when
+        runGit(projectDir, "commit", "--allow-empty", "-m", "Second commit");
+        BuildResult second = ith.gradleRunner().withArguments("--configuration-cache", "generateJenkinsManifest").build();
+
+        // then
+        assertThat(second.getOutput()).contains("Configuration cache entry reused");
+        assertThat(Files.readString(manifest)).contains("Plugin-Version: 2.");
+    }
+
+    @Test
+    void gitVersionIsComputedOncePerRepository() throws IOException, InterruptedException {
+        // given
+        var ith = new IntegrationTestHelper(tempDir, "8.14");
+        initBuild(ith);
+        Files.writeString(ith.inProjectDir("settings.gradle.kts").toPath(), /* language=kotlin */ """
+                rootProject.name = "test-plugin"
+                include("one", "two")
+                """);
+        Files.writeString(ith.inProjectDir("build.gradle.kts").toPath(), "");
+        for (var module : List.of("one", "two")) {
+            ith.mkDirInProjectDir(module);
+            Files.writeString(ith.inProjectDir(module + "/build.gradle.kts").toPath(), getBasePluginConfig() + /* language=kotlin */ """
+                    jenkinsPlugin {
+                        versionSource.set(org.jenkinsci.gradle.plugins.jpi2.VersionSource.GIT)
+                        gitVersion {
+                            gitRoot.set(rootProject.layout.projectDirectory)
+                        }
+                    }
+                    """);
+        }
+        initGitRepo(ith.inProjectDir("."));
+
+        // when
+        var result = ith.gradleRunner()
+                .withArguments(":one:generateJenkinsManifest", ":two:generateJenkinsManifest", "--info")
+                .build();
+
+        // then
+        var computed = result.getOutput().lines().filter(line -> line.startsWith("Computing the Git version of ")).count();
+        assertThat(computed).isEqualTo(1);
+        assertThat(Files.readString(ith.inProjectDir("one/build/jenkins-manifests/jenkins.mf").toPath())).contains("Plugin-Version: 1.");
+        assertThat(Files.readString(ith.inProjectDir("two/build/jenkins-manifests/jenkins.mf").toPath())).contains("Plugin-Version: 1.");
+    }
+
+    @Test
+    void generateGitVersionAbbreviatesHashLikeGitRevParse() throws IOException, InterruptedException {
+        var ith = new IntegrationTestHelper(tempDir, "8.14");
+        initBuild(ith);
+        Files.writeString(ith.inProjectDir("build.gradle.kts").toPath(), getConfig() + /* language=kotlin */ """
+                jenkinsPlugin {
+                    gitVersion {
+                        abbrevLength.set(4)
+                        allowDirty.set(true)
+                    }
+                }
+                """);
+        initGitRepo(ith.inProjectDir("."));
+        // Enough packed and loose objects that some 4-character prefixes are shared
+        ith.mkDirInProjectDir("data");
+        for (int i = 0; i < 2000; i++) {
+            Files.writeString(ith.inProjectDir("data/" + i + ".txt").toPath(), Integer.toString(i));
+        }
+        runGit(ith.inProjectDir("."), "add", ".");
+        runGit(ith.inProjectDir("."), "commit", "-m", "Packed");
+        runGit(ith.inProjectDir("."), "gc", "--quiet");
+        for (int i = 2000; i < 4000; i++) {
+            Files.writeString(ith.inProjectDir("data/" + i + ".txt").toPath(), Integer.toString(i));
+        }
+        runGit(ith.inProjectDir("."), "add", ".");
+        runGit(ith.inProjectDir("."), "commit", "-m", "Loose");
+
+        ith.gradleRunner().withArguments("generateGitVersion").build();
+
+        var versionFile = ith.inProjectDir("build/generated/version/version.txt");
+        var firstLine = Files.readAllLines(versionFile.toPath(), StandardCharsets.UTF_8).get(0);
+        assertThat(firstLine).isEqualTo("3." + runGit(ith.inProjectDir("."), "rev-parse", "--short=4", "HEAD").trim());
+    }
+
     @Test
     void generateGitVersionFailsWhenNotAGitRepository() throws IOException {
         var ith = new IntegrationTestHelper(tempDir, "8.14");
@@ -298,7 +505,7 @@ class VersionSourceIntegrationTest extends V2IntegrationTestBase {
         runGit(projectDir, "commit", "-m", "Initial commit");
     }
 
-    private static void runGit(File workDir, String... args) throws IOException, InterruptedException {
+    private static String runGit(File workDir, String... args) throws IOException, InterruptedException {
         var command = new java.util.ArrayList<String>();
         command.add("git");
         command.addAll(List.of(args));
@@ -315,5 +522,6 @@ class VersionSourceIntegrationTest extends V2IntegrationTestBase {
         if (process.exitValue() != 0) {
             throw new RuntimeException("git " + String.join(" ", args) + " failed: " + output);
         }
+        return output;
     }
 }